@@ -5,6 +5,8 @@ import com.github.jikoo.enchantableblocks.listener.AnvilEnchanter;
 import com.github.jikoo.enchantableblocks.listener.TableEnchanter;
 import com.github.jikoo.enchantableblocks.listener.WorldListener;
 import com.github.jikoo.enchantableblocks.registry.EnchantableBlockManager;
+import com.github.jikoo.enchantableblocks.util.CacheStats;
+import java.util.concurrent.TimeUnit;
 import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.command.Command;
@@ -52,10 +54,36 @@ public class EnchantableBlocksPlugin extends JavaPlugin {
     // Only load blocks when server startup is complete to allow other providers time to enable.
     getServer().getScheduler().runTask(this, this::loadEnchantableBlocks);
 
+    // Periodically persist unsaved changes. Regions are encoded by cache sweeps or lazy checks.
+    long autosaveTicks = Math.max(1, getConfig().getInt("autosave", 5)) * 60L * 20L;
+    getServer().getScheduler().runTaskTimer(
+        this,
+        () -> this.blockManager.save(),
+        autosaveTicks,
+        autosaveTicks);
+
+    // Release cached regions on a time budget rather than during block and chunk events.
+    // Without a budget, regions are released lazily and sweeps only complete periodic saves.
+    long sweepBudget = getConfig().getLong("storage.cacheSweepBudgetMillis", 2);
+    long sweepBudgetNanos =
+        sweepBudget > 0 ? TimeUnit.MILLISECONDS.toNanos(sweepBudget) : Long.MAX_VALUE;
+    getServer().getScheduler().runTaskTimer(
+        this,
+        () -> this.blockManager.sweep(sweepBudgetNanos),
+        20L,
+        20L);
+
   }
 
   private void loadEnchantableBlocks() {
     long startTime = System.nanoTime();
+    // All registrations are present once startup completes.
+    this.blockManager.compileWorldSettings(getServer().getWorlds());
+    // Warm the region cache with regions that were busy before the last shutdown.
+    int prefetched = this.blockManager.prefetchHotData();
+    if (prefetched > 0) {
+      getLogger().info(() -> "Prefetching " + prefetched + " frequently used regions");
+    }
     // Load all EnchantableBlocks for loaded chunks.
     for (World world : this.getServer().getWorlds()) {
       for (Chunk chunk : world.getLoadedChunks()) {
@@ -63,13 +91,17 @@ public class EnchantableBlocksPlugin extends JavaPlugin {
       }
     }
     double elapsed = (System.nanoTime() - startTime) / 1_000_000_000D;
-    getLogger().info(() -> "Loaded all active blocks in " + elapsed + " seconds");
+    getLogger().info(() -> "Requested all active blocks in " + elapsed + " seconds");
   }
 
   @Override
   public void onDisable() {
     this.getServer().getScheduler().cancelTasks(this);
-    this.blockManager.expireCache();
+    this.blockManager.saveHotData(getConfig().getInt("storage.hotRegions", 64));
+    this.blockManager.shutdown(
+        getConfig().getInt("storage.shutdownThreads", 4),
+        getConfig().getLong("storage.shutdownTimeoutSeconds", 30),
+        TimeUnit.SECONDS);
   }
 
   @Override
@@ -78,6 +110,25 @@ public class EnchantableBlocksPlugin extends JavaPlugin {
       @NotNull Command command,
       @NotNull String label,
       @NotNull String @NotNull [] args) {
+    if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+      CacheStats stats = this.blockManager.getCacheStats();
+      if (stats == null) {
+        sender.sendMessage("[EnchantableBlocks] The storage backend does not cache data.");
+        return true;
+      }
+      sender.sendMessage(String.format(
+          "[EnchantableBlocks] %d regions cached, %.1f%% hit rate, %d loads (%d failed) "
+              + "averaging %.2fms, %d evictions, in use checks averaging %.2fms",
+          stats.size(),
+          stats.hitRate() * 100,
+          stats.loads(),
+          stats.loadFailures(),
+          stats.averageLoadMillis(),
+          stats.evictions(),
+          stats.averageInUseCheckMillis()));
+      return true;
+    }
+
     if (args.length < 1 || !args[0].equalsIgnoreCase("reload")) {
       sender.sendMessage("EnchantableBlocks v" + getPluginMeta().getVersion());
       return false;
@@ -85,6 +136,7 @@ public class EnchantableBlocksPlugin extends JavaPlugin {
 
     this.reloadConfig();
     this.blockManager.getRegistry().reload();
+    this.blockManager.compileWorldSettings(getServer().getWorlds());
     sender.sendMessage(
         "[EnchantableBlocks v"
             + getPluginMeta().getVersion()
@@ -2,22 +2,40 @@ package com.github.jikoo.enchantableblocks.block;
 
 import com.github.jikoo.enchantableblocks.config.EnchantableBlockConfig;
 import com.github.jikoo.enchantableblocks.registry.EnchantableRegistration;
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
+import com.github.jikoo.enchantableblocks.util.StoredItem;
+import java.lang.ref.WeakReference;
+import java.util.Map;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Base for an enchantable block.
+ *
+ * <p>The in-world {@link Block} is not retained. Blocks are stored as a weak reference to their
+ * {@link World} and {@link PackedCoords#packBlock(int, int, int) packed coordinates}, and the
+ * {@code Block} is resolved when requested. Callers needing the {@code Block} more than once
+ * should keep the result of {@link #getBlock()} rather than resolving it again.
  */
 public abstract class EnchantableBlock {
 
   private final @NotNull EnchantableRegistration registration;
-  private final @NotNull Block block;
-  private final @NotNull ItemStack itemStack;
+  // Blocks are unloaded with their chunks, but must not keep an unloaded world alive if leaked.
+  private final @NotNull WeakReference<World> world;
+  private final @NotNull String worldName;
+  private final long position;
+  private @Nullable ItemStack itemStack;
+  private @Nullable StoredItem storedItem;
+  private @NotNull Map<String, Integer> enchantments;
   private final @NotNull ConfigurationSection storage;
   private boolean dirty = false;
+  private @Nullable Runnable changeListener;
 
   protected EnchantableBlock(
       final @NotNull EnchantableRegistration registration,
@@ -25,33 +43,124 @@ public abstract class EnchantableBlock {
       final @NotNull ItemStack itemStack,
       final @NotNull ConfigurationSection storage) {
     this.registration = registration;
-    this.block = block;
-    this.itemStack = itemStack.clone();
-    if (this.itemStack.getAmount() > 1) {
-      this.itemStack.setAmount(1);
-    }
+    this.world = new WeakReference<>(block.getWorld());
+    this.worldName = block.getWorld().getName();
+    this.position = PackedCoords.packBlock(block.getX(), block.getY(), block.getZ());
+    this.itemStack = normalize(itemStack.clone());
+    this.enchantments = StoredItem.getEnchantments(this.itemStack);
     this.storage = storage;
     this.updateStorage();
   }
 
   /**
-   * Get the in-world {@link Block}.
+   * Construct an {@code EnchantableBlock} from a {@link StoredItem}. The item is not deserialized
+   * until it is {@link #getItemStack() requested}.
+   *
+   * @param registration the {@link EnchantableRegistration} creating the instance
+   * @param block the in-world {@link Block}
+   * @param storedItem the {@code StoredItem} used in creation
+   * @param storage the {@link ConfigurationSection} containing save data
+   */
+  protected EnchantableBlock(
+      final @NotNull EnchantableRegistration registration,
+      final @NotNull Block block,
+      final @NotNull StoredItem storedItem,
+      final @NotNull ConfigurationSection storage) {
+    this.registration = registration;
+    this.world = new WeakReference<>(block.getWorld());
+    this.worldName = block.getWorld().getName();
+    this.position = PackedCoords.packBlock(block.getX(), block.getY(), block.getZ());
+    this.storedItem = storedItem;
+    this.enchantments = storedItem.getEnchantments();
+    this.storage = storage;
+  }
+
+  private static @NotNull ItemStack normalize(@NotNull ItemStack itemStack) {
+    if (itemStack.getAmount() > 1) {
+      itemStack.setAmount(1);
+    }
+    return itemStack;
+  }
+
+  /**
+   * Get the in-world {@link Block}. The {@code Block} is resolved from the {@link World} on each
+   * call.
    *
    * @return the {@code Block}
    */
   public @NotNull Block getBlock() {
-    return this.block;
+    return getWorld().getBlockAt(getX(), getY(), getZ());
+  }
+
+  /**
+   * Get the {@link World} containing the block.
+   *
+   * @return the {@code World}
+   * @throws IllegalStateException if the {@code World} has been unloaded and released
+   */
+  public @NotNull World getWorld() {
+    World loaded = this.world.get();
+    if (loaded == null) {
+      throw new IllegalStateException("World " + this.worldName + " is no longer loaded");
+    }
+    return loaded;
+  }
+
+  /**
+   * Get the block's X coordinate.
+   *
+   * @return the block X coordinate
+   */
+  public int getX() {
+    return PackedCoords.unpackBlockX(this.position);
+  }
+
+  /**
+   * Get the block's Y coordinate.
+   *
+   * @return the block Y coordinate
+   */
+  public int getY() {
+    return PackedCoords.unpackBlockY(this.position);
+  }
+
+  /**
+   * Get the block's Z coordinate.
+   *
+   * @return the block Z coordinate
+   */
+  public int getZ() {
+    return PackedCoords.unpackBlockZ(this.position);
   }
 
   /**
    * Get the {@link ItemStack} that created this block.
    *
+   * <p>Blocks loaded from storage deserialize their item on the first call. Prefer
+   * {@link #getEnchantmentLevel(Enchantment)} where only enchantment levels are needed.
+   *
    * @return the {@code ItemStack}
    */
   public @NotNull ItemStack getItemStack() {
+    if (this.itemStack == null) {
+      this.itemStack = normalize(this.storedItem.toItemStack());
+    }
     return this.itemStack;
   }
 
+  /**
+   * Get the level of an {@link Enchantment} on the block's item without deserializing it.
+   *
+   * <p>Levels are extracted when the block is created and refreshed when changes to the item are
+   * {@link #updateStorage() written to storage}.
+   *
+   * @param enchantment the {@code Enchantment}
+   * @return the level or 0 if the item does not have the enchantment
+   */
+  public int getEnchantmentLevel(@NotNull Enchantment enchantment) {
+    return this.enchantments.getOrDefault(StoredItem.getKey(enchantment), 0);
+  }
+
   /**
    * Check if the block's in-world location is a {@link Block} of a correct {@link Material}.
    *
@@ -93,14 +202,36 @@ public abstract class EnchantableBlock {
    */
   public void setDirty(boolean dirty) {
     this.dirty = dirty;
+    if (dirty && this.changeListener != null) {
+      this.changeListener.run();
+    }
+  }
+
+  /**
+   * Set a listener to be run whenever the block is {@link #setDirty(boolean) marked} as having
+   * unsaved changes.
+   *
+   * @param changeListener the listener or {@code null} to remove it
+   */
+  public void setChangeListener(@Nullable Runnable changeListener) {
+    this.changeListener = changeListener;
   }
 
   /**
    * Update the {@link ConfigurationSection} containing the block's save data.
    */
   public void updateStorage() {
+    if (this.itemStack == null) {
+      // Item has not been deserialized, so it cannot have been modified.
+      return;
+    }
+    if (getStorage().get("itemstack") instanceof StoredItem stored && stored.matches(itemStack)) {
+      return;
+    }
     if (!this.itemStack.equals(getStorage().getItemStack("itemstack"))) {
       getStorage().set("itemstack", this.itemStack);
+      this.enchantments = StoredItem.getEnchantments(this.itemStack);
+      this.storedItem = null;
       this.dirty = true;
     }
   }
@@ -132,9 +263,24 @@ public abstract class EnchantableBlock {
     return this.registration;
   }
 
+  /**
+   * Describe the item that created this block without deserializing it.
+   *
+   * @return the {@link ItemStack} if already available, otherwise the stored item
+   */
+  protected @Nullable Object describeItem() {
+    return itemStack != null ? itemStack : storedItem;
+  }
+
   @Override
   public String toString() {
-    return getClass().getSimpleName() + "{block=" + block + ",itemStack=" + itemStack + "}";
+    Object item = describeItem();
+    return getClass().getSimpleName()
+        + "{world=" + worldName
+        + ",x=" + getX()
+        + ",y=" + getY()
+        + ",z=" + getZ()
+        + ",itemStack=" + item + "}";
   }
 
 }
@@ -3,6 +3,7 @@ package com.github.jikoo.enchantableblocks.block.impl.furnace;
 import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
 import com.github.jikoo.enchantableblocks.registry.EnchantableBlockManager;
 import com.github.jikoo.enchantableblocks.util.MathHelper;
+import com.github.jikoo.enchantableblocks.util.StoredItem;
 import com.github.jikoo.planarenchanting.util.ItemUtil;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -29,6 +30,9 @@ public class EnchantableFurnace extends EnchantableBlock {
   private static final String PATH_FROZEN_TICKS = "silk.ticks";
 
   private final boolean canPause;
+  private final int cookModifier;
+  private final int burnModifier;
+  private final int fortune;
   private short frozenTicks;
   private boolean updating = false;
 
@@ -43,28 +47,55 @@ public class EnchantableFurnace extends EnchantableBlock {
   EnchantableFurnace(
       final @NotNull EnchantableFurnaceRegistration registration,
       final @NotNull Block block,
-      @NotNull ItemStack itemStack,
+      final @NotNull ItemStack itemStack,
       final @NotNull ConfigurationSection storage) {
     super(registration, block, itemStack, storage);
+    this.canPause = loadPauseState(storage);
+    this.cookModifier = getEnchantmentLevel(Enchantment.EFFICIENCY);
+    this.burnModifier = getEnchantmentLevel(Enchantment.UNBREAKING);
+    this.fortune = getEnchantmentLevel(Enchantment.FORTUNE);
+  }
+
+  /**
+   * Construct a new {@code EnchantableFurnace} instance from a {@link StoredItem}.
+   *
+   * @param registration the {@link EnchantableFurnaceRegistration} creating the instance
+   * @param block the in-world {@link Block}
+   * @param storedItem the {@code StoredItem} used in creation
+   * @param storage the {@link ConfigurationSection} containing save data
+   */
+  EnchantableFurnace(
+      final @NotNull EnchantableFurnaceRegistration registration,
+      final @NotNull Block block,
+      final @NotNull StoredItem storedItem,
+      final @NotNull ConfigurationSection storage) {
+    super(registration, block, storedItem, storage);
+    this.canPause = loadPauseState(storage);
+    this.cookModifier = getEnchantmentLevel(Enchantment.EFFICIENCY);
+    this.burnModifier = getEnchantmentLevel(Enchantment.UNBREAKING);
+    this.fortune = getEnchantmentLevel(Enchantment.FORTUNE);
+  }
+
+  private boolean loadPauseState(@NotNull ConfigurationSection storage) {
     if (storage.isBoolean(PATH_CAN_PAUSE)) {
       // Existing furnace, use stored data.
-      this.canPause = storage.getBoolean(PATH_CAN_PAUSE, false);
       this.frozenTicks = MathHelper.clampPositiveShort(storage.getInt(PATH_FROZEN_TICKS, 0));
-    } else {
-      // New or legacy furnace.
-      itemStack = this.getItemStack();
-      this.canPause = itemStack.getEnchantments().containsKey(Enchantment.SILK_TOUCH);
-      this.frozenTicks = 0;
-      // Convert legacy furnaces - silk enchant level used for frozen ticks.
-      if (this.canPause && itemStack.getEnchantmentLevel(Enchantment.SILK_TOUCH) != 1) {
-        this.frozenTicks = MathHelper.clampPositiveShort(
-            itemStack.getEnchantmentLevel(Enchantment.SILK_TOUCH));
-        itemStack.addUnsafeEnchantment(Enchantment.SILK_TOUCH, 1);
-      }
-      storage.set(PATH_CAN_PAUSE, canPause);
-      storage.set(PATH_FROZEN_TICKS, frozenTicks);
-      this.setDirty(true);
+      return storage.getBoolean(PATH_CAN_PAUSE, false);
     }
+
+    // New or legacy furnace.
+    int silkLevel = getEnchantmentLevel(Enchantment.SILK_TOUCH);
+    boolean pause = silkLevel > 0;
+    this.frozenTicks = 0;
+    // Convert legacy furnaces - silk enchant level used for frozen ticks.
+    if (pause && silkLevel != 1) {
+      this.frozenTicks = MathHelper.clampPositiveShort(silkLevel);
+      this.getItemStack().addUnsafeEnchantment(Enchantment.SILK_TOUCH, 1);
+    }
+    storage.set(PATH_CAN_PAUSE, pause);
+    storage.set(PATH_FROZEN_TICKS, frozenTicks);
+    this.setDirty(true);
+    return pause;
   }
 
   @Override
@@ -93,7 +124,7 @@ public class EnchantableFurnace extends EnchantableBlock {
    * @return the cooking speed modifier
    */
   public int getCookModifier() {
-    return this.getItemStack().getEnchantmentLevel(Enchantment.EFFICIENCY);
+    return this.cookModifier;
   }
 
   /**
@@ -102,7 +133,7 @@ public class EnchantableFurnace extends EnchantableBlock {
    * @return the fuel burn rate modifier
    */
   public int getBurnModifier() {
-    return this.getItemStack().getEnchantmentLevel(Enchantment.UNBREAKING);
+    return this.burnModifier;
   }
 
   /**
@@ -111,7 +142,7 @@ public class EnchantableFurnace extends EnchantableBlock {
    * @return the fortune level
    */
   public int getFortune() {
-    return this.getItemStack().getEnchantmentLevel(Enchantment.FORTUNE);
+    return this.fortune;
   }
 
   /**
@@ -141,6 +172,22 @@ public class EnchantableFurnace extends EnchantableBlock {
       return false;
     }
 
+    return shouldPause(furnace, event);
+  }
+
+  /**
+   * Get whether the furnace should pause after completion of the event occurring, using a
+   * {@link Furnace} the caller has already {@link #getFurnaceTile() obtained}.
+   *
+   * @param furnace the furnace
+   * @param event the event occurring
+   * @return true if the furnace should pause
+   */
+  public boolean shouldPause(final @NotNull Furnace furnace, final @Nullable Event event) {
+    if (!this.canPause()) {
+      return false;
+    }
+
     ItemStack input;
     ItemStack result;
     CookingRecipe<?> recipe;
@@ -352,7 +399,7 @@ public class EnchantableFurnace extends EnchantableBlock {
   public String toString() {
     return "EnchantableFurnace{"
         + "block=" + getBlock()
-        + "itemStack=" + getItemStack()
+        + "itemStack=" + describeItem()
         + "canPause=" + canPause
         + "frozenTicks=" + frozenTicks
         + '}';
@@ -374,7 +421,8 @@ public class EnchantableFurnace extends EnchantableBlock {
       return;
     }
 
-    var enchantableBlock = manager.getBlock(furnace.getBlock());
+    var enchantableBlock =
+        manager.getBlock(furnace.getWorld(), furnace.getX(), furnace.getY(), furnace.getZ());
 
     if (!(enchantableBlock instanceof EnchantableFurnace enchantableFurnace)) {
       return;
@@ -3,6 +3,7 @@ package com.github.jikoo.enchantableblocks.block.impl.furnace;
 import com.github.jikoo.enchantableblocks.registry.EnchantableBlockManager;
 import com.github.jikoo.enchantableblocks.registry.EnchantableRegistration;
 import com.github.jikoo.enchantableblocks.util.EmptyCookingRecipe;
+import com.github.jikoo.enchantableblocks.util.StoredItem;
 import com.github.jikoo.planarwrappers.util.StringConverters;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.util.Collection;
@@ -76,6 +77,12 @@ public class EnchantableFurnaceRegistration extends EnchantableRegistration {
     return new EnchantableFurnace(this, block, itemStack, storage);
   }
 
+  @Override
+  public @NotNull EnchantableFurnace newBlock(@NotNull Block block, @NotNull StoredItem storedItem,
+      @NotNull ConfigurationSection storage) {
+    return new EnchantableFurnace(this, block, storedItem, storage);
+  }
+
   @Override
   public @NotNull EnchantableFurnaceConfig getConfig() {
     return (EnchantableFurnaceConfig) super.getConfig();
@@ -92,7 +92,8 @@ class FurnaceListener implements Listener {
       return;
     }
 
-    if (enchantableFurnace.shouldPause(event)) {
+    // Reuse the furnace state rather than resolving the block again.
+    if (enchantableFurnace.shouldPause(furnace, event)) {
       plugin.getServer().getScheduler().runTask(plugin, enchantableFurnace::pause);
     }
   }
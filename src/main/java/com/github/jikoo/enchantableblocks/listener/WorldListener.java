@@ -18,6 +18,7 @@ import org.bukkit.event.block.BlockDropItemEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
@@ -47,9 +48,17 @@ public class WorldListener implements Listener {
   @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
   @VisibleForTesting
   void onChunkLoad(@NotNull ChunkLoadEvent event) {
+    // Start reading data now so that it is ready or in progress when blocks are loaded.
+    manager.prefetchChunkBlocks(event.getChunk());
     plugin.getServer().getScheduler().runTask(plugin, () -> manager.loadChunkBlocks(event.getChunk()));
   }
 
+  @EventHandler(priority = EventPriority.MONITOR)
+  @VisibleForTesting
+  void onWorldLoad(@NotNull WorldLoadEvent event) {
+    manager.compileWorldSettings(plugin.getServer().getWorlds());
+  }
+
   @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
   @VisibleForTesting
   void onChunkUnload(@NotNull ChunkUnloadEvent event) {
@@ -1,17 +1,40 @@
 package com.github.jikoo.enchantableblocks.registry;
 
 import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
+import com.github.jikoo.enchantableblocks.storage.BlockJournal;
+import com.github.jikoo.enchantableblocks.storage.BlockStorageBackend;
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend;
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend.RegionStorageData;
+import com.github.jikoo.enchantableblocks.storage.SqliteStorageBackend;
+import com.github.jikoo.enchantableblocks.util.BlockIndex;
 import com.github.jikoo.enchantableblocks.util.Cache;
+import com.github.jikoo.enchantableblocks.util.CacheStats;
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
 import com.github.jikoo.enchantableblocks.util.Region;
-import com.github.jikoo.enchantableblocks.util.RegionStorage;
-import com.github.jikoo.planarwrappers.collections.BlockMap;
+import com.github.jikoo.enchantableblocks.util.RegionIoExecutor;
+import com.github.jikoo.enchantableblocks.util.StoredItem;
 import com.github.jikoo.planarwrappers.util.Coords;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Objects;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.Contract;
@@ -26,8 +49,14 @@ public class EnchantableBlockManager {
 
   private final @NotNull Logger logger;
   private final @NotNull EnchantableBlockRegistry blockRegistry;
-  private final @NotNull BlockMap<EnchantableBlock> blockMap;
-  private final @NotNull Cache<Region, RegionStorageData> saveFileCache;
+  private final @NotNull BlockIndex<EnchantableBlock> blockIndex;
+  private final @NotNull BlockStorageBackend backend;
+  // Chunks whose stored blocks are still being read by world and packed chunk coordinates.
+  // Only accessed on the main thread.
+  private final @NotNull Map<String, Long2ObjectOpenHashMap<PendingChunkLoad>> pendingChunks =
+      new HashMap<>();
+  private final @Nullable BlockJournal journal;
+  private volatile @NotNull WorldSettingsSnapshot worldSettings = WorldSettingsSnapshot.EMPTY;
 
   /**
    * Construct a new {@code EnchantableBlockManager} for the given {@link Plugin}.
@@ -37,10 +66,105 @@ public class EnchantableBlockManager {
   public EnchantableBlockManager(@NotNull Plugin plugin) {
     this(
         new EnchantableBlockRegistry(plugin.getLogger()),
-        new Cache.CacheBuilder<>(),
-        plugin.getConfig().getInt("autosave", 5),
+        plugin.getLogger(),
+        task -> {
+          // Completions arriving after disable have nowhere to go; data is flushed on disable.
+          if (plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+          }
+        },
+        getBackendFactory(plugin),
+        openJournal(plugin));
+  }
+
+  /**
+   * Get a factory for the configured {@link BlockStorageBackend}. If the configured backend cannot
+   * be created, region files are used instead.
+   *
+   * @param plugin the {@link Plugin}
+   * @return the factory
+   */
+  private static @NotNull BackendFactory getBackendFactory(@NotNull Plugin plugin) {
+    FileConfiguration config = plugin.getConfig();
+    BackendFactory regionFiles = getRegionFileFactory(
         plugin.getDataFolder().toPath().resolve("data"),
-        plugin.getLogger());
+        plugin.getLogger(),
+        () -> new RegionIoExecutor(
+            config.getInt("storage.ioThreads", 2),
+            config.getInt("storage.ioQueueSize", 256),
+            config.getLong("storage.writeCoalesceMillis", 250)),
+        new Cache.CacheBuilder<Region, RegionStorageData>().withMaximumWeight(
+            config.getLong("storage.cacheMaxBlocks", 0),
+            // Empty regions still occupy memory.
+            (region, data) -> 1 + data.getBlockCount())
+            .withSweep(config.getLong("storage.cacheSweepBudgetMillis", 2) > 0),
+        config.getInt("autosave", 5),
+        config.getBoolean("storage.compress", false));
+
+    String type = config.getString("storage.backend", "region");
+    if (!"sqlite".equalsIgnoreCase(type)) {
+      return regionFiles;
+    }
+
+    Path database = plugin.getDataFolder().toPath().resolve("blocks.db");
+    return (loadedBlocks, mainThread) -> {
+      try {
+        return new SqliteStorageBackend(database, plugin.getLogger(), mainThread, loadedBlocks);
+      } catch (IOException e) {
+        plugin.getLogger().log(
+            Level.WARNING,
+            "Unable to create storage backend, using region files",
+            e);
+        return regionFiles.create(loadedBlocks, mainThread);
+      }
+    };
+  }
+
+  /**
+   * Get a factory for a {@link RegionFileStorageBackend}.
+   *
+   * @param dataDir the directory containing region data
+   * @param logger the {@link Logger} for reporting failures
+   * @param io a supplier for the {@link RegionIoExecutor}, only used if the backend is created
+   * @param cacheBuilder the configured builder for the region cache
+   * @param autoSave the interval between saves in minutes
+   * @param compressRegions whether region data is compressed when written
+   * @return the factory
+   */
+  private static @NotNull BackendFactory getRegionFileFactory(
+      @NotNull Path dataDir,
+      @NotNull Logger logger,
+      @NotNull Supplier<@NotNull RegionIoExecutor> io,
+      @NotNull Cache.CacheBuilder<Region, RegionStorageData> cacheBuilder,
+      int autoSave,
+      boolean compressRegions) {
+    return (loadedBlocks, mainThread) -> new RegionFileStorageBackend(
+        dataDir,
+        logger,
+        io.get(),
+        mainThread,
+        loadedBlocks,
+        cacheBuilder.withRetention(Math.max(autoSave * 60_000L, 60_000L)),
+        compressRegions);
+  }
+
+  /**
+   * Open the change journal if enabled.
+   *
+   * @param plugin the {@link Plugin}
+   * @return the journal or {@code null} if disabled or unavailable
+   */
+  private static @Nullable BlockJournal openJournal(@NotNull Plugin plugin) {
+    if (!plugin.getConfig().getBoolean("storage.journal", true)) {
+      return null;
+    }
+    Path directory = plugin.getDataFolder().toPath().resolve("journal");
+    try {
+      return BlockJournal.open(directory, plugin.getLogger());
+    } catch (IOException e) {
+      plugin.getLogger().log(Level.WARNING, "Unable to open journal, changes may be lost", e);
+      return null;
+    }
   }
 
   @VisibleForTesting
@@ -50,13 +174,98 @@ public class EnchantableBlockManager {
       int autoSave,
       @NotNull Path dataDir,
       @NotNull Logger logger) {
-    this.blockMap = new BlockMap<>();
+    this(
+        registry,
+        logger,
+        Runnable::run,
+        getRegionFileFactory(
+            dataDir,
+            logger,
+            RegionIoExecutor::synchronous,
+            cacheBuilder,
+            autoSave,
+            false),
+        null);
+  }
+
+  @VisibleForTesting
+  EnchantableBlockManager(
+      @NotNull EnchantableBlockRegistry registry,
+      @NotNull Logger logger,
+      @NotNull Executor mainThread,
+      @NotNull BackendFactory backendFactory,
+      @Nullable BlockJournal journal) {
+    this.blockIndex = new BlockIndex<>();
     this.logger = logger;
     this.blockRegistry = registry;
-    this.saveFileCache = cacheBuilder
-        .withRetention(Math.max(autoSave * 60_000L, 60_000L))
-        .withInUseCheck(new RegionInUseCheck(logger))
-        .withLoadFunction(new RegionLoadFunction(this, dataDir, logger)).build();
+    // Settings are resolved from configuration until compiled again.
+    registry.setChangeListener(() -> this.worldSettings = WorldSettingsSnapshot.EMPTY);
+    this.backend = backendFactory.create(blockIndex::getChunk, mainThread);
+    this.journal = journal;
+    replayJournal();
+  }
+
+  /**
+   * Restore changes recorded in the journal that were not persisted before the last shutdown.
+   */
+  private void replayJournal() {
+    if (journal == null) {
+      return;
+    }
+
+    int[] count = new int[1];
+    long replayed;
+    try {
+      replayed = journal.replay(entry -> {
+        ConfigurationSection data = entry.data();
+        if (data == null) {
+          backend.removeBlock(entry.worldName(), entry.x(), entry.y(), entry.z());
+        } else {
+          backend.restoreBlock(entry.worldName(), entry.x(), entry.y(), entry.z(), data);
+        }
+        ++count[0];
+      });
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to replay journal", e);
+      return;
+    }
+
+    if (replayed < 0) {
+      return;
+    }
+
+    logger.info(() -> String.format("Recovered %d unsaved block changes from journal", count[0]));
+    persistThrough(replayed);
+  }
+
+  /**
+   * Flush the backend and truncate the journal through a checkpoint once the flush completes.
+   *
+   * @param checkpoint the journal checkpoint or {@code -1} if there is no journal
+   * @return the flush result
+   */
+  private @NotNull CompletableFuture<Void> persistThrough(long checkpoint) {
+    return truncateAfter(backend.flush(), checkpoint);
+  }
+
+  /**
+   * Truncate the journal through a checkpoint once a flush completes.
+   *
+   * @param flushed the flush result
+   * @param checkpoint the journal checkpoint or {@code -1} if there is no journal
+   * @return the flush result
+   */
+  private @NotNull CompletableFuture<Void> truncateAfter(
+      @NotNull CompletableFuture<Void> flushed,
+      long checkpoint) {
+    flushed.whenComplete((ignored, throwable) -> {
+      if (throwable != null) {
+        logger.log(Level.WARNING, "Unable to persist all changes, retaining journal", throwable);
+      } else if (journal != null && checkpoint >= 0) {
+        journal.truncate(checkpoint);
+      }
+    });
+    return flushed;
   }
 
   /**
@@ -75,10 +284,34 @@ public class EnchantableBlockManager {
    * @return the {@code EnchantableBlock} or {@code null} the {@code Block} is not stored
    */
   public @Nullable EnchantableBlock getBlock(@NotNull final Block block) {
+    return getBlock(block.getWorld(), block.getX(), block.getY(), block.getZ());
+  }
+
+  /**
+   * Get an {@link EnchantableBlock} by {@link World} and block coordinates.
+   *
+   * @param world the {@code World}
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return the {@code EnchantableBlock} or {@code null} if no block is stored at the position
+   */
+  public @Nullable EnchantableBlock getBlock(@NotNull World world, int x, int y, int z) {
+
+    WorldSettingsSnapshot settings = this.worldSettings;
+    if (!settings.isAnyEnabled(world)) {
+      return null;
+    }
+
+    completeChunkLoad(world.getName(), Coords.blockToChunk(x), Coords.blockToChunk(z));
+
+    // Nearly all queried blocks are not enchanted. Reject them before touching the index.
+    if (!this.blockIndex.mayContain(x, y, z)) {
+      return null;
+    }
 
-    EnchantableBlock enchantableBlock = this.blockMap.get(block);
-    if (enchantableBlock != null
-        && enchantableBlock.getConfig().enabled().get(block.getWorld().getName())) {
+    EnchantableBlock enchantableBlock = this.blockIndex.get(world.getName(), x, y, z);
+    if (enchantableBlock != null && settings.isEnabled(world, enchantableBlock.getRegistration())) {
       return enchantableBlock;
     }
 
@@ -86,12 +319,46 @@ public class EnchantableBlockManager {
 
   }
 
+  /**
+   * Check if an {@link EnchantableRegistration} is enabled in a {@link World}.
+   *
+   * @param world the {@code World}
+   * @param registration the {@code EnchantableRegistration}
+   * @return true if the registration is enabled
+   */
+  public boolean isEnabled(@NotNull World world, @NotNull EnchantableRegistration registration) {
+    return this.worldSettings.isEnabled(world, registration);
+  }
+
+  /**
+   * Check if any {@link EnchantableRegistration} may be enabled in a {@link World}. If not, no
+   * {@link EnchantableBlock EnchantableBlocks} in the world are active.
+   *
+   * @param world the {@code World}
+   * @return false if every registration is disabled in the world
+   */
+  public boolean isAnyEnabled(@NotNull World world) {
+    return this.worldSettings.isAnyEnabled(world);
+  }
+
+  /**
+   * Resolve per-world settings of all registrations ahead of time. This should be repeated when
+   * worlds are loaded. Registering or reloading registrations discards the compiled settings.
+   *
+   * @param worlds the loaded {@link World Worlds}
+   */
+  public void compileWorldSettings(@NotNull Collection<? extends World> worlds) {
+    this.worldSettings = WorldSettingsSnapshot.compile(blockRegistry.getRegistrations(), worlds);
+  }
+
   /**
    * Create an {@link EnchantableBlock} for a {@link Block} from an {@link ItemStack}.
    *
    * <p>Note that this will override existing {@link EnchantableBlock EnchantableBlocks} without
    * warning.
    *
+   * <p>If the block's region is not cached, it is read on the calling thread.
+   *
    * @param block the {@code Block}
    * @param itemStack the {@code ItemStack}
    * @return the {@code EnchantableBlock} or {@code null} if not created
@@ -104,13 +371,24 @@ public class EnchantableBlockManager {
       return null;
     }
 
-    final EnchantableBlock enchantableBlock = this.newBlock(block, itemStack);
+    String worldName = block.getWorld().getName();
+    // Stored blocks must be loaded first so that they do not replace the new block.
+    completeChunkLoad(
+        worldName,
+        Coords.blockToChunk(block.getX()),
+        Coords.blockToChunk(block.getZ()));
+    final EnchantableBlock enchantableBlock = this.newBlock(
+        block,
+        itemStack.getType(),
+        (registration, section) -> registration.newBlock(block, itemStack, section),
+        () -> backend.putBlock(worldName, block.getX(), block.getY(), block.getZ()),
+        created -> true);
 
     if (enchantableBlock == null) {
       return null;
     }
 
-    this.blockMap.put(block, enchantableBlock);
+    this.blockIndex.put(worldName, block.getX(), block.getY(), block.getZ(), enchantableBlock);
 
     return enchantableBlock;
   }
@@ -125,69 +403,75 @@ public class EnchantableBlockManager {
   @Contract("null -> true")
   private boolean isInvalidBlock(@Nullable ItemStack itemStack) {
     return itemStack == null
-        || itemStack.getType().isAir()
-        || !itemStack.getType().isBlock()
-        || itemStack.getEnchantments().isEmpty();
+        || isInvalidBlock(itemStack.getType(), itemStack.getEnchantments().isEmpty());
   }
 
   /**
-   * Create an {@link EnchantableBlock} for a {@link Block} from an {@link ItemStack}.
+   * Helper method for ensuring a {@link StoredItem} can be used to load an
+   * {@link EnchantableBlock} without deserializing it.
+   *
+   * @param storedItem the {@code StoredItem}
+   * @return true if the {@code StoredItem} is an invalid type
+   */
+  @Contract("null -> true")
+  private boolean isInvalidBlock(@Nullable StoredItem storedItem) {
+    return storedItem == null
+        || isInvalidBlock(storedItem.getType(), storedItem.getEnchantments().isEmpty());
+  }
+
+  private boolean isInvalidBlock(@Nullable Material type, boolean unenchanted) {
+    return type == null || type.isAir() || !type.isBlock() || unenchanted;
+  }
+
+  /**
+   * Create an {@link EnchantableBlock} for a {@link Block} from an item.
    *
    * @param block the {@code Block}
-   * @param itemStack the {@code ItemStack}
-   * @return the {@code EnchantableBlock} or {@code null} if no registration matches
+   * @param type the {@link Material} of the item
+   * @param creator the method used to create the block from the matching registration
+   * @param storage a supplier for the block's storage, only used if a registration matches
+   * @param valid a check that the created block is valid, run before any changes are journaled
+   * @return the {@code EnchantableBlock} or {@code null} if no registration matches or the block
+   *     is not valid
    */
   private @Nullable EnchantableBlock newBlock(
       @NotNull Block block,
-      @NotNull ItemStack itemStack) {
-    var registration = blockRegistry.get(itemStack.getType());
+      @NotNull Material type,
+      @NotNull BiFunction<EnchantableRegistration, ConfigurationSection, EnchantableBlock> creator,
+      @NotNull Supplier<@NotNull ConfigurationSection> storage,
+      @NotNull Predicate<@NotNull EnchantableBlock> valid) {
+    var registration = blockRegistry.get(type);
 
     if (registration == null) {
       return null;
     }
 
-    if (!registration.getConfig().enabled().get(block.getWorld().getName())) {
+    if (!isEnabled(block.getWorld(), registration)) {
       return null;
     }
 
-    return registration.newBlock(block, itemStack, getBlockStorage(block));
-  }
+    ConfigurationSection section = storage.get();
+    EnchantableBlock enchantableBlock = creator.apply(registration, section);
 
-  /**
-   * Helper method for getting a non-null {@link ConfigurationSection} for a {@link Block}, creating
-   * as needed.
-   *
-   * @param block the {@code Block}
-   * @return the {@code ConfigurationSection}
-   */
-  private @NotNull ConfigurationSection getBlockStorage(@NotNull Block block) {
-    var chunkStorage = this.getChunkStorage(block);
-    var blockPath = getBlockPath(block);
-
-    if (chunkStorage.isConfigurationSection(blockPath)) {
-      return Objects.requireNonNull(chunkStorage.getConfigurationSection(blockPath));
+    // Invalid blocks are discarded, so their changes must not be journaled.
+    if (!valid.test(enchantableBlock)) {
+      return null;
     }
 
-    return chunkStorage.createSection(blockPath);
-  }
-
-  /**
-   * Helper method for getting a non-null {@link ConfigurationSection} for a {@link Chunk}, creating
-   * as needed.
-   *
-   * @param block a {@link Block} in the {@link Chunk}
-   * @return the {@code ConfigurationSection}
-   */
-  private @NotNull ConfigurationSection getChunkStorage(@NotNull Block block) {
-    var storagePair = saveFileCache.get(new Region(block));
-    var regionStorage = Objects.requireNonNull(storagePair).getStorage();
-    var chunkPath = getChunkPath(block);
-
-    if (regionStorage.isConfigurationSection(chunkPath)) {
-      return Objects.requireNonNull(regionStorage.getConfigurationSection(chunkPath));
+    if (journal != null) {
+      String worldName = block.getWorld().getName();
+      int x = block.getX();
+      int y = block.getY();
+      int z = block.getZ();
+      Runnable journalChange = () -> journal.put(worldName, x, y, z, section);
+      enchantableBlock.setChangeListener(journalChange);
+      // New and converted blocks have changes that have not been reported to the listener.
+      if (enchantableBlock.isDirty()) {
+        journalChange.run();
+      }
     }
 
-    return regionStorage.createSection(chunkPath);
+    return enchantableBlock;
   }
 
   /**
@@ -200,76 +484,56 @@ public class EnchantableBlockManager {
   private @Nullable EnchantableBlock loadEnchantableBlock(
       @NotNull final Block block,
       @NotNull final ConfigurationSection storage) {
-    ItemStack itemStack = storage.getItemStack("itemstack");
+    // Validate using the stored summary; the item is only deserialized when needed.
+    StoredItem storedItem = StoredItem.get(storage, "itemstack");
 
-    if (isInvalidBlock(itemStack)) {
+    if (isInvalidBlock(storedItem)) {
       return null;
     }
 
-    EnchantableBlock enchantableBlock = this.newBlock(block, itemStack);
-
-    if (enchantableBlock == null || !enchantableBlock.isCorrectBlockType()
-        || !enchantableBlock.getConfig().enabled().get(block.getWorld().getName())) {
-      return null;
-    }
-
-    return enchantableBlock;
+    // The Block is already resolved, so check its type directly.
+    return this.newBlock(
+        block,
+        storedItem.getType(),
+        (registration, section) -> registration.newBlock(block, storedItem, section),
+        () -> storage,
+        loaded -> loaded.isCorrectType(block.getType()));
   }
 
   /**
    * Remove an {@link EnchantableBlock}.
    *
+   * <p>If the block's region is not cached, it is read on the calling thread.
+   *
    * @param block the {@link Block} representing an {@code EnchantableBlock}
    * @return the {@link ItemStack} representation or {@code null} if not valid
    */
   public @Nullable ItemStack destroyBlock(@NotNull final Block block) {
-    EnchantableBlock enchantableBlock = this.blockMap.remove(block);
+    String worldName = block.getWorld().getName();
+    completeChunkLoad(
+        worldName,
+        Coords.blockToChunk(block.getX()),
+        Coords.blockToChunk(block.getZ()));
+    EnchantableBlock enchantableBlock =
+        this.blockIndex.remove(worldName, block.getX(), block.getY(), block.getZ());
 
     if (enchantableBlock == null) {
       return null;
     }
 
-    var saveData = this.saveFileCache.get(new Region(block));
-
-    if (saveData == null) {
+    if (!backend.removeBlock(worldName, block.getX(), block.getY(), block.getZ())) {
       return null;
     }
 
-    var chunkPath = getChunkPath(block);
-
-    ItemStack itemStack = enchantableBlock.getItemStack();
-
-    if (!saveData.getStorage().isConfigurationSection(chunkPath)) {
-      saveData.getStorage().set(chunkPath, null);
-      saveData.setDirty();
-
-      if (!enchantableBlock.isCorrectType(block.getType())) {
-        return null;
-      }
-
-      return itemStack;
-    }
-
-    var chunkSection = saveData.getStorage().getConfigurationSection(chunkPath);
-    var blockPath = getBlockPath(block.getX(), block.getY(), block.getZ());
-
-    if (chunkSection != null) {
-      // Delete block data.
-      chunkSection.set(blockPath, null);
-
-      // If chunk section is now empty, also delete chunk section.
-      if (chunkSection.getKeys(false).isEmpty()) {
-        saveData.getStorage().set(chunkPath, null);
-      }
+    if (journal != null) {
+      journal.remove(worldName, block.getX(), block.getY(), block.getZ());
     }
 
-    saveData.setDirty();
-
     if (!enchantableBlock.isCorrectType(block.getType())) {
       return null;
     }
 
-    return itemStack;
+    return enchantableBlock.getItemStack();
   }
 
   /**
@@ -278,80 +542,121 @@ public class EnchantableBlockManager {
    * @param chunk the {@code Chunk}
    */
   public void loadChunkBlocks(@NotNull final Chunk chunk) {
+    String worldName = chunk.getWorld().getName();
+    var future = backend.loadChunk(worldName, chunk.getX(), chunk.getZ());
 
-    RegionStorageData saveData = this.saveFileCache.get(new Region(chunk), false);
-
-    if (saveData == null) {
+    if (future.isDone()) {
+      loadChunkBlocks(chunk, future.join());
       return;
     }
 
-    String path = getChunkPath(chunk);
-    ConfigurationSection chunkStorage = saveData.getStorage().getConfigurationSection(path);
+    // Until the read completes, blocks in the chunk are loaded on demand.
+    PendingChunkLoad pending = new PendingChunkLoad(chunk);
+    long chunkKey = PackedCoords.packChunk(chunk.getX(), chunk.getZ());
+    pendingChunks.computeIfAbsent(worldName, ignored -> new Long2ObjectOpenHashMap<>())
+        .put(chunkKey, pending);
+
+    future.thenAccept(stored -> {
+      // Chunk may have been unloaded, reloaded, or loaded on demand while data was being read.
+      if (removePendingChunk(worldName, chunkKey, pending) && chunk.isLoaded()) {
+        loadChunkBlocks(chunk, stored);
+      }
+    });
+  }
 
-    if (chunkStorage == null) {
+  /**
+   * Load a {@link Chunk Chunk's} blocks on the calling thread if they are still being read.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   */
+  private void completeChunkLoad(@NotNull String worldName, int chunkX, int chunkZ) {
+    if (pendingChunks.isEmpty()) {
       return;
     }
 
-    for (String xyz : chunkStorage.getKeys(false)) {
-      if (!chunkStorage.isConfigurationSection(xyz)) {
-        chunkStorage.set(path, null);
-        saveData.setDirty();
-        this.logger.warning(() -> String.format(
-            "Invalid ConfigurationSection %s: %s",
-            xyz,
-            chunkStorage.get(xyz)));
-        continue;
-      }
+    long chunkKey = PackedCoords.packChunk(chunkX, chunkZ);
+    Long2ObjectOpenHashMap<PendingChunkLoad> worldLoads = pendingChunks.get(worldName);
+    PendingChunkLoad pending = worldLoads == null ? null : worldLoads.get(chunkKey);
+    if (pending == null || !removePendingChunk(worldName, chunkKey, pending)) {
+      return;
+    }
 
-      String itemPath = xyz + ".itemstack";
-      String[] split = xyz.split("_");
-      Block block;
+    // The read in progress is shared. Its completion is discarded as the load is no longer pending.
+    loadChunkBlocks(pending.chunk, backend.loadChunkNow(worldName, chunkX, chunkZ));
+  }
 
-      if (split.length != 3) {
-        chunkStorage.set(xyz, null);
-        saveData.setDirty();
-        this.logger.warning(() -> String.format(
-            "Unparseable coordinates in %s: %s representing %s",
-            chunk.getWorld().getName(),
-            xyz,
-            chunkStorage.getItemStack(itemPath)));
-        continue;
-      }
+  /**
+   * Remove a pending {@link Chunk} load if it is current.
+   *
+   * @param worldName the name of the world
+   * @param chunkKey the packed chunk coordinates
+   * @param pending the pending load, or {@code null} to remove any load
+   * @return true if the load was removed
+   */
+  private boolean removePendingChunk(
+      @NotNull String worldName,
+      long chunkKey,
+      @Nullable PendingChunkLoad pending) {
+    Long2ObjectOpenHashMap<PendingChunkLoad> worldLoads = pendingChunks.get(worldName);
+    if (worldLoads == null) {
+      return false;
+    }
+    PendingChunkLoad current = worldLoads.get(chunkKey);
+    if (current == null || pending != null && current != pending) {
+      return false;
+    }
+    worldLoads.remove(chunkKey);
+    if (worldLoads.isEmpty()) {
+      pendingChunks.remove(worldName);
+    }
+    return true;
+  }
 
-      try {
-        block = chunk.getWorld()
-            .getBlockAt(
-                Integer.parseInt(split[0]),
-                Integer.parseInt(split[1]),
-                Integer.parseInt(split[2]));
-      } catch (@NotNull NumberFormatException e) {
-        chunkStorage.set(xyz, null);
-        saveData.setDirty();
-        this.logger.warning(() -> String.format(
-            "Unparseable coordinates in %s: %s representing %s",
-            chunk.getWorld().getName(),
-            xyz,
-            chunkStorage.getItemStack(itemPath)));
-        continue;
-      }
+  /**
+   * Load {@link EnchantableBlock EnchantableBlocks} for a {@link Chunk} from stored data.
+   *
+   * @param chunk the {@code Chunk}
+   * @param stored the stored data by packed block coordinates
+   */
+  private void loadChunkBlocks(
+      @NotNull Chunk chunk,
+      @NotNull Map<Long, ConfigurationSection> stored) {
+    World world = chunk.getWorld();
 
-      var enchantableBlock = this.loadEnchantableBlock(
-          block,
-          Objects.requireNonNull(chunkStorage.getConfigurationSection(xyz)));
+    for (Map.Entry<Long, ConfigurationSection> entry : List.copyOf(stored.entrySet())) {
+      long position = entry.getKey();
+      ConfigurationSection storage = entry.getValue();
+      Block block = world.getBlockAt(
+          PackedCoords.unpackBlockX(position),
+          PackedCoords.unpackBlockY(position),
+          PackedCoords.unpackBlockZ(position));
+
+      var enchantableBlock = this.loadEnchantableBlock(block, storage);
 
       if (enchantableBlock == null) {
         // Invalid EnchantableBlock, could not load.
-        chunkStorage.set(xyz, null);
-        saveData.setDirty();
+        ItemStack itemStack = StoredItem.getItemStack(storage, "itemstack");
+        backend.removeBlock(world.getName(), block.getX(), block.getY(), block.getZ());
+        // Drop any journaled changes so that recovery cannot restore the invalid save.
+        if (journal != null) {
+          journal.remove(world.getName(), block.getX(), block.getY(), block.getZ());
+        }
         this.logger.warning(() -> String.format(
             "Removed invalid save in %s at %s: %s",
-            chunk.getWorld().getName(),
+            world.getName(),
             block.getLocation().toVector(),
-            chunkStorage.getItemStack(itemPath)));
+            itemStack));
         continue;
       }
 
-      this.blockMap.put(block, enchantableBlock);
+      this.blockIndex.put(
+          world.getName(),
+          block.getX(),
+          block.getY(),
+          block.getZ(),
+          enchantableBlock);
     }
   }
 
@@ -361,133 +666,160 @@ public class EnchantableBlockManager {
    * @param chunk the {@code Chunk}
    */
   public void unloadChunkBlocks(@NotNull final Chunk chunk) {
+    // A read in progress is discarded. The next load reads again.
+    removePendingChunk(
+        chunk.getWorld().getName(),
+        PackedCoords.packChunk(chunk.getX(), chunk.getZ()),
+        null);
+    // Let storage capture changes before blocks are released.
+    backend.unloadChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
     // Clear out and clean up loaded EnchantableBlocks.
-    this.blockMap.remove(chunk);
+    this.blockIndex.removeChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
   }
 
   /**
-   * Expire all values in the save file cache.
+   * Persist all unsaved changes. Once they are written, journaled changes are discarded.
+   *
+   * <p>Changes may be captured on the calling thread. For periodic saves, use {@link #save()}
+   * instead.
    */
-  public void expireCache() {
-    saveFileCache.expireAll();
+  public void flush() {
+    persistThrough(journal == null ? -1 : journal.checkpoint());
   }
 
   /**
-   * Get the path for a {@link Chunk Chunk's} {@link ConfigurationSection} from a {@link Block}.
+   * Start persisting all unsaved changes. Once they are written, journaled changes are discarded.
    *
-   * @param block the {@code Block}
-   * @return the path
+   * <p>The backend may spread the work across later {@link #sweep(long) sweeps}.
    */
-  @VisibleForTesting
-  static @NotNull String getChunkPath(@NotNull Block block) {
-    return getChunkPath(Coords.blockToChunk(block.getX()), Coords.blockToChunk(block.getZ()));
+  public void save() {
+    long checkpoint = journal == null ? -1 : journal.checkpoint();
+    truncateAfter(backend.save(), checkpoint);
   }
 
   /**
-   * Get the path for a {@link Chunk Chunk's} {@link ConfigurationSection}.
+   * Start reading stored data for a {@link Chunk} without waiting for it, so that it is ready or
+   * in progress when the chunk's blocks are loaded.
    *
-   * @param chunk the {@code Block}
-   * @return the path
+   * @param chunk the {@code Chunk}
    */
-  private static @NotNull String getChunkPath(@NotNull Chunk chunk) {
-    return getChunkPath(chunk.getX(), chunk.getZ());
+  public void prefetchChunkBlocks(@NotNull Chunk chunk) {
+    backend.prefetchChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
   }
 
   /**
-   * Get the path for a {@link Chunk Chunk's} {@link ConfigurationSection} from chunk coordinates.
+   * Record the stored data read most often so that it can be
+   * {@link #prefetchHotData() prefetched} on the next startup.
    *
-   * @param chunkX the chunk X coordinate
-   * @param chunkZ the chunk Z coordinate
-   * @return the path
+   * @param limit the maximum number of entries to record, or 0 to record none
    */
-  private static @NotNull String getChunkPath(int chunkX, int chunkZ) {
-    return chunkX + "_" + chunkZ;
+  public void saveHotData(int limit) {
+    backend.saveHotData(limit);
   }
 
   /**
-   * Get the path for a {@link Block Block's} {@link ConfigurationSection}.
+   * Start reading the data recorded by {@link #saveHotData(int)} without waiting for it.
    *
-   * @param block the {@code Block}
-   * @return the path
+   * @return the number of entries requested
    */
-  @VisibleForTesting
-  static @NotNull String getBlockPath(@NotNull Block block) {
-    return getBlockPath(block.getX(), block.getY(), block.getZ());
+  public int prefetchHotData() {
+    return backend.prefetchHotData();
   }
 
   /**
-   * Get the path for a {@link Block Block's} {@link ConfigurationSection} from coordinates.
+   * Perform periodic storage work, such as releasing cached data, within a time budget. Completes
+   * a {@link #save()} once the backend has captured all changes.
    *
-   * @param x the X coordinate
-   * @param y the Y coordinate
-   * @param z the Z coordinate
-   * @return the path
+   * @param budgetNanos the maximum time to spend in nanoseconds
    */
-  @VisibleForTesting
-  static @NotNull String getBlockPath(int x, int y, int z) {
-    return x + "_" + y + "_" + z;
+  public void sweep(long budgetNanos) {
+    backend.sweep(budgetNanos);
   }
 
   /**
-   * Container for ensuring that {@link RegionStorage} files are saved as necessary.
+   * Finish pending I/O and save all data, waiting up to 30 seconds.
+   *
+   * @see #shutdown(int, long, TimeUnit)
    */
-  class RegionStorageData {
+  public void shutdown() {
+    shutdown(Runtime.getRuntime().availableProcessors(), 30, TimeUnit.SECONDS);
+  }
 
-    private final @NotNull RegionStorage storage;
-    private boolean dirty = false;
+  /**
+   * Finish pending I/O and save all data.
+   *
+   * <p>Changes not persisted before the deadline are left to the journal to recover on the next
+   * startup. If there is no journal, they are persisted on the calling thread instead.
+   *
+   * @param threads the number of threads the backend may use to persist changes
+   * @param timeout the maximum time to spend writing data
+   * @param unit the unit of the timeout
+   */
+  public void shutdown(int threads, long timeout, @NotNull TimeUnit unit) {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    long checkpoint = journal == null ? -1 : journal.checkpoint();
 
-    /**
-     * Construct a new {@code RegionStorageData}.
-     *
-     * @param storage the {@link RegionStorage}
-     */
-    RegionStorageData(@NotNull RegionStorage storage) {
-      this.storage = storage;
-    }
+    CompletableFuture<Void> persisted =
+        truncateAfter(backend.flush(threads, deadline, journal != null), checkpoint);
 
-    /**
-     * Get the {@link RegionStorage} stored.
-     *
-     * @return the {@code RegionStorage}
-     */
-    public @NotNull RegionStorage getStorage() {
-      return storage;
+    try {
+      backend.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, e::getMessage);
     }
 
-    /**
-     * Check if the {@link RegionStorage} has unsaved changes.
-     *
-     * @return true if the {@code RegionStorage} needs to be saved
-     */
-    boolean isDirty() {
-      if (dirty) {
-        return true;
+    if (journal != null) {
+      if (!persisted.isDone() || persisted.isCompletedExceptionally()) {
+        logger.warning("Not all changes were persisted, retaining journal for next startup");
+      }
+      try {
+        journal.close();
+      } catch (IOException e) {
+        logger.log(Level.WARNING, e, e::getMessage);
       }
-      final String worldName = storage.getRegion().worldName();
-      dirty = storage.getRegion().anyChunkMatch((chunkX, chunkZ) ->
-          blockMap.get(worldName, chunkX, chunkZ).stream()
-              .anyMatch(EnchantableBlock::isDirty));
-      return dirty;
     }
+  }
 
-    /**
-     * Flag the {@link RegionStorage} as having unsaved changes.
-     */
-    public void setDirty() {
-      this.dirty = true;
+  /**
+   * Get statistics for the storage backend's cache.
+   *
+   * @return the cache statistics or {@code null} if the backend does not cache data
+   */
+  public @Nullable CacheStats getCacheStats() {
+    return backend.getCacheStats();
+  }
+
+  /**
+   * A {@link Chunk} whose stored blocks are being read. Loads are compared by identity so that a
+   * read for a chunk that was since unloaded and loaded again is discarded.
+   */
+  private static final class PendingChunkLoad {
+
+    private final @NotNull Chunk chunk;
+
+    private PendingChunkLoad(@NotNull Chunk chunk) {
+      this.chunk = chunk;
     }
 
+  }
+
+  /**
+   * A factory for a {@link BlockStorageBackend}.
+   */
+  @FunctionalInterface
+  interface BackendFactory {
+
     /**
-     * Mark the {@link RegionStorage} and all contained {@link EnchantableBlock EnchantableBlocks}
-     * as having been saved since last modification.
+     * Create a new {@link BlockStorageBackend}.
+     *
+     * @param loadedBlocks the loaded blocks to check for unsaved changes
+     * @param mainThread an {@link Executor} running tasks on the server thread
+     * @return the backend
      */
-    void clean() {
-      this.dirty = false;
-      final String worldName = storage.getRegion().worldName();
-      this.storage.getRegion().forEachChunk((chunkX, chunkZ) ->
-          blockMap.get(worldName, chunkX, chunkZ)
-              .forEach(enchantableBlock -> enchantableBlock.setDirty(false)));
-    }
+    @NotNull BlockStorageBackend create(
+        @NotNull BlockStorageBackend.LoadedBlocks loadedBlocks,
+        @NotNull Executor mainThread);
+
   }
 
 }
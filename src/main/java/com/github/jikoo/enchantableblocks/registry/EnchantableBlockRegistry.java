@@ -1,6 +1,7 @@
 package com.github.jikoo.enchantableblocks.registry;
 
 import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -15,6 +16,7 @@ public final class EnchantableBlockRegistry {
 
   private final @NotNull Logger logger;
   private final @NotNull Map<Material, EnchantableRegistration> materialRegistry;
+  private @Nullable Runnable changeListener;
 
   /**
    * Create a new {@code EnchantableBlockRegistry} for the given {@link Logger}.
@@ -47,6 +49,7 @@ public final class EnchantableBlockRegistry {
                     material.getKey()));
           }
         });
+    notifyChanged();
   }
 
   /**
@@ -64,6 +67,31 @@ public final class EnchantableBlockRegistry {
    */
   public void reload() {
     materialRegistry.values().stream().distinct().forEach(EnchantableRegistration::reload);
+    notifyChanged();
+  }
+
+  /**
+   * Get all registered {@link EnchantableRegistration EnchantableRegistrations}.
+   *
+   * @return the registrations
+   */
+  public @NotNull Collection<EnchantableRegistration> getRegistrations() {
+    return materialRegistry.values().stream().distinct().toList();
+  }
+
+  /**
+   * Set a listener to be notified when registrations or their configurations change.
+   *
+   * @param changeListener the listener or {@code null} to remove
+   */
+  void setChangeListener(@Nullable Runnable changeListener) {
+    this.changeListener = changeListener;
+  }
+
+  private void notifyChanged() {
+    if (changeListener != null) {
+      changeListener.run();
+    }
   }
 
 }
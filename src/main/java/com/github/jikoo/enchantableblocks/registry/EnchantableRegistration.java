@@ -2,6 +2,7 @@ package com.github.jikoo.enchantableblocks.registry;
 
 import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
 import com.github.jikoo.enchantableblocks.config.EnchantableBlockConfig;
+import com.github.jikoo.enchantableblocks.util.StoredItem;
 import java.util.Collection;
 import java.util.Locale;
 import org.bukkit.Material;
@@ -58,6 +59,24 @@ public abstract class EnchantableRegistration {
       @NotNull final ItemStack itemStack,
       @NotNull ConfigurationSection storage);
 
+  /**
+   * Construct a new {@link EnchantableBlock} instance from stored data.
+   *
+   * <p>Implementations that can defer deserializing the item should override this. By default,
+   * the item is deserialized immediately.
+   *
+   * @param block      the in-world {@link Block}
+   * @param storedItem the {@link StoredItem} representation of the object
+   * @param storage    the {@link ConfigurationSection} used to store any necessary data
+   * @return the {@code EnchantableBlock}
+   */
+  protected @NotNull EnchantableBlock newBlock(
+      @NotNull final Block block,
+      @NotNull final StoredItem storedItem,
+      @NotNull ConfigurationSection storage) {
+    return newBlock(block, storedItem.toItemStack(), storage);
+  }
+
   public @NotNull EnchantableBlockConfig getConfig() {
     if (config == null) {
       config = loadFullConfig(plugin.getConfig());
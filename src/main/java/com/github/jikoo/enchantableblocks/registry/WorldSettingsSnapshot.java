@@ -0,0 +1,84 @@
+package com.github.jikoo.enchantableblocks.registry;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An immutable record of which {@link EnchantableRegistration EnchantableRegistrations} are
+ * enabled in each {@link World}.
+ *
+ * <p>Resolving a setting walks the configuration's per-world overrides by world name. The snapshot
+ * resolves each registration once per world so that lookups are a map read by world ID. Worlds and
+ * registrations that were not compiled into the snapshot are resolved from configuration.
+ */
+final class WorldSettingsSnapshot {
+
+  static final @NotNull WorldSettingsSnapshot EMPTY =
+      new WorldSettingsSnapshot(Set.of(), Map.of());
+
+  private final @NotNull Set<EnchantableRegistration> registrations;
+  private final @NotNull Map<UUID, Set<EnchantableRegistration>> enabled;
+
+  private WorldSettingsSnapshot(
+      @NotNull Set<EnchantableRegistration> registrations,
+      @NotNull Map<UUID, Set<EnchantableRegistration>> enabled) {
+    this.registrations = registrations;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Resolve settings for every combination of {@link EnchantableRegistration} and {@link World}.
+   *
+   * @param registrations the registrations
+   * @param worlds the worlds
+   * @return the snapshot
+   */
+  static @NotNull WorldSettingsSnapshot compile(
+      @NotNull Collection<EnchantableRegistration> registrations,
+      @NotNull Collection<? extends World> worlds) {
+    Map<UUID, Set<EnchantableRegistration>> enabled = new HashMap<>();
+    for (World world : worlds) {
+      Set<EnchantableRegistration> worldEnabled = new HashSet<>();
+      for (EnchantableRegistration registration : registrations) {
+        if (registration.getConfig().enabled().get(world.getName())) {
+          worldEnabled.add(registration);
+        }
+      }
+      enabled.put(world.getUID(), Set.copyOf(worldEnabled));
+    }
+    return new WorldSettingsSnapshot(Set.copyOf(registrations), Map.copyOf(enabled));
+  }
+
+  /**
+   * Check if an {@link EnchantableRegistration} is enabled in a {@link World}.
+   *
+   * @param world the {@code World}
+   * @param registration the {@code EnchantableRegistration}
+   * @return true if the registration is enabled
+   */
+  boolean isEnabled(@NotNull World world, @NotNull EnchantableRegistration registration) {
+    Set<EnchantableRegistration> worldEnabled = enabled.get(world.getUID());
+    if (worldEnabled == null || !registrations.contains(registration)) {
+      return registration.getConfig().enabled().get(world.getName());
+    }
+    return worldEnabled.contains(registration);
+  }
+
+  /**
+   * Check if any {@link EnchantableRegistration} may be enabled in a {@link World}.
+   *
+   * @param world the {@code World}
+   * @return false if every registration is known to be disabled
+   */
+  boolean isAnyEnabled(@NotNull World world) {
+    Set<EnchantableRegistration> worldEnabled = enabled.get(world.getUID());
+    return worldEnabled == null || !worldEnabled.isEmpty();
+  }
+
+}
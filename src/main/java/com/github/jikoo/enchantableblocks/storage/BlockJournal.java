@@ -0,0 +1,449 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import com.github.jikoo.enchantableblocks.util.RegionFormat;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An append-only journal of block changes not yet persisted by a {@link BlockStorageBackend}.
+ *
+ * <p>Entries are appended from the server thread and written by a dedicated thread. Everything
+ * appended while a write is in progress is committed together by the next write, so the cost of
+ * syncing to disk is shared by all entries in a batch.
+ *
+ * <p>The journal is split into numbered segments. A {@link #checkpoint()} closes the current
+ * segment; once the backend has persisted all changes made before the checkpoint, segments up to
+ * it can be {@link #truncate(long) truncated}. Segments that remain on startup are
+ * {@link #replay(Consumer) replayed}.
+ */
+public class BlockJournal implements Closeable {
+
+  private static final String SEGMENT_PREFIX = "journal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final int MAGIC = 0x45424a4c; // "EBJL"
+  private static final byte VERSION = 1;
+  private static final int HEADER_BYTES = Integer.BYTES + 1;
+  private static final byte OP_PUT = 1;
+  private static final byte OP_REMOVE = 2;
+
+  private final @NotNull Path directory;
+  private final @NotNull Logger logger;
+  private final long firstSegment;
+  private final @NotNull Thread committer;
+  private final @NotNull ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private final @NotNull DataOutputStream pendingOut = new DataOutputStream(pending);
+  private final @NotNull ByteArrayOutputStream entryBuffer = new ByteArrayOutputStream();
+  private final @NotNull DataOutputStream entryOut = new DataOutputStream(entryBuffer);
+  private final @NotNull CRC32C checksum = new CRC32C();
+  // Segments ended by a checkpoint but not yet written, oldest first.
+  private final @NotNull List<byte[]> sealed = new ArrayList<>();
+  private long appendSegment;
+  private long truncateThrough = -1;
+  // Only accessed by the committer, or once it has finished.
+  private long segment;
+  private boolean closed = false;
+  private @Nullable FileChannel channel;
+
+  private BlockJournal(@NotNull Path directory, @NotNull Logger logger, long firstSegment) {
+    this.directory = directory;
+    this.logger = logger;
+    this.firstSegment = firstSegment;
+    this.segment = firstSegment;
+    this.appendSegment = firstSegment;
+    this.committer = Thread.ofVirtual().name("EnchantableBlocks-journal").unstarted(this::commit);
+  }
+
+  /**
+   * Open a journal, starting a new segment after any existing segments.
+   *
+   * @param directory the directory containing journal segments
+   * @param logger the {@link Logger} for reporting failures
+   * @return the journal
+   * @throws IOException if the directory cannot be read or the segment cannot be created
+   */
+  public static @NotNull BlockJournal open(@NotNull Path directory, @NotNull Logger logger)
+      throws IOException {
+    Files.createDirectories(directory);
+    List<Long> existing = listSegments(directory);
+    long next = existing.isEmpty() ? 0 : existing.getLast() + 1;
+
+    BlockJournal journal = new BlockJournal(directory, logger, next);
+    journal.channel = journal.openSegment(next);
+    journal.committer.start();
+    return journal;
+  }
+
+  private static @NotNull List<Long> listSegments(@NotNull Path directory) throws IOException {
+    List<Long> segments = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.forEach(file -> {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+          return;
+        }
+        try {
+          segments.add(Long.parseLong(
+              name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+        } catch (NumberFormatException ignored) {
+          // Not a segment.
+        }
+      });
+    }
+    segments.sort(null);
+    return segments;
+  }
+
+  private @NotNull Path getSegmentPath(long segment) {
+    return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+  }
+
+  private @NotNull FileChannel openSegment(long segment) throws IOException {
+    FileChannel opened = FileChannel.open(
+        getSegmentPath(segment),
+        StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(VERSION).flip();
+    while (header.hasRemaining()) {
+      opened.write(header);
+    }
+    return opened;
+  }
+
+  /**
+   * Replay entries from segments left over from a previous run, oldest first.
+   *
+   * <p>Replay stops at the first damaged entry in a segment, as would be left by a crash during a
+   * write. Replayed segments are not removed until {@link #truncate(long) truncated}.
+   *
+   * @param consumer the consumer of entries
+   * @return the last replayed segment, or {@code -1} if there was nothing to replay
+   * @throws IOException if a segment cannot be read
+   */
+  public long replay(@NotNull Consumer<@NotNull Entry> consumer) throws IOException {
+    long last = -1;
+    for (long replayed : listSegments(directory)) {
+      if (replayed >= firstSegment) {
+        break;
+      }
+      replaySegment(replayed, consumer);
+      last = replayed;
+    }
+    return last;
+  }
+
+  private void replaySegment(long segment, @NotNull Consumer<@NotNull Entry> consumer)
+      throws IOException {
+    Path path = getSegmentPath(segment);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)));
+    try {
+      if (in.readInt() != MAGIC || in.readByte() > VERSION) {
+        logger.warning(() -> "Ignoring unrecognized journal segment " + path);
+        return;
+      }
+    } catch (EOFException e) {
+      // Created but never written.
+      return;
+    }
+
+    CRC32C crc = new CRC32C();
+    while (in.available() > 0) {
+      try {
+        int length = in.readInt();
+        int expected = in.readInt();
+        if (length < 0 || length > in.available()) {
+          throw new EOFException();
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        crc.reset();
+        crc.update(data);
+        if ((int) crc.getValue() != expected) {
+          throw new EOFException();
+        }
+        readEntry(data, consumer);
+      } catch (EOFException e) {
+        logger.warning(() -> "Journal segment " + path + " ends with an incomplete entry");
+        return;
+      }
+    }
+  }
+
+  private void readEntry(byte @NotNull [] data, @NotNull Consumer<@NotNull Entry> consumer) {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    Entry entry;
+    try {
+      byte op = in.readByte();
+      String worldName = in.readUTF();
+      int x = in.readInt();
+      int y = in.readInt();
+      int z = in.readInt();
+      if (op == OP_REMOVE) {
+        entry = new Entry(worldName, x, y, z, null);
+      } else if (op == OP_PUT) {
+        ConfigurationSection section = new MemoryConfiguration();
+        RegionFormat.readSection(in, section);
+        entry = new Entry(worldName, x, y, z, section);
+      } else {
+        throw new IOException("Unknown journal operation " + op);
+      }
+    } catch (IOException e) {
+      // The entry was written intact, so the problem is its content. Skip it.
+      logger.log(Level.WARNING, e, () -> "Skipping unreadable journal entry");
+      return;
+    }
+    consumer.accept(entry);
+  }
+
+  /**
+   * Record the full data of a block.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @param data the block's data
+   */
+  public void put(
+      @NotNull String worldName,
+      int x,
+      int y,
+      int z,
+      @NotNull ConfigurationSection data) {
+    append(OP_PUT, worldName, x, y, z, data);
+  }
+
+  /**
+   * Record the removal of a block.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   */
+  public void remove(@NotNull String worldName, int x, int y, int z) {
+    append(OP_REMOVE, worldName, x, y, z, null);
+  }
+
+  private synchronized void append(
+      byte op,
+      @NotNull String worldName,
+      int x,
+      int y,
+      int z,
+      @Nullable ConfigurationSection data) {
+    if (closed) {
+      return;
+    }
+
+    entryBuffer.reset();
+    try {
+      entryOut.writeByte(op);
+      entryOut.writeUTF(worldName);
+      entryOut.writeInt(x);
+      entryOut.writeInt(y);
+      entryOut.writeInt(z);
+      if (data != null) {
+        RegionFormat.writeSection(entryOut, data);
+      }
+
+      byte[] entry = entryBuffer.toByteArray();
+      checksum.reset();
+      checksum.update(entry);
+      pendingOut.writeInt(entry.length);
+      pendingOut.writeInt((int) checksum.getValue());
+      pendingOut.write(entry);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Unable to journal change in " + worldName);
+      return;
+    }
+
+    notifyAll();
+  }
+
+  /**
+   * End the current segment. Entries appended after the checkpoint are written to a new segment.
+   *
+   * @return the checkpoint, usable with {@link #truncate(long)}
+   */
+  public synchronized long checkpoint() {
+    sealed.add(pending.toByteArray());
+    pending.reset();
+    notifyAll();
+    return appendSegment++;
+  }
+
+  /**
+   * Discard all segments up to and including a checkpoint. Only call this once all changes
+   * recorded before the checkpoint are persisted.
+   *
+   * @param checkpoint the checkpoint
+   */
+  public synchronized void truncate(long checkpoint) {
+    truncateThrough = Math.max(truncateThrough, checkpoint);
+    notifyAll();
+  }
+
+  private void commit() {
+    while (true) {
+      List<byte[]> segments;
+      byte[] batch;
+      long truncate;
+      boolean finished;
+      synchronized (this) {
+        while (pending.size() == 0 && sealed.isEmpty() && truncateThrough < 0 && !closed) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            // Treat as closing; remaining entries are still written below.
+            Thread.currentThread().interrupt();
+            closed = true;
+          }
+        }
+        segments = List.copyOf(sealed);
+        sealed.clear();
+        batch = pending.toByteArray();
+        pending.reset();
+        truncate = truncateThrough;
+        truncateThrough = -1;
+        finished = closed;
+      }
+
+      for (byte[] segmentEnd : segments) {
+        write(segmentEnd);
+        rotate();
+      }
+      write(batch);
+      if (truncate >= 0) {
+        deleteThrough(truncate);
+      }
+      if (finished) {
+        return;
+      }
+    }
+  }
+
+  private void write(byte @NotNull [] batch) {
+    if (batch.length == 0 || channel == null) {
+      return;
+    }
+
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(batch);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Unable to write journal, changes may be lost on crash");
+    }
+  }
+
+  private void rotate() {
+    closeChannel();
+    long next = ++segment;
+    try {
+      channel = openSegment(next);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Unable to open journal segment " + next);
+    }
+  }
+
+  private void deleteThrough(long checkpoint) {
+    try {
+      for (long existing : listSegments(directory)) {
+        // Never delete the open segment.
+        if (existing > checkpoint || existing >= segment) {
+          break;
+        }
+        Files.deleteIfExists(getSegmentPath(existing));
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Unable to truncate journal");
+    }
+  }
+
+  private void closeChannel() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, e::getMessage);
+    }
+    channel = null;
+  }
+
+  /**
+   * Write all appended entries and stop the journal. Entries appended afterwards are ignored.
+   *
+   * @throws IOException if interrupted while waiting for entries to be written
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+    }
+
+    try {
+      committer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted closing journal");
+    }
+
+    long size;
+    try {
+      size = channel == null ? -1 : channel.size();
+    } finally {
+      closeChannel();
+    }
+    // Don't leave empty segments behind.
+    if (size == HEADER_BYTES) {
+      Files.deleteIfExists(getSegmentPath(segment));
+    }
+  }
+
+  /**
+   * A journaled change to a block.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @param data the block's data, or {@code null} if the block was removed
+   */
+  public record Entry(
+      @NotNull String worldName,
+      int x,
+      int y,
+      int z,
+      @Nullable ConfigurationSection data) {}
+
+}
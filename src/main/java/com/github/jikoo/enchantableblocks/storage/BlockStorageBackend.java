@@ -0,0 +1,213 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
+import com.github.jikoo.enchantableblocks.util.CacheStats;
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Persistent storage for {@link EnchantableBlock} data.
+ *
+ * <p>Backends hand out live {@link ConfigurationSection ConfigurationSections} that blocks write
+ * their data into. Backends are responsible for noticing changes to those sections, which they do
+ * by checking {@link EnchantableBlock#isDirty()} for the blocks supplied by {@link LoadedBlocks}.
+ *
+ * <p>All methods are called from the server thread.
+ */
+public interface BlockStorageBackend {
+
+  /**
+   * Load data for all blocks stored in a chunk.
+   *
+   * <p>Keys are block coordinates {@link PackedCoords#packBlock(int, int, int) packed} into a
+   * {@code long}. The future may complete on another thread before being handed back to the server
+   * thread; implementations that can answer immediately should return a completed future.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return a future completed on the server thread with the stored data
+   */
+  @NotNull CompletableFuture<@NotNull Map<Long, ConfigurationSection>> loadChunk(
+      @NotNull String worldName,
+      int chunkX,
+      int chunkZ);
+
+  /**
+   * Load data for all blocks stored in a chunk on the calling thread, such as when a block is
+   * needed before an earlier {@link #loadChunk(String, int, int)} completes. A read in progress is
+   * waited for rather than repeated.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return the stored data by packed block coordinates
+   */
+  @NotNull Map<Long, ConfigurationSection> loadChunkNow(
+      @NotNull String worldName,
+      int chunkX,
+      int chunkZ);
+
+  /**
+   * Start reading stored data for a chunk without waiting for it, so that it is ready or in
+   * progress when {@link #loadChunk(String, int, int)} is called. By default, nothing is read
+   * ahead.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   */
+  default void prefetchChunk(@NotNull String worldName, int chunkX, int chunkZ) {}
+
+  /**
+   * Create storage for a new block, replacing any existing data at the location.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return the storage for the block
+   */
+  @NotNull ConfigurationSection putBlock(@NotNull String worldName, int x, int y, int z);
+
+  /**
+   * Replace stored data for a block that is not loaded, such as when recovering changes that were
+   * not persisted before a crash. The data is persisted by the next {@link #flush()}.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @param data the block's data
+   */
+  void restoreBlock(
+      @NotNull String worldName,
+      int x,
+      int y,
+      int z,
+      @NotNull ConfigurationSection data);
+
+  /**
+   * Remove stored data for a block.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return false if the block's storage could not be accessed
+   */
+  boolean removeBlock(@NotNull String worldName, int x, int y, int z);
+
+  /**
+   * Notify the backend that a chunk's blocks are being unloaded.
+   *
+   * <p>Unsaved changes for the chunk must be captured before this method returns.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   */
+  void unloadChunk(@NotNull String worldName, int chunkX, int chunkZ);
+
+  /**
+   * Persist all unsaved changes.
+   *
+   * @return a future completed once all changes made before the call are persisted, or completed
+   *     exceptionally if any could not be
+   */
+  @NotNull CompletableFuture<Void> flush();
+
+  /**
+   * Start persisting all unsaved changes as part of a periodic save. The work may be spread across
+   * later calls to {@link #sweep(long)}. By default, this is equivalent to {@link #flush()}.
+   *
+   * @return a future completed once all changes made before the call are persisted, or completed
+   *     exceptionally if any could not be
+   */
+  default @NotNull CompletableFuture<Void> save() {
+    return flush();
+  }
+
+  /**
+   * Perform periodic work, such as releasing cached data, within a time budget. By default, there
+   * is nothing to do.
+   *
+   * @param budgetNanos the maximum time to spend in nanoseconds
+   */
+  default void sweep(long budgetNanos) {}
+
+  /**
+   * Persist all unsaved changes ahead of {@link #close()}, starting no further work after a
+   * deadline. By default, this is equivalent to {@link #flush()}.
+   *
+   * <p>If changes left unpersisted at the deadline can be recovered elsewhere, such as from a
+   * journal, the backend may discard them rather than persisting them on close.
+   *
+   * @param threads the number of threads that may be used to persist changes
+   * @param deadline the {@link System#nanoTime() time} after which no further work is started
+   * @param recoverable whether unpersisted changes can be recovered on the next startup
+   * @return a future completed once all changes made before the call are persisted, or completed
+   *     exceptionally if any could not be
+   */
+  default @NotNull CompletableFuture<Void> flush(int threads, long deadline, boolean recoverable) {
+    return flush();
+  }
+
+  /**
+   * Record the data read most often so that it can be {@link #prefetchHotData() prefetched} on
+   * the next startup. By default, nothing is recorded.
+   *
+   * @param limit the maximum number of entries to record, or 0 to record none
+   */
+  default void saveHotData(int limit) {}
+
+  /**
+   * Start reading the data recorded by {@link #saveHotData(int)} without waiting for it.
+   *
+   * @return the number of entries requested
+   */
+  default int prefetchHotData() {
+    return 0;
+  }
+
+  /**
+   * Get statistics for the backend's cache.
+   *
+   * @return the cache statistics or {@code null} if the backend does not cache data
+   */
+  default @Nullable CacheStats getCacheStats() {
+    return null;
+  }
+
+  /**
+   * Persist all unsaved changes and release resources. The backend may not be used afterwards.
+   *
+   * @throws IOException if there is an issue releasing resources
+   */
+  void close() throws IOException;
+
+  /**
+   * A view of loaded {@link EnchantableBlock EnchantableBlocks}, used to find unsaved changes.
+   */
+  @FunctionalInterface
+  interface LoadedBlocks {
+
+    /**
+     * Get all loaded blocks in a chunk.
+     *
+     * @param worldName the name of the world
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the loaded blocks
+     */
+    @NotNull Collection<EnchantableBlock> get(@NotNull String worldName, int chunkX, int chunkZ);
+
+  }
+
+}
@@ -0,0 +1,1088 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
+import com.github.jikoo.enchantableblocks.util.Cache;
+import com.github.jikoo.enchantableblocks.util.CacheStats;
+import com.github.jikoo.enchantableblocks.util.ChunkIndex;
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
+import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionFileIndex;
+import com.github.jikoo.enchantableblocks.util.RegionIoExecutor;
+import com.github.jikoo.enchantableblocks.util.RegionStorage;
+import com.github.jikoo.enchantableblocks.util.StoredItem;
+import com.github.jikoo.planarwrappers.util.Coords;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+/**
+ * The default {@link BlockStorageBackend}, storing data in a file per region.
+ *
+ * <p>Regions are held in a {@link Cache} while their chunks are in use. Changes are encoded on the
+ * server thread as cached regions are checked and written by a {@link RegionIoExecutor}. A
+ * {@link ChunkIndex} per world records which chunks have stored data so that regions need not be
+ * read for chunks without any.
+ */
+public class RegionFileStorageBackend implements BlockStorageBackend {
+
+  private static final String CHUNK_INDEX_FILE = "chunks.idx";
+  private static final String HOT_REGIONS_FILE = "hot_regions.dat";
+  private static final long CLOSE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final @NotNull Logger logger;
+  private final @NotNull Path dataDir;
+  private final @NotNull RegionIoExecutor io;
+  private final @NotNull LoadedBlocks loadedBlocks;
+  private final @NotNull RegionLoadFunction loadFunction;
+  private final @NotNull Map<String, ChunkIndex> chunkIndices = new ConcurrentHashMap<>();
+  private final @NotNull Set<String> unindexedWorlds = ConcurrentHashMap.newKeySet();
+  private final @NotNull Map<String, PendingChunkIndex> pendingIndices = new ConcurrentHashMap<>();
+  private final @NotNull Cache<Region, RegionStorageData> saveFileCache;
+  private final boolean compressRegions;
+  // A save waiting for sweeps to check all regions.
+  private @Nullable CompletableFuture<Void> pendingSave;
+  private boolean ioShutdown = false;
+
+  /**
+   * Construct a new {@code RegionFileStorageBackend}.
+   *
+   * <p>The backend takes ownership of the {@link RegionIoExecutor} and shuts it down when closed.
+   * The cache is completed with the backend's loading and saving functions.
+   *
+   * @param dataDir the directory containing region data
+   * @param logger the {@link Logger} for reporting failures
+   * @param io the {@code RegionIoExecutor} performing region I/O
+   * @param mainThread an {@link Executor} running tasks on the server thread
+   * @param loadedBlocks the loaded blocks to check for unsaved changes
+   * @param cacheBuilder the configured builder for the region cache
+   * @param compressRegions whether region data is compressed when written
+   */
+  public RegionFileStorageBackend(
+      @NotNull Path dataDir,
+      @NotNull Logger logger,
+      @NotNull RegionIoExecutor io,
+      @NotNull Executor mainThread,
+      @NotNull LoadedBlocks loadedBlocks,
+      @NotNull Cache.CacheBuilder<Region, RegionStorageData> cacheBuilder,
+      boolean compressRegions) {
+    this.logger = logger;
+    this.dataDir = dataDir;
+    this.io = io;
+    this.loadedBlocks = loadedBlocks;
+    this.compressRegions = compressRegions;
+    RegionFileIndex regionFiles = new RegionFileIndex(dataDir, logger);
+    this.loadFunction = new RegionLoadFunction(this, dataDir, logger, regionFiles);
+    this.saveFileCache = cacheBuilder
+        .withInUseCheck(new RegionInUseCheck(io, logger, regionFiles))
+        // Synchronous loads still go through the executor to stay ordered with pending writes.
+        // They are joined on the calling thread, which is the main thread when blocks are created
+        // or destroyed. Regions stay cached while their chunks are loaded, so this only waits for
+        // a read when a block is placed in a chunk whose region was never loaded.
+        .withLoadFunction((region, create) ->
+            io.submit(region, () -> loadFunction.apply(region, create)).join())
+        // Asynchronous loads are cached on the main thread so that in use checks stay there.
+        // Synchronous requests made during the load wait for the read and cache it themselves.
+        .withAsyncLoadFunction((region, create) ->
+            io.submit(region, () -> loadFunction.apply(region, create)))
+        .withAsyncLoadExecutor(mainThread)
+        .build();
+  }
+
+  @Override
+  public @NotNull CompletableFuture<@NotNull Map<Long, ConfigurationSection>> loadChunk(
+      @NotNull String worldName,
+      int chunkX,
+      int chunkZ) {
+    Region region = getRegion(worldName, chunkX, chunkZ);
+    boolean cached = saveFileCache.containsKey(region);
+
+    if (!cached && isKnownEmpty(worldName, chunkX, chunkZ)) {
+      return CompletableFuture.completedFuture(Map.of());
+    }
+
+    if (!io.isAsync() || cached) {
+      return CompletableFuture.completedFuture(
+          getChunkBlocks(worldName, chunkX, chunkZ, saveFileCache.get(region, false)));
+    }
+
+    // Concurrent requests for the same region share a single load.
+    CompletableFuture<@Nullable RegionStorageData> load = saveFileCache.getAsync(region, false);
+    load.whenComplete((data, throwable) -> {
+      if (throwable != null) {
+        logger.log(Level.WARNING, throwable, throwable::getMessage);
+      }
+    });
+    // Loads complete on the main thread.
+    return load.thenApply(saveData -> getChunkBlocks(worldName, chunkX, chunkZ, saveData));
+  }
+
+  @Override
+  public @NotNull Map<Long, ConfigurationSection> loadChunkNow(
+      @NotNull String worldName,
+      int chunkX,
+      int chunkZ) {
+    Region region = getRegion(worldName, chunkX, chunkZ);
+    if (!saveFileCache.containsKey(region) && isKnownEmpty(worldName, chunkX, chunkZ)) {
+      return Map.of();
+    }
+    // Joins a read in progress.
+    return getChunkBlocks(worldName, chunkX, chunkZ, saveFileCache.get(region, false));
+  }
+
+  @Override
+  public void prefetchChunk(@NotNull String worldName, int chunkX, int chunkZ) {
+    if (!io.isAsync()) {
+      return;
+    }
+
+    Region region = getRegion(worldName, chunkX, chunkZ);
+    if (!saveFileCache.containsKey(region) && !isKnownEmpty(worldName, chunkX, chunkZ)) {
+      // Failures are reported when the chunk's blocks are loaded.
+      saveFileCache.getAsync(region, false);
+    }
+  }
+
+  private static @NotNull Region getRegion(@NotNull String worldName, int chunkX, int chunkZ) {
+    return new Region(worldName, Coords.chunkToRegion(chunkX), Coords.chunkToRegion(chunkZ));
+  }
+
+  /**
+   * Check if a chunk is known to have no stored data.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return true if the chunk's region need not be read
+   */
+  private boolean isKnownEmpty(@NotNull String worldName, int chunkX, int chunkZ) {
+    ChunkIndex index = getChunkIndex(worldName);
+    return index != null && !index.contains(chunkX, chunkZ);
+  }
+
+  /**
+   * Get the stored block data for a chunk from its {@link Region Region's} data.
+   *
+   * <p>Entries that cannot represent a block are removed.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @param saveData the region data or {@code null} if none exists
+   * @return the stored data by packed block coordinates
+   */
+  private @NotNull Map<Long, ConfigurationSection> getChunkBlocks(
+      @NotNull String worldName,
+      int chunkX,
+      int chunkZ,
+      @Nullable RegionStorageData saveData) {
+    if (saveData == null) {
+      return Map.of();
+    }
+
+    ConfigurationSection chunkStorage =
+        saveData.getStorage().getConfigurationSection(getChunkPath(chunkX, chunkZ));
+
+    if (chunkStorage == null) {
+      return Map.of();
+    }
+
+    Map<Long, ConfigurationSection> blocks = new HashMap<>();
+    int[] coords = new int[3];
+    for (String xyz : chunkStorage.getKeys(false)) {
+      ConfigurationSection blockStorage = chunkStorage.getConfigurationSection(xyz);
+      if (blockStorage == null) {
+        Object value = chunkStorage.get(xyz);
+        chunkStorage.set(xyz, null);
+        saveData.setDirty(chunkX, chunkZ);
+        this.logger.warning(() -> String.format("Invalid ConfigurationSection %s: %s", xyz, value));
+        continue;
+      }
+
+      if (!PackedCoords.parseBlockKey(xyz, coords)) {
+        ItemStack itemStack = StoredItem.getItemStack(blockStorage, "itemstack");
+        chunkStorage.set(xyz, null);
+        saveData.setDirty(chunkX, chunkZ);
+        this.logger.warning(() -> String.format(
+            "Unparseable coordinates in %s: %s representing %s",
+            worldName,
+            xyz,
+            itemStack));
+        continue;
+      }
+
+      blocks.put(PackedCoords.packBlock(coords[0], coords[1], coords[2]), blockStorage);
+    }
+
+    return blocks;
+  }
+
+  @Override
+  public @NotNull ConfigurationSection putBlock(@NotNull String worldName, int x, int y, int z) {
+    int chunkX = Coords.blockToChunk(x);
+    int chunkZ = Coords.blockToChunk(z);
+    var chunkStorage = this.getChunkStorage(worldName, chunkX, chunkZ);
+    var blockPath = getBlockPath(x, y, z);
+    setChunkPopulated(worldName, chunkX, chunkZ, true);
+
+    if (chunkStorage.isConfigurationSection(blockPath)) {
+      return Objects.requireNonNull(chunkStorage.getConfigurationSection(blockPath));
+    }
+
+    return chunkStorage.createSection(blockPath);
+  }
+
+  /**
+   * Helper method for getting a non-null {@link ConfigurationSection} for a chunk, creating as
+   * needed. The chunk's encoded data is invalidated.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return the {@code ConfigurationSection}
+   */
+  private @NotNull ConfigurationSection getChunkStorage(
+      @NotNull String worldName,
+      int chunkX,
+      int chunkZ) {
+    var region = getRegion(worldName, chunkX, chunkZ);
+    var storagePair = saveFileCache.get(region);
+    var regionStorage = Objects.requireNonNull(storagePair).getStorage();
+    regionStorage.invalidateChunk(chunkX, chunkZ);
+    var chunkPath = getChunkPath(chunkX, chunkZ);
+
+    if (regionStorage.isConfigurationSection(chunkPath)) {
+      return Objects.requireNonNull(regionStorage.getConfigurationSection(chunkPath));
+    }
+
+    return regionStorage.createSection(chunkPath);
+  }
+
+  @Override
+  public void restoreBlock(
+      @NotNull String worldName,
+      int x,
+      int y,
+      int z,
+      @NotNull ConfigurationSection data) {
+    ConfigurationSection storage = putBlock(worldName, x, y, z);
+    for (String key : storage.getKeys(false)) {
+      storage.set(key, null);
+    }
+    copySection(data, storage);
+    Region region = new Region(worldName, Coords.blockToRegion(x), Coords.blockToRegion(z));
+    Objects.requireNonNull(saveFileCache.get(region, false))
+        .setDirty(Coords.blockToChunk(x), Coords.blockToChunk(z));
+  }
+
+  /**
+   * Copy the contents of one {@link ConfigurationSection} into another.
+   *
+   * @param from the source
+   * @param to the destination
+   */
+  private static void copySection(
+      @NotNull ConfigurationSection from,
+      @NotNull ConfigurationSection to) {
+    for (String key : from.getKeys(false)) {
+      ConfigurationSection child = from.getConfigurationSection(key);
+      if (child != null) {
+        copySection(child, to.createSection(key));
+      } else {
+        to.set(key, from.get(key));
+      }
+    }
+  }
+
+  @Override
+  public boolean removeBlock(@NotNull String worldName, int x, int y, int z) {
+    var region = new Region(worldName, Coords.blockToRegion(x), Coords.blockToRegion(z));
+    var saveData = this.saveFileCache.get(region);
+
+    if (saveData == null) {
+      return false;
+    }
+
+    int chunkX = Coords.blockToChunk(x);
+    int chunkZ = Coords.blockToChunk(z);
+    var chunkPath = getChunkPath(chunkX, chunkZ);
+
+    if (!saveData.getStorage().isConfigurationSection(chunkPath)) {
+      saveData.getStorage().set(chunkPath, null);
+      saveData.setDirty(chunkX, chunkZ);
+      setChunkPopulated(worldName, chunkX, chunkZ, false);
+      return true;
+    }
+
+    var chunkSection = saveData.getStorage().getConfigurationSection(chunkPath);
+
+    if (chunkSection != null) {
+      // Delete block data.
+      chunkSection.set(getBlockPath(x, y, z), null);
+
+      // If chunk section is now empty, also delete chunk section.
+      if (chunkSection.getKeys(false).isEmpty()) {
+        saveData.getStorage().set(chunkPath, null);
+        setChunkPopulated(worldName, chunkX, chunkZ, false);
+      }
+    }
+
+    saveData.setDirty(chunkX, chunkZ);
+    return true;
+  }
+
+  @Override
+  public void unloadChunk(@NotNull String worldName, int chunkX, int chunkZ) {
+    // Regions are saved as they expire from the cache.
+  }
+
+  /**
+   * Get the {@link ChunkIndex} for a world, opening it as necessary.
+   *
+   * <p>If the index must be populated from region data, it is rebuilt off the main thread and is
+   * unavailable until the rebuild completes.
+   *
+   * @param worldName the name of the world
+   * @return the index or {@code null} if it is unavailable
+   */
+  private @Nullable ChunkIndex getChunkIndex(@NotNull String worldName) {
+    ChunkIndex index = chunkIndices.get(worldName);
+    if (index != null || unindexedWorlds.contains(worldName)) {
+      return index;
+    }
+
+    PendingChunkIndex pending = new PendingChunkIndex();
+    if (pendingIndices.putIfAbsent(worldName, pending) != null) {
+      // Still opening or rebuilding, but it may have finished since it was checked.
+      return chunkIndices.get(worldName);
+    }
+
+    index = chunkIndices.get(worldName);
+    if (index != null) {
+      // Another thread finished opening the index after it was checked.
+      publishChunkIndex(worldName, pending, index);
+      return index;
+    }
+
+    ChunkIndex created;
+    try {
+      created = ChunkIndex.open(dataDir.resolve(Path.of(worldName, CHUNK_INDEX_FILE)));
+    } catch (IOException e) {
+      discardChunkIndex(worldName, pending, e);
+      return null;
+    }
+
+    if (!created.isRebuildRequired()) {
+      publishChunkIndex(worldName, pending, created);
+      return created;
+    }
+
+    io.submitUnordered(() -> rebuildChunkIndex(worldName, created))
+        .whenComplete((ignored, throwable) -> {
+          if (throwable == null) {
+            publishChunkIndex(worldName, pending, created);
+          } else {
+            discardChunkIndex(worldName, pending, throwable);
+          }
+        });
+    // A synchronous rebuild will already have completed.
+    return chunkIndices.get(worldName);
+  }
+
+  /**
+   * Make a {@link ChunkIndex} available once changes made while it was pending are applied.
+   *
+   * @param worldName the name of the world
+   * @param pending the {@link PendingChunkIndex} holding changes made in the meantime
+   * @param index the {@code ChunkIndex}
+   */
+  private void publishChunkIndex(
+      @NotNull String worldName,
+      @NotNull PendingChunkIndex pending,
+      @NotNull ChunkIndex index) {
+    pending.complete(index);
+    chunkIndices.put(worldName, index);
+    pendingIndices.remove(worldName, pending);
+  }
+
+  /**
+   * Stop using a {@link ChunkIndex} for a world that could not be opened or rebuilt.
+   *
+   * @param worldName the name of the world
+   * @param pending the {@link PendingChunkIndex} holding changes made in the meantime
+   * @param cause the reason the index is unavailable
+   */
+  private void discardChunkIndex(
+      @NotNull String worldName,
+      @NotNull PendingChunkIndex pending,
+      @NotNull Throwable cause) {
+    // The index file is left flagged as inconsistent so that it is rebuilt on the next startup.
+    unindexedWorlds.add(worldName);
+    pending.discard();
+    pendingIndices.remove(worldName, pending);
+    logger.log(Level.WARNING, cause, () -> "Unable to open chunk index for " + worldName);
+  }
+
+  /**
+   * Populate a {@link ChunkIndex} from all region data stored for a world.
+   *
+   * @param worldName the name of the world
+   * @param index the {@code ChunkIndex}
+   * @return {@code null}
+   * @throws IOException if there is an issue listing stored data
+   */
+  private @Nullable Void rebuildChunkIndex(@NotNull String worldName, @NotNull ChunkIndex index)
+      throws IOException {
+    Path worldDir = dataDir.resolve(worldName);
+    if (!Files.isDirectory(worldDir)) {
+      return null;
+    }
+
+    long startTime = System.nanoTime();
+    Set<Region> regions = new HashSet<>();
+    int[] coords = new int[2];
+    try (Stream<Path> files = Files.list(worldDir)) {
+      files.forEach(file -> {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(".dat") && !name.endsWith(".yml")) {
+          return;
+        }
+        if (PackedCoords.parseKey(name.substring(0, name.length() - 4), coords)) {
+          regions.add(new Region(worldName, coords[0], coords[1]));
+        }
+      });
+    }
+
+    // Region files are replaced atomically, so they can be read alongside queued writes. Changes
+    // that are not yet written are applied once the index is published.
+    for (Region region : regions) {
+      RegionStorage storage = new RegionStorage(dataDir, region);
+      try {
+        storage.load();
+      } catch (InvalidConfigurationException e) {
+        logger.log(Level.WARNING, e, e::getMessage);
+      }
+      indexRegion(index, storage);
+    }
+
+    double elapsed = (System.nanoTime() - startTime) / 1_000_000_000D;
+    logger.info(() -> String.format(
+        "Indexed %d regions in %s in %s seconds",
+        regions.size(),
+        worldName,
+        elapsed));
+    return null;
+  }
+
+  /**
+   * Update the {@link ChunkIndex} to match freshly loaded region data.
+   *
+   * @param storage the loaded {@link RegionStorage}
+   */
+  void indexRegion(@NotNull RegionStorage storage) {
+    updateChunkIndex(storage.getRegion().worldName(), index -> indexRegion(index, storage));
+  }
+
+  private static void indexRegion(@NotNull ChunkIndex index, @NotNull RegionStorage storage) {
+    storage.getRegion().forEachChunk((chunkX, chunkZ) -> index.set(
+        chunkX,
+        chunkZ,
+        storage.isConfigurationSection(getChunkPath(chunkX, chunkZ))));
+  }
+
+  private void setChunkPopulated(@NotNull String worldName, int chunkX, int chunkZ, boolean value) {
+    updateChunkIndex(worldName, index -> index.set(chunkX, chunkZ, value));
+  }
+
+  /**
+   * Apply a change to the {@link ChunkIndex} for a world. If the index is still being rebuilt,
+   * the change is applied once it is ready.
+   *
+   * @param worldName the name of the world
+   * @param update the change
+   */
+  private void updateChunkIndex(@NotNull String worldName, @NotNull Consumer<ChunkIndex> update) {
+    ChunkIndex index = getChunkIndex(worldName);
+    if (index == null) {
+      PendingChunkIndex pending = pendingIndices.get(worldName);
+      if (pending != null) {
+        pending.update(update);
+        return;
+      }
+      // The index may have been published since it was checked.
+      index = chunkIndices.get(worldName);
+    }
+    if (index != null) {
+      update.accept(index);
+    }
+  }
+
+  /**
+   * Check if region data is compressed when written.
+   *
+   * @return true if region data is compressed
+   */
+  boolean isCompressRegions() {
+    return compressRegions;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Every cached region is checked and encoded on the calling thread.
+   */
+  @Override
+  public @NotNull CompletableFuture<Void> flush() {
+    saveFileCache.expireAll();
+    return io.flush();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Cached regions are checked and encoded by later sweeps so that the work is spread across
+   * ticks. Regions are all checked after the call, so an earlier pending save is covered too.
+   */
+  @Override
+  public @NotNull CompletableFuture<Void> save() {
+    saveFileCache.expireAllLater();
+    if (pendingSave == null) {
+      pendingSave = new CompletableFuture<>();
+    }
+    return pendingSave;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Cached regions are expired and evicted if the cache was built for sweeping. Completes a
+   * {@link #save()} once all regions have been checked.
+   */
+  @Override
+  public void sweep(long budgetNanos) {
+    if (saveFileCache.sweep(budgetNanos) && pendingSave != null) {
+      // All regions have been checked and their writes submitted.
+      CompletableFuture<Void> save = pendingSave;
+      pendingSave = null;
+      io.flush().whenComplete((ignored, throwable) -> {
+        if (throwable == null) {
+          save.complete(null);
+        } else {
+          save.completeExceptionally(throwable);
+        }
+      });
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Queued region I/O is finished first. Regions with unsaved changes are then written in
+   * parallel. If unwritten regions are recoverable, they are discarded rather than written on
+   * close. After this call, all region I/O is performed on the calling thread.
+   */
+  @Override
+  public @NotNull CompletableFuture<Void> flush(int threads, long deadline, boolean recoverable) {
+    // Queued writes must land before flushed data so that they cannot overwrite it.
+    shutdownIo(deadline);
+    FlushReport report = flushRegions(threads, deadline);
+    logger.info(() -> String.format(
+        "Flushed %d regions (%d deleted) in %.2fms, skipped %d unchanged, %d failed, "
+            + "%d not written before the deadline",
+        report.written(),
+        report.deleted(),
+        report.elapsedMillis(),
+        report.clean(),
+        report.failed(),
+        report.timedOut()));
+
+    if (report.isComplete() || recoverable) {
+      // Nothing remains to be written here; skip checking every region again.
+      saveFileCache.invalidateAll();
+    }
+
+    if (report.isComplete()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.failedFuture(new IOException(String.format(
+        "%d regions failed and %d were not written before the deadline",
+        report.failed(),
+        report.timedOut())));
+  }
+
+  /**
+   * Finish queued region I/O and switch to performing it on the calling thread.
+   *
+   * @param deadline the time to stop waiting in nanoseconds
+   */
+  private void shutdownIo(long deadline) {
+    ioShutdown = true;
+    try {
+      if (!io.shutdown(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+        logger.warning("Timed out waiting for region I/O to complete");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(Level.WARNING, "Interrupted waiting for region I/O to complete", e);
+    }
+  }
+
+  /**
+   * Write all cached regions with unsaved changes in parallel.
+   *
+   * <p>Changes are captured on the calling thread, which then waits while regions are encoded and
+   * written. Regions without changes are skipped without examining their contents. Regions that
+   * fail or are not started before the deadline are flagged as having unsaved changes.
+   *
+   * @param threads the number of threads used to write regions
+   * @param deadline the time after which no more regions are started in nanoseconds
+   * @return the {@link FlushReport}
+   */
+  @VisibleForTesting
+  @NotNull FlushReport flushRegions(int threads, long deadline) {
+    long start = System.nanoTime();
+    List<RegionStorageData> dirty = new ArrayList<>();
+    int[] clean = new int[1];
+    saveFileCache.forEach((region, data) -> {
+      if (data == null) {
+        return;
+      }
+      if (!data.isDirty()) {
+        ++clean[0];
+        return;
+      }
+      data.invalidateChanged();
+      data.clean();
+      dirty.add(data);
+    });
+
+    AtomicInteger written = new AtomicInteger();
+    AtomicInteger deleted = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    AtomicInteger timedOut = new AtomicInteger();
+    // Closing the executor waits for all regions to be handled.
+    try (ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, threads),
+        Thread.ofVirtual().name("EnchantableBlocks-flush-", 0).factory())) {
+      for (RegionStorageData data : dirty) {
+        executor.execute(() -> {
+          if (System.nanoTime() - deadline > 0) {
+            data.setDirty();
+            timedOut.incrementAndGet();
+            return;
+          }
+          try {
+            (flushRegion(data) ? deleted : written).incrementAndGet();
+          } catch (IOException | RuntimeException e) {
+            data.setDirty();
+            failed.incrementAndGet();
+            logger.log(Level.WARNING, e, e::getMessage);
+          }
+        });
+      }
+    }
+
+    return new FlushReport(
+        clean[0],
+        written.get(),
+        deleted.get(),
+        failed.get(),
+        timedOut.get(),
+        System.nanoTime() - start);
+  }
+
+  /**
+   * Encode and write a region whose changes have already been captured, or delete it if it is
+   * empty.
+   *
+   * @param data the {@link RegionStorageData}
+   * @return true if the region was deleted
+   * @throws IOException if the region cannot be encoded
+   */
+  private boolean flushRegion(@NotNull RegionStorageData data) throws IOException {
+    RegionStorage storage = data.getStorage();
+    if (data.isEmpty()) {
+      storage.discardEncoded();
+      io.submit(storage.getRegion(), () -> {
+        storage.deleteFiles();
+        return null;
+      }).join();
+      return true;
+    }
+    io.submitWrite(storage, storage.encodeChanged()).join();
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Regions are recorded in order of how often they were read.
+   */
+  @Override
+  public void saveHotData(int limit) {
+    Path file = dataDir.resolve(HOT_REGIONS_FILE);
+    try {
+      if (limit <= 0) {
+        Files.deleteIfExists(file);
+        return;
+      }
+
+      List<Region> regions = saveFileCache.getMostAccessed(limit);
+      Files.createDirectories(dataDir);
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(file)))) {
+        out.writeInt(regions.size());
+        for (Region region : regions) {
+          out.writeUTF(region.worldName());
+          out.writeInt(region.x());
+          out.writeInt(region.z());
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to record frequently used regions", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Regions are only read ahead if region I/O is performed off the calling thread.
+   */
+  @Override
+  public int prefetchHotData() {
+    Path file = dataDir.resolve(HOT_REGIONS_FILE);
+    // Prefetching on the main thread would only delay startup.
+    if (!io.isAsync() || !Files.exists(file)) {
+      return 0;
+    }
+
+    List<Region> regions = new ArrayList<>();
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      int count = in.readInt();
+      for (int i = 0; i < count; ++i) {
+        regions.add(new Region(in.readUTF(), in.readInt(), in.readInt()));
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Unable to read frequently used regions", e);
+      // Prefetch whatever was read; the list is only a hint.
+    }
+
+    for (Region region : regions) {
+      // Failures are reported when the region's chunks are loaded.
+      saveFileCache.getAsync(region, false);
+    }
+    return regions.size();
+  }
+
+  @Override
+  public @NotNull CacheStats getCacheStats() {
+    return saveFileCache.getStats();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Queued region I/O is finished first unless it was already finished by
+   * {@link #flush(int, long, boolean)}.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!ioShutdown) {
+      shutdownIo(System.nanoTime() + CLOSE_TIMEOUT_NANOS);
+    }
+    saveFileCache.expireAll();
+
+    IOException failure = null;
+    for (ChunkIndex index : chunkIndices.values()) {
+      try {
+        index.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    chunkIndices.clear();
+
+    RegionIoExecutor.WriteStats writeStats = io.getWriteStats();
+    logger.info(() -> String.format(
+        "Wrote %d regions (%d writes coalesced), average %.2fms, max %.2fms",
+        writeStats.writes(),
+        writeStats.coalesced(),
+        writeStats.averageMillis(),
+        writeStats.maxMillis()));
+    CacheStats cacheStats = getCacheStats();
+    logger.info(() -> String.format(
+        "Region cache: %d regions, %.1f%% hit rate (%d hits, %d misses), "
+            + "%d loads (%d failed) averaging %.2fms, %d evictions, "
+            + "%d in use checks averaging %.2fms",
+        cacheStats.size(),
+        cacheStats.hitRate() * 100,
+        cacheStats.hits(),
+        cacheStats.misses(),
+        cacheStats.loads(),
+        cacheStats.loadFailures(),
+        cacheStats.averageLoadMillis(),
+        cacheStats.evictions(),
+        cacheStats.inUseChecks(),
+        cacheStats.averageInUseCheckMillis()));
+
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Get the path for a chunk's {@link ConfigurationSection} from chunk coordinates.
+   *
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return the path
+   */
+  private static @NotNull String getChunkPath(int chunkX, int chunkZ) {
+    return PackedCoords.chunkKey(chunkX, chunkZ);
+  }
+
+  /**
+   * Get the path for a block's {@link ConfigurationSection} from coordinates.
+   *
+   * @param x the X coordinate
+   * @param y the Y coordinate
+   * @param z the Z coordinate
+   * @return the path
+   */
+  private static @NotNull String getBlockPath(int x, int y, int z) {
+    return PackedCoords.blockKey(x, y, z);
+  }
+
+  /**
+   * The outcome of writing all regions with unsaved changes.
+   *
+   * @param clean the number of regions skipped because they had no changes
+   * @param written the number of regions written
+   * @param deleted the number of regions deleted because they were empty
+   * @param failed the number of regions that could not be written
+   * @param timedOut the number of regions not started before the deadline
+   * @param elapsedNanos the total time spent
+   */
+  record FlushReport(
+      int clean,
+      int written,
+      int deleted,
+      int failed,
+      int timedOut,
+      long elapsedNanos) {
+
+    /**
+     * Check if all regions with changes were persisted.
+     *
+     * @return true if no regions failed or were skipped
+     */
+    boolean isComplete() {
+      return failed == 0 && timedOut == 0;
+    }
+
+    /**
+     * Get the total time spent.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    double elapsedMillis() {
+      return elapsedNanos / 1_000_000D;
+    }
+
+  }
+
+  /**
+   * Container for ensuring that {@link RegionStorage} files are saved as necessary.
+   */
+  public final class RegionStorageData {
+
+    private final @NotNull RegionStorage storage;
+    private volatile boolean dirty = false;
+
+    /**
+     * Construct a new {@code RegionStorageData}.
+     *
+     * @param storage the {@link RegionStorage}
+     */
+    RegionStorageData(@NotNull RegionStorage storage) {
+      this.storage = storage;
+    }
+
+    /**
+     * Get the {@link RegionStorage} stored.
+     *
+     * @return the {@code RegionStorage}
+     */
+    public @NotNull RegionStorage getStorage() {
+      return storage;
+    }
+
+    /**
+     * Check if the {@link RegionStorage} has unsaved changes.
+     *
+     * @return true if the {@code RegionStorage} needs to be saved
+     */
+    boolean isDirty() {
+      if (dirty) {
+        return true;
+      }
+      final String worldName = storage.getRegion().worldName();
+      dirty = storage.getRegion().anyChunkMatch((chunkX, chunkZ) ->
+          loadedBlocks.get(worldName, chunkX, chunkZ).stream()
+              .anyMatch(EnchantableBlock::isDirty));
+      return dirty;
+    }
+
+    /**
+     * Count the blocks stored in the {@link RegionStorage}.
+     *
+     * @return the number of blocks
+     */
+    public int getBlockCount() {
+      int count = 0;
+      for (String chunkPath : storage.getKeys(false)) {
+        ConfigurationSection chunkStorage = storage.getConfigurationSection(chunkPath);
+        if (chunkStorage != null) {
+          count += chunkStorage.getKeys(false).size();
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Flag the {@link RegionStorage} as having unsaved changes.
+     */
+    public void setDirty() {
+      this.dirty = true;
+    }
+
+    /**
+     * Flag a chunk in the {@link RegionStorage} as having unsaved changes.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     */
+    void setDirty(int chunkX, int chunkZ) {
+      this.storage.invalidateChunk(chunkX, chunkZ);
+      this.dirty = true;
+    }
+
+    /**
+     * Encode the {@link RegionStorage}, only re-encoding chunks that have changed since the last
+     * save.
+     *
+     * @return the encoded data
+     * @throws IOException if a value cannot be encoded
+     */
+    byte @NotNull [] encode() throws IOException {
+      invalidateChanged();
+      return this.storage.encodeChanged();
+    }
+
+    /**
+     * Flag chunks containing {@link EnchantableBlock EnchantableBlocks} with unsaved changes for
+     * re-encoding. Once flagged, the {@link RegionStorage} may be encoded off the main thread.
+     */
+    void invalidateChanged() {
+      final String worldName = storage.getRegion().worldName();
+      this.storage.getRegion().forEachChunk((chunkX, chunkZ) -> {
+        for (EnchantableBlock enchantableBlock : loadedBlocks.get(worldName, chunkX, chunkZ)) {
+          if (enchantableBlock.isDirty()) {
+            this.storage.invalidateChunk(chunkX, chunkZ);
+            return;
+          }
+        }
+      });
+    }
+
+    /**
+     * Check if the {@link RegionStorage} contains no values.
+     *
+     * @return true if there is nothing to save
+     */
+    boolean isEmpty() {
+      for (String path : storage.getKeys(true)) {
+        if (storage.get(path) != null) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Mark the {@link RegionStorage} and all contained {@link EnchantableBlock EnchantableBlocks}
+     * as having been saved since last modification.
+     */
+    void clean() {
+      this.dirty = false;
+      final String worldName = storage.getRegion().worldName();
+      this.storage.getRegion().forEachChunk((chunkX, chunkZ) ->
+          loadedBlocks.get(worldName, chunkX, chunkZ)
+              .forEach(enchantableBlock -> enchantableBlock.setDirty(false)));
+    }
+  }
+
+  /**
+   * A {@link ChunkIndex} that is being opened or rebuilt. Changes made in the meantime are recorded
+   * and applied in order once it is ready.
+   */
+  private static final class PendingChunkIndex {
+
+    private final @NotNull List<Consumer<ChunkIndex>> updates = new ArrayList<>();
+    private @Nullable ChunkIndex index;
+    private boolean discarded = false;
+
+    private synchronized void update(@NotNull Consumer<ChunkIndex> update) {
+      if (index != null) {
+        update.accept(index);
+      } else if (!discarded) {
+        updates.add(update);
+      }
+    }
+
+    private synchronized void complete(@NotNull ChunkIndex index) {
+      updates.forEach(update -> update.accept(index));
+      updates.clear();
+      this.index = index;
+    }
+
+    private synchronized void discard() {
+      updates.clear();
+      discarded = true;
+    }
+
+  }
+
+}
@@ -0,0 +1,103 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend.RegionStorageData;
+import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionFileIndex;
+import com.github.jikoo.enchantableblocks.util.RegionIoExecutor;
+import com.github.jikoo.enchantableblocks.util.RegionStorage;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link BiPredicate} used to periodically save data and determine if it is still in use.
+ *
+ * <p>Data is snapshotted on the calling thread and written by the {@link RegionIoExecutor}. Only
+ * chunks changed since the last save are re-encoded. If a {@link RegionFileIndex} is provided, it
+ * is updated as writes and deletions are submitted.
+ */
+record RegionInUseCheck(
+    @NotNull RegionIoExecutor io,
+    @NotNull Logger logger,
+    @Nullable RegionFileIndex regionFiles)
+    implements BiPredicate<@NotNull Region, @Nullable RegionStorageData> {
+
+  RegionInUseCheck(@NotNull RegionIoExecutor io, @NotNull Logger logger) {
+    this(io, logger, null);
+  }
+
+  @Override
+  public boolean test(@NotNull Region key, @Nullable RegionStorageData value) {
+    if (value == null) {
+      return false;
+    }
+
+    RegionStorage storage = value.getStorage();
+    World world = Bukkit.getWorld(storage.getRegion().worldName());
+    boolean loaded = world != null && storage.getRegion().anyChunkMatch(world::isChunkLoaded);
+    boolean dirty = value.isDirty();
+
+    if (!dirty) {
+      return loaded;
+    }
+
+    if (value.isEmpty()) {
+      value.clean();
+      // Record the deletion up front so that a later write's record is never removed. Until the
+      // files are gone, reads skip only data that is empty anyway.
+      if (regionFiles() != null) {
+        regionFiles().remove(key);
+      }
+      // In-memory state stays on this thread; only the files are touched by the I/O lane.
+      storage.discardEncoded();
+      CompletableFuture<?> deletion = io().submit(key, () -> {
+        storage.deleteFiles();
+        return null;
+      });
+      handleFailure(value, deletion);
+      deletion.whenComplete((ignored, throwable) -> {
+        if (throwable != null && regionFiles() != null) {
+          // Files may remain on disk and must not be reported missing.
+          regionFiles().add(key);
+        }
+      });
+      return loaded;
+    }
+
+    byte[] data;
+    try {
+      data = value.encode();
+    } catch (IOException e) {
+      logger().log(Level.WARNING, e, e::getMessage);
+      return loaded;
+    }
+
+    value.clean();
+    // Record the file before it is written so that it is never reported missing while it exists.
+    if (regionFiles() != null) {
+      regionFiles().add(key);
+    }
+    handleFailure(value, io().submitWrite(storage, data));
+
+    return loaded;
+  }
+
+  private void handleFailure(
+      @NotNull RegionStorageData value,
+      @NotNull CompletableFuture<?> operation) {
+    operation.whenComplete((ignored, throwable) -> {
+      if (throwable != null) {
+        // Data was not persisted, retry on next check.
+        value.setDirty();
+        logger().log(Level.WARNING, throwable, throwable::getMessage);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,69 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend.RegionStorageData;
+import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionFileIndex;
+import com.github.jikoo.enchantableblocks.util.RegionStorage;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link BiFunction} used to load data from disk.
+ *
+ * <p>If a {@link RegionFileIndex} is provided, regions without data are identified from memory
+ * rather than by checking for their files.
+ */
+record RegionLoadFunction(
+    @NotNull RegionFileStorageBackend backend,
+    @NotNull Path dataDir,
+    @NotNull Logger logger,
+    @Nullable RegionFileIndex regionFiles)
+    implements BiFunction<@NotNull Region, @NotNull Boolean, @Nullable RegionStorageData> {
+
+  RegionLoadFunction(
+      @NotNull RegionFileStorageBackend backend,
+      @NotNull Path dataDir,
+      @NotNull Logger logger) {
+    this(backend, dataDir, logger, null);
+  }
+
+  @Override
+  public @Nullable RegionStorageData apply(@NotNull Region region, @NotNull Boolean create) {
+    RegionStorage storage = new RegionStorage(dataDir(), region);
+    storage.setCompressed(backend().isCompressRegions());
+
+    if (!create && !exists(region, storage)) {
+      return null;
+    }
+
+    try {
+      storage.load();
+    } catch (@NotNull IOException | InvalidConfigurationException e) {
+      logger().log(Level.WARNING, e, e::getMessage);
+    }
+
+    backend().indexRegion(storage);
+
+    RegionStorageData data = backend().new RegionStorageData(storage);
+
+    // Legacy YAML data is upgraded to the binary format on the next save.
+    if (storage.isLegacy()) {
+      data.setDirty();
+    }
+
+    return data;
+  }
+
+  private boolean exists(@NotNull Region region, @NotNull RegionStorage storage) {
+    RegionFileIndex index = regionFiles();
+    return index != null ? index.exists(region) : storage.exists();
+  }
+
+}
@@ -0,0 +1,446 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
+import com.github.jikoo.enchantableblocks.util.RegionFormat;
+import com.github.jikoo.planarwrappers.util.Coords;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link BlockStorageBackend} storing each block as a row in an embedded SQLite database.
+ *
+ * <p>Rows are looked up by an index on {@code (world, chunk_x, chunk_z)}, so loading a chunk only
+ * reads that chunk's blocks. Changes are collected on the server thread and written in batched
+ * transactions by a dedicated database thread. Queued changes are always written before any
+ * subsequent read, so reads never observe stale data.
+ *
+ * <p>The SQLite JDBC driver is provided by the server. Chunks unloaded while their blocks are
+ * being read are discarded when the read completes, so later loads always read again.
+ */
+public class SqliteStorageBackend implements BlockStorageBackend {
+
+  private static final int BATCH_SIZE = 512;
+  private static final String CREATE_TABLE = """
+      CREATE TABLE IF NOT EXISTS blocks (
+        world TEXT NOT NULL,
+        chunk_x INTEGER NOT NULL,
+        chunk_z INTEGER NOT NULL,
+        position INTEGER NOT NULL,
+        data BLOB NOT NULL,
+        PRIMARY KEY (world, position)
+      )""";
+  private static final String CREATE_INDEX =
+      "CREATE INDEX IF NOT EXISTS blocks_by_chunk ON blocks (world, chunk_x, chunk_z)";
+  private static final String SELECT_CHUNK =
+      "SELECT position, data FROM blocks WHERE world = ? AND chunk_x = ? AND chunk_z = ?";
+  private static final String SELECT_CHUNKS = "SELECT DISTINCT world, chunk_x, chunk_z FROM blocks";
+  private static final String UPSERT = """
+      INSERT INTO blocks (world, chunk_x, chunk_z, position, data) VALUES (?, ?, ?, ?, ?)
+      ON CONFLICT (world, position) DO UPDATE SET data = excluded.data""";
+  private static final String DELETE = "DELETE FROM blocks WHERE world = ? AND position = ?";
+
+  private final @NotNull Logger logger;
+  private final @NotNull Executor mainThread;
+  private final @NotNull LoadedBlocks loadedBlocks;
+  private final @NotNull ExecutorService database;
+  private final @NotNull Connection connection;
+  private final @NotNull Map<ChunkKey, LoadedChunk> loaded = new HashMap<>();
+  private @NotNull Map<BlockKey, byte @Nullable []> pending = new LinkedHashMap<>();
+  // Only accessed on the database thread.
+  private boolean writeFailed = false;
+
+  /**
+   * Construct a new {@code SqliteStorageBackend}.
+   *
+   * @param file the database file
+   * @param logger the {@link Logger} for reporting failures
+   * @param mainThread an {@link Executor} running tasks on the server thread
+   * @param loadedBlocks the loaded blocks to check for unsaved changes
+   * @throws IOException if the database cannot be opened
+   */
+  public SqliteStorageBackend(
+      @NotNull Path file,
+      @NotNull Logger logger,
+      @NotNull Executor mainThread,
+      @NotNull LoadedBlocks loadedBlocks) throws IOException {
+    this.logger = logger;
+    this.mainThread = mainThread;
+    this.loadedBlocks = loadedBlocks;
+    // The driver is native, so use a platform thread rather than pinning a virtual one.
+    this.database = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("EnchantableBlocks-SQL").daemon().factory());
+
+    try {
+      this.connection = database.submit(() -> open(file)).get();
+    } catch (ExecutionException e) {
+      database.shutdown();
+      throw new IOException("Unable to open block database", e.getCause());
+    } catch (InterruptedException e) {
+      database.shutdown();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted opening block database");
+    }
+  }
+
+  private static @NotNull Connection open(@NotNull Path file) throws IOException, SQLException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("PRAGMA journal_mode=WAL");
+      statement.execute("PRAGMA synchronous=NORMAL");
+      statement.execute(CREATE_TABLE);
+      statement.execute(CREATE_INDEX);
+    } catch (SQLException e) {
+      connection.close();
+      throw e;
+    }
+    connection.setAutoCommit(false);
+    return connection;
+  }
+
+  @Override
+  public @NotNull CompletableFuture<@NotNull Map<Long, ConfigurationSection>> loadChunk(
+      @NotNull String worldName,
+      int chunkX,
+      int chunkZ) {
+    ChunkKey key = new ChunkKey(worldName, chunkX, chunkZ);
+    LoadedChunk chunk = loaded.computeIfAbsent(key, ignored -> new LoadedChunk());
+    if (chunk.complete) {
+      return CompletableFuture.completedFuture(chunk.blocks);
+    }
+    if (chunk.loading != null) {
+      return chunk.loading;
+    }
+
+    // Queued changes must be written before reading.
+    submitPending();
+
+    CompletableFuture<Map<Long, ConfigurationSection>> reading =
+        CompletableFuture.supplyAsync(() -> select(key), database);
+    CompletableFuture<Map<Long, ConfigurationSection>> loading =
+        reading.thenApplyAsync(stored -> merge(key, chunk, stored), mainThread);
+    chunk.reading = reading;
+    chunk.loading = loading;
+    return loading;
+  }
+
+  @Override
+  public @NotNull Map<Long, ConfigurationSection> loadChunkNow(
+      @NotNull String worldName,
+      int chunkX,
+      int chunkZ) {
+    CompletableFuture<Map<Long, ConfigurationSection>> loading =
+        loadChunk(worldName, chunkX, chunkZ);
+    if (loading.isDone()) {
+      return loading.join();
+    }
+
+    ChunkKey key = new ChunkKey(worldName, chunkX, chunkZ);
+    LoadedChunk chunk = Objects.requireNonNull(loaded.get(key));
+    // Reads do not need the server thread, so the read in progress can be waited for here.
+    return merge(key, chunk, Objects.requireNonNull(chunk.reading).join());
+  }
+
+  /**
+   * Merge blocks read from the database into a loaded chunk. Must be called on the server thread.
+   *
+   * @param key the chunk's key
+   * @param chunk the chunk the read was started for
+   * @param stored the blocks read
+   * @return the chunk's blocks
+   */
+  private @NotNull Map<Long, ConfigurationSection> merge(
+      @NotNull ChunkKey key,
+      @NotNull LoadedChunk chunk,
+      @NotNull Map<Long, ConfigurationSection> stored) {
+    if (loaded.get(key) != chunk) {
+      // Unloaded while the read was in flight. Changes were queued on unload, so the next load
+      // must read again rather than reuse this data.
+      return stored;
+    }
+    if (!chunk.complete) {
+      // Blocks created or removed while the read was in flight take precedence.
+      stored.forEach((position, section) -> {
+        if (!chunk.removed.contains(position)) {
+          chunk.blocks.putIfAbsent(position, section);
+        }
+      });
+      chunk.removed.clear();
+      chunk.complete = true;
+    }
+    return chunk.blocks;
+  }
+
+  private @NotNull Map<Long, ConfigurationSection> select(@NotNull ChunkKey key) {
+    Map<Long, ConfigurationSection> blocks = new HashMap<>();
+    try (PreparedStatement statement = connection.prepareStatement(SELECT_CHUNK)) {
+      statement.setString(1, key.worldName());
+      statement.setInt(2, key.chunkX());
+      statement.setInt(3, key.chunkZ());
+      try (ResultSet results = statement.executeQuery()) {
+        while (results.next()) {
+          long position = results.getLong(1);
+          ConfigurationSection section = new MemoryConfiguration();
+          try {
+            RegionFormat.readSection(
+                new DataInputStream(new ByteArrayInputStream(results.getBytes(2))),
+                section);
+          } catch (IOException e) {
+            logger.log(Level.WARNING, e, () -> "Invalid block data in " + key);
+            continue;
+          }
+          blocks.put(position, section);
+        }
+      }
+    } catch (SQLException e) {
+      logger.log(Level.WARNING, e, () -> "Unable to read blocks in " + key);
+    }
+    return blocks;
+  }
+
+  /**
+   * Get every chunk containing stored blocks, such as to copy all data to another backend.
+   *
+   * @return a future completed with {@link PackedCoords#packChunk(int, int) packed} chunk
+   *     coordinates by world name
+   */
+  public @NotNull CompletableFuture<@NotNull Map<String, List<Long>>> getStoredChunks() {
+    // Queued changes must be written before reading.
+    submitPending();
+    return CompletableFuture.supplyAsync(this::selectChunks, database);
+  }
+
+  private @NotNull Map<String, List<Long>> selectChunks() {
+    Map<String, List<Long>> chunks = new HashMap<>();
+    try (Statement statement = connection.createStatement();
+        ResultSet results = statement.executeQuery(SELECT_CHUNKS)) {
+      while (results.next()) {
+        chunks.computeIfAbsent(results.getString(1), ignored -> new ArrayList<>())
+            .add(PackedCoords.packChunk(results.getInt(2), results.getInt(3)));
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Unable to list stored chunks", e);
+    }
+    return chunks;
+  }
+
+  @Override
+  public @NotNull ConfigurationSection putBlock(@NotNull String worldName, int x, int y, int z) {
+    ChunkKey key = new ChunkKey(worldName, Coords.blockToChunk(x), Coords.blockToChunk(z));
+    ConfigurationSection section = new MemoryConfiguration();
+    LoadedChunk chunk = loaded.computeIfAbsent(key, ignored -> new LoadedChunk());
+    long position = PackedCoords.packBlock(x, y, z);
+    chunk.blocks.put(position, section);
+    chunk.removed.remove(position);
+    // Data is written once the block reports changes, which it does on creation.
+    return section;
+  }
+
+  @Override
+  public void restoreBlock(
+      @NotNull String worldName,
+      int x,
+      int y,
+      int z,
+      @NotNull ConfigurationSection data) {
+    try {
+      queue(new BlockKey(worldName, PackedCoords.packBlock(x, y, z)), encode(data));
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Unable to encode block in " + worldName);
+    }
+  }
+
+  @Override
+  public boolean removeBlock(@NotNull String worldName, int x, int y, int z) {
+    ChunkKey key = new ChunkKey(worldName, Coords.blockToChunk(x), Coords.blockToChunk(z));
+    long position = PackedCoords.packBlock(x, y, z);
+    LoadedChunk chunk = loaded.get(key);
+    if (chunk != null) {
+      chunk.blocks.remove(position);
+      if (!chunk.complete) {
+        chunk.removed.add(position);
+      }
+    }
+    queue(new BlockKey(worldName, position), null);
+    return true;
+  }
+
+  @Override
+  public void unloadChunk(@NotNull String worldName, int chunkX, int chunkZ) {
+    ChunkKey key = new ChunkKey(worldName, chunkX, chunkZ);
+    LoadedChunk chunk = loaded.remove(key);
+    if (chunk != null) {
+      queueChanges(key, chunk);
+    }
+  }
+
+  @Override
+  public @NotNull CompletableFuture<Void> flush() {
+    loaded.forEach(this::queueChanges);
+    submitPending();
+    return CompletableFuture.runAsync(() -> {
+      if (writeFailed) {
+        throw new IllegalStateException("Some blocks could not be written");
+      }
+    }, database);
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    loaded.clear();
+    database.execute(() -> {
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        logger.log(Level.WARNING, e, e::getMessage);
+      }
+    });
+    database.shutdown();
+    try {
+      if (!database.awaitTermination(30, TimeUnit.SECONDS)) {
+        throw new IOException("Timed out waiting for block database to close");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted closing block database");
+    }
+  }
+
+  private void queueChanges(@NotNull ChunkKey key, @NotNull LoadedChunk chunk) {
+    for (EnchantableBlock enchantableBlock :
+        loadedBlocks.get(key.worldName(), key.chunkX(), key.chunkZ())) {
+      if (!enchantableBlock.isDirty()) {
+        continue;
+      }
+
+      long position = PackedCoords.packBlock(
+          enchantableBlock.getX(),
+          enchantableBlock.getY(),
+          enchantableBlock.getZ());
+      ConfigurationSection section = chunk.blocks.get(position);
+      if (section == null) {
+        continue;
+      }
+
+      byte[] data;
+      try {
+        data = encode(section);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, e, () -> "Unable to encode " + enchantableBlock);
+        continue;
+      }
+
+      enchantableBlock.setDirty(false);
+      queue(new BlockKey(key.worldName(), position), data);
+    }
+  }
+
+  private static byte @NotNull [] encode(@NotNull ConfigurationSection section)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      RegionFormat.writeSection(out, section);
+    }
+    return bytes.toByteArray();
+  }
+
+  private void queue(@NotNull BlockKey key, byte @Nullable [] data) {
+    pending.put(key, data);
+    if (pending.size() >= BATCH_SIZE) {
+      submitPending();
+    }
+  }
+
+  private void submitPending() {
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    Map<BlockKey, byte @Nullable []> batch = pending;
+    pending = new LinkedHashMap<>();
+    database.execute(() -> write(batch));
+  }
+
+  private void write(@NotNull Map<BlockKey, byte @Nullable []> batch) {
+    try (PreparedStatement upsert = connection.prepareStatement(UPSERT);
+        PreparedStatement delete = connection.prepareStatement(DELETE)) {
+      for (Map.Entry<BlockKey, byte @Nullable []> entry : batch.entrySet()) {
+        BlockKey key = entry.getKey();
+        byte[] data = entry.getValue();
+        if (data == null) {
+          delete.setString(1, key.worldName());
+          delete.setLong(2, key.position());
+          delete.addBatch();
+        } else {
+          upsert.setString(1, key.worldName());
+          upsert.setInt(2, Coords.blockToChunk(PackedCoords.unpackBlockX(key.position())));
+          upsert.setInt(3, Coords.blockToChunk(PackedCoords.unpackBlockZ(key.position())));
+          upsert.setLong(4, key.position());
+          upsert.setBytes(5, data);
+          upsert.addBatch();
+        }
+      }
+      // Each block appears in the batch at most once, so statement order does not matter.
+      upsert.executeBatch();
+      delete.executeBatch();
+      connection.commit();
+    } catch (SQLException e) {
+      // Batches are not retried, so later flushes must not report success.
+      writeFailed = true;
+      logger.log(Level.WARNING, e, () -> "Unable to write " + batch.size() + " blocks");
+      try {
+        connection.rollback();
+      } catch (SQLException rollback) {
+        logger.log(Level.WARNING, rollback, rollback::getMessage);
+      }
+    }
+  }
+
+  private record ChunkKey(@NotNull String worldName, int chunkX, int chunkZ) {}
+
+  private record BlockKey(@NotNull String worldName, long position) {}
+
+  private static final class LoadedChunk {
+    private final @NotNull Map<Long, ConfigurationSection> blocks = new HashMap<>();
+    // Blocks removed before the chunk's stored blocks were read.
+    private final @NotNull Set<Long> removed = new HashSet<>();
+    private boolean complete = false;
+    private @Nullable CompletableFuture<Map<Long, ConfigurationSection>> reading;
+    private @Nullable CompletableFuture<Map<Long, ConfigurationSection>> loading;
+  }
+
+}
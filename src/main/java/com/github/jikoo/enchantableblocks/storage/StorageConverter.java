@@ -0,0 +1,564 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
+import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionFormat;
+import com.github.jikoo.enchantableblocks.util.RegionStorage;
+import com.github.jikoo.planarwrappers.util.Coords;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+/**
+ * A standalone tool converting stored block data between storage formats without a server.
+ *
+ * <p>Regions are converted in parallel on a {@link ForkJoinPool}. Each converted region is read
+ * back and compared to the original data before it is counted as converted. Throughput is reported
+ * once all regions are processed.
+ *
+ * <p>Data in an SQLite database can also be copied back into region files, replacing the regions
+ * it contains. Regions without any stored blocks in the database are left untouched.
+ *
+ * <p>The tool must be run while the server is stopped, with the Paper API on the classpath. The
+ * SQLite JDBC driver must also be present to convert to or from {@link Format#SQLITE}. Legacy YAML
+ * regions contain items that can only be read by a running server, so they are skipped; the plugin
+ * upgrades them as they are loaded.
+ */
+public final class StorageConverter {
+
+  private static final Pattern REGION_FILE = Pattern.compile("(-?\\d+)_(-?\\d+)\\.(dat|yml)");
+  private static final String USAGE = """
+      Usage: StorageConverter <data directory> <binary|compressed|sqlite> [options]
+        --threads <count>    number of regions converted at once (default: available processors)
+        --database <file>    SQLite database to use (default: blocks.db beside the data directory)
+        --from-database      copy the database into binary or compressed region files
+        --no-verify          skip reading back converted data""";
+
+  private final @NotNull Path dataDir;
+  private final @NotNull Format target;
+  private final @NotNull Path database;
+  private final int threads;
+  private final boolean verify;
+  private final boolean fromDatabase;
+  private final @NotNull Map<Region, List<Long>> databaseChunks = new HashMap<>();
+  private @Nullable SqliteStorageBackend backend;
+
+  /**
+   * Construct a new {@code StorageConverter}.
+   *
+   * @param dataDir the data directory containing a folder of regions per world
+   * @param target the format to convert to
+   * @param database the database file used when converting to or from {@link Format#SQLITE}
+   * @param threads the number of regions to convert at once
+   * @param verify whether to read back and compare converted data
+   * @param fromDatabase whether to convert the database into region files
+   */
+  public StorageConverter(
+      @NotNull Path dataDir,
+      @NotNull Format target,
+      @NotNull Path database,
+      int threads,
+      boolean verify,
+      boolean fromDatabase) {
+    if (fromDatabase && target == Format.SQLITE) {
+      throw new IllegalArgumentException("A database can only be converted into region files.");
+    }
+    this.dataDir = dataDir;
+    this.target = target;
+    this.database = database;
+    this.threads = threads;
+    this.verify = verify;
+    this.fromDatabase = fromDatabase;
+  }
+
+  /**
+   * Run the tool.
+   *
+   * @param args the command line arguments
+   */
+  public static void main(String @NotNull [] args) {
+    StorageConverter converter;
+    try {
+      converter = parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    Report report;
+    try {
+      report = converter.convert();
+    } catch (IOException e) {
+      System.err.println("Conversion failed: " + e.getMessage());
+      System.exit(1);
+      return;
+    }
+
+    report.print(System.out);
+    System.exit(report.failed().isEmpty() ? 0 : 1);
+  }
+
+  @VisibleForTesting
+  static @NotNull StorageConverter parse(String @NotNull [] args) {
+    if (args.length < 2) {
+      throw new IllegalArgumentException("Missing arguments.");
+    }
+
+    Path dataDir = Path.of(args[0]);
+    if (!Files.isDirectory(dataDir)) {
+      throw new IllegalArgumentException("Data directory does not exist: " + dataDir);
+    }
+
+    Format target;
+    try {
+      target = Format.valueOf(args[1].toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown format: " + args[1]);
+    }
+
+    Path database = dataDir.toAbsolutePath().resolveSibling("blocks.db");
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean verify = true;
+    boolean fromDatabase = false;
+    for (int i = 2; i < args.length; ++i) {
+      switch (args[i]) {
+        case "--threads" -> threads = parseThreads(requireValue(args, ++i));
+        case "--database" -> database = Path.of(requireValue(args, ++i));
+        case "--from-database" -> fromDatabase = true;
+        case "--no-verify" -> verify = false;
+        default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+    }
+
+    // Opening a missing database would create an empty one.
+    if (fromDatabase && !Files.isRegularFile(database)) {
+      throw new IllegalArgumentException("Database does not exist: " + database);
+    }
+
+    return new StorageConverter(dataDir, target, database, threads, verify, fromDatabase);
+  }
+
+  private static @NotNull String requireValue(String @NotNull [] args, int index) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+    }
+    return args[index];
+  }
+
+  private static int parseThreads(@NotNull String value) {
+    try {
+      int threads = Integer.parseInt(value);
+      if (threads > 0) {
+        return threads;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below.
+    }
+    throw new IllegalArgumentException("Thread count must be a positive integer: " + value);
+  }
+
+  /**
+   * Convert all regions in the data directory.
+   *
+   * @return a report of the conversion
+   * @throws IOException if the data directory cannot be read or the database cannot be opened
+   */
+  public @NotNull Report convert() throws IOException {
+    long start = System.nanoTime();
+
+    if (target == Format.SQLITE || fromDatabase) {
+      backend = new SqliteStorageBackend(
+          database,
+          Logger.getLogger(StorageConverter.class.getName()),
+          Runnable::run,
+          (worldName, chunkX, chunkZ) -> List.of());
+    }
+
+    List<Region> regions;
+    try {
+      regions = fromDatabase ? findDatabaseRegions() : findRegions();
+    } catch (IOException | RuntimeException e) {
+      if (backend != null) {
+        backend.close();
+      }
+      throw e;
+    }
+
+    List<Result> results;
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      results = pool.submit(() -> regions.parallelStream().map(this::convert).toList()).get();
+    } catch (ExecutionException e) {
+      throw new IOException("Unable to convert regions", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted converting regions", e);
+    } finally {
+      pool.shutdown();
+      if (backend != null) {
+        backend.close();
+      }
+    }
+
+    return new Report(results, System.nanoTime() - start);
+  }
+
+  private @NotNull List<Region> findRegions() throws IOException {
+    List<Region> regions = new ArrayList<>();
+    try (Stream<Path> worlds = Files.list(dataDir)) {
+      for (Path world : worlds.filter(Files::isDirectory).toList()) {
+        String worldName = world.getFileName().toString();
+        try (Stream<Path> files = Files.list(world)) {
+          files.map(file -> REGION_FILE.matcher(file.getFileName().toString()))
+              .filter(Matcher::matches)
+              .map(matcher -> new Region(
+                  worldName,
+                  Integer.parseInt(matcher.group(1)),
+                  Integer.parseInt(matcher.group(2))))
+              // Regions with both a binary and a legacy file are only listed once.
+              .distinct()
+              .forEach(regions::add);
+        }
+      }
+    }
+    return regions;
+  }
+
+  private @NotNull List<Region> findDatabaseRegions() throws IOException {
+    Map<String, List<Long>> chunks;
+    try {
+      chunks = Objects.requireNonNull(backend).getStoredChunks().join();
+    } catch (CompletionException e) {
+      throw new IOException("Unable to read database", e.getCause());
+    }
+
+    chunks.forEach((worldName, packedChunks) -> {
+      for (long packed : packedChunks) {
+        int chunkX = PackedCoords.unpackChunkX(packed);
+        int chunkZ = PackedCoords.unpackChunkZ(packed);
+        Region region = new Region(
+            worldName,
+            Coords.chunkToRegion(chunkX),
+            Coords.chunkToRegion(chunkZ));
+        databaseChunks.computeIfAbsent(region, ignored -> new ArrayList<>()).add(packed);
+      }
+    });
+    return List.copyOf(databaseChunks.keySet());
+  }
+
+  private @NotNull Result convert(@NotNull Region region) {
+    if (fromDatabase) {
+      return convertFromDatabase(region);
+    }
+
+    RegionStorage storage = new RegionStorage(dataDir, region);
+    long bytesRead = fileSize(storage.getDataFile()) + fileSize(storage.getLegacyDataFile());
+
+    try {
+      storage.load();
+      if (storage.isLegacy()) {
+        return new Result(region, Status.SKIPPED, 0, bytesRead, 0, "legacy YAML data");
+      }
+
+      int blocks = countBlocks(storage);
+      long bytesWritten = target == Format.SQLITE
+          ? convertToDatabase(region, storage)
+          : convertToRegion(region, storage);
+      return new Result(region, Status.CONVERTED, blocks, bytesRead, bytesWritten, null);
+    } catch (IOException | InvalidConfigurationException | RuntimeException e) {
+      return new Result(region, Status.FAILED, 0, bytesRead, 0, String.valueOf(e.getMessage()));
+    }
+  }
+
+  private long convertToRegion(@NotNull Region region, @NotNull RegionStorage storage)
+      throws IOException, InvalidConfigurationException {
+    byte[] encoded = storage.encode();
+    storage.setCompressed(target == Format.COMPRESSED);
+    storage.write(encoded);
+
+    if (verify) {
+      RegionStorage written = new RegionStorage(dataDir, region);
+      written.load();
+      if (!Arrays.equals(encoded, written.encode())) {
+        throw new IOException("Converted data does not match original");
+      }
+    }
+
+    return fileSize(storage.getDataFile());
+  }
+
+  private @NotNull Result convertFromDatabase(@NotNull Region region) {
+    SqliteStorageBackend backend = Objects.requireNonNull(this.backend);
+    RegionStorage storage = new RegionStorage(dataDir, region);
+    Map<String, ConfigurationSection> blocks = new HashMap<>();
+    long bytesRead = 0;
+
+    try {
+      // The backend must only be used by one thread at a time.
+      synchronized (backend) {
+        for (long packed : databaseChunks.get(region)) {
+          int chunkX = PackedCoords.unpackChunkX(packed);
+          int chunkZ = PackedCoords.unpackChunkZ(packed);
+          Map<Long, ConfigurationSection> stored =
+              backend.loadChunk(region.worldName(), chunkX, chunkZ).join();
+          for (Map.Entry<Long, ConfigurationSection> entry : stored.entrySet()) {
+            long position = entry.getKey();
+            String path = PackedCoords.chunkKey(chunkX, chunkZ) + '.' + PackedCoords.blockKey(
+                PackedCoords.unpackBlockX(position),
+                PackedCoords.unpackBlockY(position),
+                PackedCoords.unpackBlockZ(position));
+            copySection(entry.getValue(), storage.createSection(path));
+            blocks.put(path, entry.getValue());
+            bytesRead += encode(entry.getValue()).length;
+          }
+          backend.unloadChunk(region.worldName(), chunkX, chunkZ);
+        }
+      }
+
+      storage.setCompressed(target == Format.COMPRESSED);
+      storage.write(storage.encode());
+
+      if (verify) {
+        RegionStorage written = new RegionStorage(dataDir, region);
+        written.load();
+        for (Map.Entry<String, ConfigurationSection> entry : blocks.entrySet()) {
+          ConfigurationSection block = written.getConfigurationSection(entry.getKey());
+          if (block == null || !Arrays.equals(encode(entry.getValue()), encode(block))) {
+            throw new IOException("Converted data does not match original at " + entry.getKey());
+          }
+        }
+      }
+
+      long bytesWritten = fileSize(storage.getDataFile());
+      return new Result(region, Status.CONVERTED, blocks.size(), bytesRead, bytesWritten, null);
+    } catch (IOException | InvalidConfigurationException | RuntimeException e) {
+      return new Result(region, Status.FAILED, 0, bytesRead, 0, String.valueOf(e.getMessage()));
+    }
+  }
+
+  private long convertToDatabase(@NotNull Region region, @NotNull RegionStorage storage)
+      throws IOException {
+    SqliteStorageBackend backend = this.backend;
+    int[] coords = new int[3];
+    long bytesWritten = 0;
+
+    // The backend must only be used by one thread at a time.
+    synchronized (backend) {
+      for (ConfigurationSection chunk : getSections(storage)) {
+        for (String key : chunk.getKeys(false)) {
+          ConfigurationSection block = chunk.getConfigurationSection(key);
+          if (block != null && PackedCoords.parseBlockKey(key, coords)) {
+            backend.restoreBlock(region.worldName(), coords[0], coords[1], coords[2], block);
+            bytesWritten += encode(block).length;
+          }
+        }
+      }
+
+      backend.flush().join();
+
+      if (verify) {
+        verifyDatabase(region, storage, coords);
+      }
+    }
+
+    return bytesWritten;
+  }
+
+  private void verifyDatabase(
+      @NotNull Region region,
+      @NotNull RegionStorage storage,
+      int @NotNull [] coords) throws IOException {
+    SqliteStorageBackend backend = this.backend;
+    int[] chunkCoords = new int[2];
+    for (String chunkKey : storage.getKeys(false)) {
+      ConfigurationSection chunk = storage.getConfigurationSection(chunkKey);
+      if (chunk == null || !PackedCoords.parseChunkKey(chunkKey, chunkCoords)) {
+        continue;
+      }
+      int chunkX = chunkCoords[0];
+      int chunkZ = chunkCoords[1];
+
+      Map<Long, ConfigurationSection> stored =
+          backend.loadChunk(region.worldName(), chunkX, chunkZ).join();
+      for (String key : chunk.getKeys(false)) {
+        ConfigurationSection block = chunk.getConfigurationSection(key);
+        if (block == null || !PackedCoords.parseBlockKey(key, coords)) {
+          continue;
+        }
+        ConfigurationSection written =
+            stored.get(PackedCoords.packBlock(coords[0], coords[1], coords[2]));
+        if (written == null || !Arrays.equals(encode(block), encode(written))) {
+          throw new IOException("Converted data does not match original at " + key);
+        }
+      }
+      backend.unloadChunk(region.worldName(), chunkX, chunkZ);
+    }
+  }
+
+  private static @NotNull List<ConfigurationSection> getSections(
+      @NotNull ConfigurationSection parent) {
+    List<ConfigurationSection> sections = new ArrayList<>();
+    for (String key : parent.getKeys(false)) {
+      ConfigurationSection section = parent.getConfigurationSection(key);
+      if (section != null) {
+        sections.add(section);
+      }
+    }
+    return sections;
+  }
+
+  private static void copySection(
+      @NotNull ConfigurationSection from,
+      @NotNull ConfigurationSection to) {
+    for (String key : from.getKeys(false)) {
+      ConfigurationSection child = from.getConfigurationSection(key);
+      if (child != null) {
+        copySection(child, to.createSection(key));
+      } else {
+        to.set(key, from.get(key));
+      }
+    }
+  }
+
+  private static int countBlocks(@NotNull RegionStorage storage) {
+    int blocks = 0;
+    for (ConfigurationSection chunk : getSections(storage)) {
+      blocks += chunk.getKeys(false).size();
+    }
+    return blocks;
+  }
+
+  private static byte @NotNull [] encode(@NotNull ConfigurationSection section)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      RegionFormat.writeSection(out, section);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static long fileSize(@NotNull File file) {
+    return file.isFile() ? file.length() : 0;
+  }
+
+  /** Storage formats that data can be converted to. */
+  public enum Format {
+    /** Uncompressed region files. */
+    BINARY,
+    /** Compressed region files. */
+    COMPRESSED,
+    /** An SQLite database. Region files are left in place. */
+    SQLITE
+  }
+
+  /** The outcome of converting a region. */
+  public enum Status {
+    CONVERTED,
+    SKIPPED,
+    FAILED
+  }
+
+  /**
+   * The result of converting a region.
+   *
+   * @param region the region
+   * @param status the outcome
+   * @param blocks the number of blocks converted
+   * @param bytesRead the size of the original data
+   * @param bytesWritten the size of the converted data
+   * @param reason the reason the region was skipped or failed
+   */
+  public record Result(
+      @NotNull Region region,
+      @NotNull Status status,
+      int blocks,
+      long bytesRead,
+      long bytesWritten,
+      @Nullable String reason) {}
+
+  /**
+   * A summary of a conversion.
+   *
+   * @param results the result for each region
+   * @param elapsedNanos the time taken in nanoseconds
+   */
+  public record Report(@NotNull List<Result> results, long elapsedNanos) {
+
+    /**
+     * Get the results for regions that could not be converted.
+     *
+     * @return the failed results
+     */
+    public @NotNull List<Result> failed() {
+      return results.stream().filter(result -> result.status() == Status.FAILED).toList();
+    }
+
+    /**
+     * Print the summary.
+     *
+     * @param out the stream to print to
+     */
+    public void print(@NotNull PrintStream out) {
+      long converted = 0;
+      long skipped = 0;
+      long blocks = 0;
+      long bytesRead = 0;
+      long bytesWritten = 0;
+      for (Result result : results) {
+        switch (result.status()) {
+          case CONVERTED -> ++converted;
+          case SKIPPED -> {
+            ++skipped;
+            out.printf("Skipped %s: %s%n", result.region(), result.reason());
+          }
+          case FAILED -> out.printf("Failed %s: %s%n", result.region(), result.reason());
+        }
+        blocks += result.blocks();
+        bytesRead += result.bytesRead();
+        bytesWritten += result.bytesWritten();
+      }
+
+      double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000D;
+      out.printf(
+          "Converted %d regions (%d skipped, %d failed) containing %d blocks in %.2fs%n",
+          converted,
+          skipped,
+          failed().size(),
+          blocks,
+          seconds);
+      out.printf(
+          "Throughput: %.1f regions/s, %.1f blocks/s, %.2f MiB/s read, %.2f MiB/s written%n",
+          converted / seconds,
+          blocks / seconds,
+          bytesRead / seconds / (1 << 20),
+          bytesWritten / seconds / (1 << 20));
+    }
+
+  }
+
+}
@@ -0,0 +1,263 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import com.github.jikoo.planarwrappers.util.Coords;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A map of values by block coordinates, grouped by world and chunk.
+ *
+ * <p>Chunks are found by {@link PackedCoords#packChunk(int, int) packed coordinates} in a
+ * primitive map, so lookups neither box keys nor require a {@link org.bukkit.block.Block Block}.
+ * Within a chunk, values are kept in a compact table keyed by local coordinates. Chunks typically
+ * hold only a handful of values, so the table is scanned rather than hashed.
+ *
+ * <p>Positions are also counted in a small occupancy filter shared by all worlds. As nearly every
+ * queried position holds no value, {@link #mayContain(int, int, int)} lets callers reject most
+ * queries with a single array read before looking up the world or chunk.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @param <T> the type of value
+ */
+public final class BlockIndex<T> {
+
+  private static final int FILTER_BITS = 14;
+  private static final int FILTER_MASK = (1 << FILTER_BITS) - 1;
+
+  private final @NotNull Map<String, Long2ObjectOpenHashMap<ChunkTable<T>>> worlds =
+      new HashMap<>();
+  // Number of stored positions per filter slot. Counted so that removals can be undone.
+  private final int @NotNull [] filter = new int[1 << FILTER_BITS];
+
+  /**
+   * Check if a value may be set at a position in any world. If this returns {@code false}, no
+   * value is set. If it returns {@code true}, a value is likely, but not certain, to be set.
+   *
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return false if no value is set at the position
+   */
+  public boolean mayContain(int x, int y, int z) {
+    return filter[filterSlot(x, y, z)] != 0;
+  }
+
+  /**
+   * Get the value at a position.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return the value or {@code null} if not set
+   */
+  public @Nullable T get(@NotNull String worldName, int x, int y, int z) {
+    if (!mayContain(x, y, z)) {
+      return null;
+    }
+    ChunkTable<T> table = getTable(worldName, Coords.blockToChunk(x), Coords.blockToChunk(z));
+    return table == null ? null : table.get(localKey(x, y, z));
+  }
+
+  /**
+   * Set the value at a position.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @param value the value
+   * @return the previous value or {@code null} if not set
+   */
+  public @Nullable T put(@NotNull String worldName, int x, int y, int z, @NotNull T value) {
+    Long2ObjectOpenHashMap<ChunkTable<T>> chunks =
+        worlds.computeIfAbsent(worldName, name -> new Long2ObjectOpenHashMap<>());
+    long chunkKey = PackedCoords.packChunk(Coords.blockToChunk(x), Coords.blockToChunk(z));
+    ChunkTable<T> table = chunks.get(chunkKey);
+    if (table == null) {
+      table = new ChunkTable<>();
+      chunks.put(chunkKey, table);
+    }
+    T previous = table.put(localKey(x, y, z), value);
+    if (previous == null) {
+      ++filter[filterSlot(x, y, z)];
+    }
+    return previous;
+  }
+
+  /**
+   * Remove the value at a position.
+   *
+   * @param worldName the name of the world
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return the removed value or {@code null} if not set
+   */
+  public @Nullable T remove(@NotNull String worldName, int x, int y, int z) {
+    Long2ObjectOpenHashMap<ChunkTable<T>> chunks = worlds.get(worldName);
+    if (chunks == null) {
+      return null;
+    }
+
+    long chunkKey = PackedCoords.packChunk(Coords.blockToChunk(x), Coords.blockToChunk(z));
+    ChunkTable<T> table = chunks.get(chunkKey);
+    if (table == null) {
+      return null;
+    }
+
+    T removed = table.remove(localKey(x, y, z));
+    if (removed != null) {
+      --filter[filterSlot(x, y, z)];
+    }
+    if (table.size == 0) {
+      chunks.remove(chunkKey);
+    }
+    return removed;
+  }
+
+  /**
+   * Get all values in a chunk.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return a snapshot of the values
+   */
+  public @NotNull Collection<T> getChunk(@NotNull String worldName, int chunkX, int chunkZ) {
+    ChunkTable<T> table = getTable(worldName, chunkX, chunkZ);
+    return table == null ? List.of() : table.values();
+  }
+
+  /**
+   * Remove all values in a chunk.
+   *
+   * @param worldName the name of the world
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return the removed values
+   */
+  public @NotNull Collection<T> removeChunk(@NotNull String worldName, int chunkX, int chunkZ) {
+    Long2ObjectOpenHashMap<ChunkTable<T>> chunks = worlds.get(worldName);
+    if (chunks == null) {
+      return List.of();
+    }
+    ChunkTable<T> table = chunks.remove(PackedCoords.packChunk(chunkX, chunkZ));
+    if (table == null) {
+      return List.of();
+    }
+
+    for (int i = 0; i < table.size; ++i) {
+      int key = table.keys[i];
+      --filter[filterSlot((chunkX << 4) | (key & 0xF), key >> 8, (chunkZ << 4) | (key >> 4 & 0xF))];
+    }
+    return table.values();
+  }
+
+  private @Nullable ChunkTable<T> getTable(@NotNull String worldName, int chunkX, int chunkZ) {
+    Long2ObjectOpenHashMap<ChunkTable<T>> chunks = worlds.get(worldName);
+    return chunks == null ? null : chunks.get(PackedCoords.packChunk(chunkX, chunkZ));
+  }
+
+  /**
+   * Get the occupancy filter slot for a position.
+   *
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return the slot
+   */
+  private static int filterSlot(int x, int y, int z) {
+    int hash = x * 0x9E3779B1 ^ z * 0x85EBCA6B ^ y * 0xC2B2AE35;
+    return (hash ^ hash >>> 16) & FILTER_MASK;
+  }
+
+  /**
+   * Pack the position of a block within its chunk into an {@code int}.
+   *
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return the local key
+   */
+  private static int localKey(int x, int y, int z) {
+    return (y << 8) | ((z & 0xF) << 4) | (x & 0xF);
+  }
+
+  /**
+   * The values in a single chunk, stored in parallel arrays.
+   *
+   * @param <T> the type of value
+   */
+  private static final class ChunkTable<T> {
+
+    private int @NotNull [] keys = new int[2];
+    private @Nullable Object @NotNull [] values = new Object[2];
+    private int size;
+
+    private int indexOf(int key) {
+      for (int i = 0; i < size; ++i) {
+        if (keys[i] == key) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable T get(int key) {
+      int index = indexOf(key);
+      return index < 0 ? null : (T) values[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable T put(int key, @NotNull T value) {
+      int index = indexOf(key);
+      if (index >= 0) {
+        T previous = (T) values[index];
+        values[index] = value;
+        return previous;
+      }
+
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      keys[size] = key;
+      values[size] = value;
+      ++size;
+      return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable T remove(int key) {
+      int index = indexOf(key);
+      if (index < 0) {
+        return null;
+      }
+
+      T removed = (T) values[index];
+      // Order is irrelevant, so fill the gap with the last entry.
+      --size;
+      keys[index] = keys[size];
+      values[index] = values[size];
+      values[size] = null;
+      return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private @NotNull Collection<T> values() {
+      return Collections.unmodifiableList(Arrays.asList((T[]) Arrays.copyOf(values, size)));
+    }
+
+  }
+
+}
@@ -1,24 +1,45 @@
 package com.github.jikoo.enchantableblocks.util;
 
-import com.google.common.collect.TreeMultimap;
 import java.time.Clock;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.ToIntBiFunction;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Range;
 import org.jetbrains.annotations.TestOnly;
 
 /**
- * A minimal thread-safe time-based cache implementation backed by a HashMap and TreeMultimap.
+ * A minimal thread-safe time-based cache implementation.
+ *
+ * <p>Values are held in a {@link ConcurrentHashMap}, so reads do not take a lock. Each key has a
+ * single node carrying its expiration time, linked into one bucket of a hashed timing wheel. Reads
+ * only update that timestamp; nodes are moved lazily when their bucket is reached, and removed
+ * nodes are unlinked immediately, so expiry bookkeeping is proportional to the number of keys
+ * rather than the number of accesses. Writes and expiry bookkeeping are serialized, but in use
+ * checks and post-removal run after the lock is released. Loads run outside any lock, and
+ * concurrent loads of the same key are combined.
+ *
+ * <p>A cache may optionally be bounded by total weight. Bounded caches evict using a segmented LRU:
+ * new values start in a probationary segment and values read again are promoted to a protected
+ * segment, so values used once are evicted before values in regular use. Reads only flag the node;
+ * promotion happens when the node is considered for eviction. Values that are in use are never
+ * evicted, so the bound may be exceeded while everything in the cache is in use.
+ *
+ * <p>By default, expiry and eviction run on whichever thread accesses the cache. A cache built
+ * {@link CacheBuilder#withSweep(boolean) for sweeping} instead leaves that work, including in use
+ * checks and post-removal, to periodic calls to {@link #sweep(long)}.
  *
  * @param <K> the type of key
  * @param <V> the type of value
@@ -36,8 +57,13 @@ public class Cache<K, V> {
     private long retention = 300_000L;
     private long lazyFrequency = 10_000L;
     private @Nullable BiFunction<K, Boolean, V> load;
+    private @Nullable BiFunction<K, Boolean, CompletableFuture<V>> asyncLoad;
+    private @Nullable Executor asyncLoadExecutor;
     private @Nullable BiPredicate<K, V> inUseCheck;
     private @Nullable BiConsumer<K, V> postRemoval;
+    private long maximumWeight = 0L;
+    private @Nullable ToIntBiFunction<K, V> weigher;
+    private boolean sweep = false;
 
     /**
      * Set the {@link Clock} used by the {@link Cache}.
@@ -62,6 +88,34 @@ public class Cache<K, V> {
       return this;
     }
 
+    /**
+     * Set the asynchronous loading function used by the {@link Cache} to provide new values. The
+     * function should return promptly; the returned future may be completed on any thread.
+     *
+     * @param asyncLoad the asynchronous loading function
+     * @return the modified builder
+     */
+    public CacheBuilder<K, V> withAsyncLoadFunction(
+        final @Nullable BiFunction<K, Boolean, CompletableFuture<V>> asyncLoad) {
+      this.asyncLoad = asyncLoad;
+      return this;
+    }
+
+    /**
+     * Set the {@link Executor} used by the {@link Cache} to store asynchronously loaded values and
+     * complete requests for them. If unset, this is done on the thread completing the load.
+     *
+     * <p>Synchronous requests waiting on an asynchronous load store the loaded value themselves, so
+     * they do not wait for the executor.
+     *
+     * @param executor the {@code Executor}
+     * @return the modified builder
+     */
+    public CacheBuilder<K, V> withAsyncLoadExecutor(final @Nullable Executor executor) {
+      this.asyncLoadExecutor = executor;
+      return this;
+    }
+
     /**
      * Set the in use function used by the {@link Cache} to see if values should not expire.
      *
@@ -108,6 +162,34 @@ public class Cache<K, V> {
       return this;
     }
 
+    /**
+     * Set the maximum total weight of values held by the {@link Cache}. Weights are calculated when
+     * a value is stored. If there is no bound, the weigher is never called.
+     *
+     * @param maximumWeight the maximum weight or 0 for no bound
+     * @param weigher the function used to calculate the weight of a value
+     * @return the modified builder
+     */
+    public CacheBuilder<K, V> withMaximumWeight(
+        @Range(from = 0, to = Long.MAX_VALUE) final long maximumWeight,
+        final @NotNull ToIntBiFunction<K, V> weigher) {
+      this.maximumWeight = Math.max(0, maximumWeight);
+      this.weigher = weigher;
+      return this;
+    }
+
+    /**
+     * Set whether the {@link Cache} is swept. Swept caches never expire or evict values while
+     * being accessed; {@link Cache#sweep(long)} must be called periodically instead.
+     *
+     * @param sweep whether the cache is swept
+     * @return the modified builder
+     */
+    public CacheBuilder<K, V> withSweep(final boolean sweep) {
+      this.sweep = sweep;
+      return this;
+    }
+
     /**
      * Construct a {@link Cache} with the given setting.
      *
@@ -118,20 +200,51 @@ public class Cache<K, V> {
           this.clock,
           this.retention,
           this.lazyFrequency,
-          this.load, this.inUseCheck,
-          this.postRemoval);
+          this.load, this.asyncLoad, this.asyncLoadExecutor, this.inUseCheck,
+          this.postRemoval,
+          this.maximumWeight,
+          this.weigher,
+          this.sweep);
     }
   }
 
+  /** Number of buckets in the timing wheel. Must be a power of two. */
+  private static final int WHEEL_SIZE = 64;
+  /** Maximum number of eviction candidates examined per write. */
+  private static final int MAX_EVICTION_CHECKS = 16;
+
   private final @NotNull Clock clock;
-  private final @NotNull Map<K, V> internal;
-  private final @NotNull TreeMultimap<Long, K> expiry;
+  private final @NotNull Map<K, Node<K, V>> internal;
+  private final @NotNull Object expiryLock = new Object();
+  private final @NotNull Map<K, Load<V>> loading;
+  // Heads of doubly linked bucket lists. Guarded by the expiry lock.
+  private final @Nullable Node<K, V>[] wheel;
+  private final long tickMillis;
+  private long processedTick;
   private final long retention;
   private final long lazyFrequency;
   private final @NotNull AtomicLong lastLazyCheck;
   private final @Nullable BiFunction<K, Boolean, V> load;
+  private final @Nullable BiFunction<K, Boolean, CompletableFuture<V>> asyncLoad;
+  private final @Nullable Executor asyncLoadExecutor;
   private final @Nullable BiPredicate<K, V> inUseCheck;
   private final @Nullable BiConsumer<K, V> postRemoval;
+  private final long maximumWeight;
+  private final @Nullable ToIntBiFunction<K, V> weigher;
+  private final boolean sweep;
+  // Eviction segments and total weight are guarded by the expiry lock.
+  private final @NotNull Segment<K, V> probation = new Segment<>();
+  private final @NotNull Segment<K, V> protectedSegment = new Segment<>();
+  private long weight;
+  private final @NotNull LongAdder hitCount = new LongAdder();
+  private final @NotNull LongAdder missCount = new LongAdder();
+  private final @NotNull LongAdder loadSuccessCount = new LongAdder();
+  private final @NotNull LongAdder loadFailureCount = new LongAdder();
+  private final @NotNull LongAdder totalLoadNanos = new LongAdder();
+  private final @NotNull LongAdder @NotNull [] loadTimeHistogram;
+  private final @NotNull LongAdder evictionCount = new LongAdder();
+  private final @NotNull LongAdder inUseCheckCount = new LongAdder();
+  private final @NotNull LongAdder totalInUseCheckNanos = new LongAdder();
 
   /**
    * Constructs a Cache with the specified retention duration, in use function, and post-removal
@@ -141,21 +254,40 @@ public class Cache<K, V> {
    * @param inUseCheck Function used to check if a key is considered in use
    * @param postRemoval Function used to perform any operations required when a key is invalidated
    */
+  @SuppressWarnings("unchecked")
   private Cache(final @NotNull Clock clock, final long retention, long lazyFrequency,
-      final @Nullable BiFunction<K, Boolean, V> load, final @Nullable BiPredicate<K, V> inUseCheck,
-      final @Nullable BiConsumer<K, V> postRemoval) {
-    this.internal = new HashMap<>();
+      final @Nullable BiFunction<K, Boolean, V> load,
+      final @Nullable BiFunction<K, Boolean, CompletableFuture<V>> asyncLoad,
+      final @Nullable Executor asyncLoadExecutor,
+      final @Nullable BiPredicate<K, V> inUseCheck,
+      final @Nullable BiConsumer<K, V> postRemoval, final long maximumWeight,
+      final @Nullable ToIntBiFunction<K, V> weigher, final boolean sweep) {
+    this.internal = new ConcurrentHashMap<>();
+    this.loading = new ConcurrentHashMap<>();
     this.clock = clock;
 
-    this.expiry = TreeMultimap.create(
-        Comparator.naturalOrder(), (k1, k2) -> k1 == k2 || k1.equals(k2) ? 0 : 1);
+    // One rotation of the wheel roughly covers the retention duration, so most keys are examined
+    // once per expiry. Keys expiring further out are examined and rescheduled each rotation.
+    this.wheel = new Node[WHEEL_SIZE];
+    this.loadTimeHistogram = new LongAdder[CacheStats.HISTOGRAM_BUCKETS];
+    for (int i = 0; i < CacheStats.HISTOGRAM_BUCKETS; ++i) {
+      this.loadTimeHistogram[i] = new LongAdder();
+    }
+    this.tickMillis = Math.max(1, retention / WHEEL_SIZE);
+    this.processedTick = clock.millis() / tickMillis;
 
     this.load = load;
+    this.asyncLoad = asyncLoad;
+    this.asyncLoadExecutor = asyncLoadExecutor;
     this.retention = retention;
     this.lazyFrequency = lazyFrequency;
     this.lastLazyCheck = new AtomicLong(0);
     this.inUseCheck = inUseCheck;
     this.postRemoval = postRemoval;
+    this.maximumWeight = weigher == null ? 0 : maximumWeight;
+    // Weights are only needed to enforce a bound, and may be expensive to calculate.
+    this.weigher = this.maximumWeight > 0 ? weigher : null;
+    this.sweep = sweep;
   }
 
   /**
@@ -169,10 +301,58 @@ public class Cache<K, V> {
     // Run lazy check to clean cache
     this.lazyCheck();
 
-    synchronized (this.internal) {
-      this.internal.put(key, value);
-      this.expiry.put(clock.millis() + this.retention, key);
+    insert(key, value, true);
+  }
+
+  /**
+   * Insert a value.
+   *
+   * @param key the key
+   * @param value the value
+   * @param replace whether an existing value should be replaced
+   * @return the value mapped to the key
+   */
+  private @Nullable V insert(final @NotNull K key, final @Nullable V value, boolean replace) {
+    long expiresAt = clock.millis() + this.retention;
+    int nodeWeight = weigh(key, value);
+    List<Node<K, V>> evictions;
+    synchronized (this.expiryLock) {
+      Node<K, V> node = this.internal.get(key);
+      if (node != null) {
+        if (!replace) {
+          return touch(node);
+        }
+        // Existing node is already scheduled and will be rescheduled when its bucket is reached.
+        node.value = value;
+        node.expiresAt = expiresAt;
+        node.accessed = true;
+        if (node.segment != null) {
+          node.segment.weight += nodeWeight - node.weight;
+          this.weight += nodeWeight - node.weight;
+        }
+        node.weight = nodeWeight;
+      } else {
+        node = new Node<>(key, value, expiresAt);
+        node.weight = nodeWeight;
+        this.internal.put(key, node);
+        schedule(node);
+        if (this.maximumWeight > 0) {
+          this.probation.addLast(node);
+          this.weight += nodeWeight;
+        }
+      }
+      evictions = this.sweep ? List.of() : selectEvictions(node);
+    }
+
+    removeUnused(evictions, false, clock.millis(), System.nanoTime(), Long.MAX_VALUE);
+    return value;
+  }
+
+  private int weigh(final @NotNull K key, final @Nullable V value) {
+    if (this.weigher == null || value == null) {
+      return 0;
     }
+    return Math.max(0, this.weigher.applyAsInt(key, value));
   }
 
   /**
@@ -196,33 +376,284 @@ public class Cache<K, V> {
    * create a new value if requested. The load function may return null values.
    *
    * <p>N.B. If a load function is provided, it will always be used to attempt to load existing
-   * values.
+   * values. If only an asynchronous load function is provided, the calling thread waits for it.
+   * Requests made while an asynchronous load is in progress wait for and share its value rather
+   * than loading again. The value is stored by the calling thread, so the request does not wait
+   * for the {@link CacheBuilder#withAsyncLoadExecutor(Executor) asynchronous load executor}.
+   *
+   * <p>Loads do not block access to other keys. Concurrent requests for a key that is being loaded
+   * wait for and share the result of the load in progress. If the load function throws, nothing
+   * is cached; the calling thread receives the exception and waiting threads receive it wrapped in
+   * a {@link CompletionException}. The next request loads again.
    *
    * @param key the key whose associated value is to be returned
    * @param create whether the load function should create a new value if none exists to be loaded
    * @return the value to which the specified key is mapped or null
+   * @throws IllegalStateException if the load function requests the key it is loading
    */
   public @Nullable V get(final @NotNull K key, final boolean create) {
     // Run lazy check to clean cache
     this.lazyCheck();
 
-    synchronized (this.internal) {
+    boolean recorded = false;
+    while (true) {
+      Node<K, V> node = this.internal.get(key);
+      if (!recorded) {
+        // Requests that wait on another load are only counted once.
+        recorded = true;
+        if (node == null) {
+          this.missCount.increment();
+        } else {
+          this.hitCount.increment();
+        }
+      }
+      if (node != null || !hasLoadFunction()) {
+        return touch(node);
+      }
+
+      Load<V> flight = newLoad(create, this.load == null);
+      Load<V> existing = this.loading.putIfAbsent(key, flight);
+      if (existing == null) {
+        if (this.load != null) {
+          return load(key, flight);
+        }
+        loadAsync(key, flight);
+        existing = flight;
+      }
+
+      if (existing.owner() == Thread.currentThread()) {
+        throw new IllegalStateException("Recursive load of " + key);
+      }
+
       V value;
-      if (!this.internal.containsKey(key) && this.load != null) {
-        value = this.load.apply(key, create);
+      if (existing.owner() == null) {
+        // The value is stored by this thread so as not to wait for the asynchronous load executor,
+        // which may be this thread.
+        value = existing.loaded().join();
         if (value != null) {
-          this.internal.put(key, value);
+          return insert(key, value, false);
+        }
+        if (existing.create() || !create) {
+          return null;
+        }
+        if (this.load != null) {
+          // Retrying would wait for the load to be removed by the executor.
+          return loadValue(key, true);
         }
+      }
+
+      value = existing.future().join();
+      // A load that was not allowed to create a value does not answer a request that is.
+      if (value != null || existing.create() || !create) {
+        return value;
+      }
+    }
+  }
+
+  /**
+   * Gets the value for a specific key without waiting for it to be loaded.
+   *
+   * <p>If the key is not present, the asynchronous load function is used to load it. If there is
+   * no asynchronous load function, the load function is run on the calling thread instead.
+   * Requests share loads in progress as described in {@link #get(Object, boolean)}. If the load
+   * fails, the returned future is completed exceptionally and nothing is cached.
+   *
+   * @param key the key whose associated value is to be returned
+   * @param create whether the load function should create a new value if none exists to be loaded
+   * @return a future completed with the value to which the specified key is mapped or null
+   */
+  public @NotNull CompletableFuture<@Nullable V> getAsync(
+      final @NotNull K key,
+      final boolean create) {
+    // Run lazy check to clean cache
+    this.lazyCheck();
+
+    return getAsync(key, create, true);
+  }
+
+  private @NotNull CompletableFuture<@Nullable V> getAsync(
+      final @NotNull K key,
+      final boolean create,
+      final boolean record) {
+    Node<K, V> node = this.internal.get(key);
+    if (record) {
+      if (node == null) {
+        this.missCount.increment();
       } else {
-        value = this.internal.get(key);
+        this.hitCount.increment();
       }
+    }
+    if (node != null || !hasLoadFunction()) {
+      return CompletableFuture.completedFuture(touch(node));
+    }
 
-      if (value != null) {
-        this.expiry.put(clock.millis() + this.retention, key);
+    Load<V> flight = newLoad(create, this.asyncLoad != null);
+    Load<V> existing = this.loading.putIfAbsent(key, flight);
+    if (existing == null) {
+      if (this.asyncLoad != null) {
+        return loadAsync(key, flight).copy();
+      }
+      try {
+        return CompletableFuture.completedFuture(load(key, flight));
+      } catch (RuntimeException | Error e) {
+        return CompletableFuture.failedFuture(e);
       }
+    }
+
+    if (existing.owner() == Thread.currentThread()) {
+      return CompletableFuture.failedFuture(
+          new IllegalStateException("Recursive load of " + key));
+    }
 
-      return value;
+    if (existing.create() || !create) {
+      return existing.future().copy();
     }
+
+    // A load that was not allowed to create a value does not answer a request that is.
+    return existing.future()
+        .handle((value, throwable) -> value)
+        .thenCompose(value -> value != null
+            ? CompletableFuture.completedFuture(value)
+            : getAsync(key, true, false));
+  }
+
+  private boolean hasLoadFunction() {
+    return this.load != null || this.asyncLoad != null;
+  }
+
+  private @NotNull Load<V> newLoad(boolean create, boolean async) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    // Asynchronous loads may be awaited by the thread that started them.
+    return new Load<>(
+        future,
+        async ? new CompletableFuture<>() : future,
+        async ? null : Thread.currentThread(),
+        create);
+  }
+
+  private @NotNull CompletableFuture<@Nullable V> loadAsync(
+      final @NotNull K key,
+      final @NotNull Load<V> flight) {
+    long start = System.nanoTime();
+    CompletableFuture<V> pending;
+    try {
+      // The value may have been stored between the initial check and claiming the load.
+      Node<K, V> node = this.internal.get(key);
+      if (node != null) {
+        V value = touch(node);
+        this.loading.remove(key, flight);
+        flight.loaded().complete(value);
+        flight.future().complete(value);
+        return flight.future();
+      }
+      pending = Objects.requireNonNull(this.asyncLoad).apply(key, flight.create());
+    } catch (RuntimeException | Error e) {
+      recordLoad(this.loadFailureCount, start);
+      this.loading.remove(key, flight);
+      flight.loaded().completeExceptionally(e);
+      flight.future().completeExceptionally(e);
+      return flight.future();
+    }
+
+    pending.whenComplete((value, throwable) -> {
+      if (throwable != null) {
+        recordLoad(this.loadFailureCount, start);
+        flight.loaded().completeExceptionally(throwable);
+      } else {
+        recordLoad(this.loadSuccessCount, start);
+        flight.loaded().complete(value);
+      }
+    });
+
+    BiConsumer<V, Throwable> store = (value, throwable) -> {
+      if (throwable != null) {
+        this.loading.remove(key, flight);
+        flight.future().completeExceptionally(throwable);
+        return;
+      }
+
+      V result;
+      try {
+        // Values put while loading take precedence.
+        result = value == null ? null : insert(key, value, false);
+      } catch (RuntimeException | Error e) {
+        this.loading.remove(key, flight);
+        flight.future().completeExceptionally(e);
+        return;
+      }
+      // Remove before completing so that dependents retrying the request do not find this load.
+      this.loading.remove(key, flight);
+      flight.future().complete(result);
+    };
+    if (this.asyncLoadExecutor == null) {
+      flight.loaded().whenComplete(store);
+    } else {
+      flight.loaded().whenCompleteAsync(store, this.asyncLoadExecutor);
+    }
+    return flight.future();
+  }
+
+  private @Nullable V load(final @NotNull K key, final @NotNull Load<V> flight) {
+    V value;
+    try {
+      value = loadValue(key, flight.create());
+    } catch (RuntimeException | Error e) {
+      this.loading.remove(key, flight);
+      flight.future().completeExceptionally(e);
+      throw e;
+    }
+    // Remove before completing so that dependents retrying the request do not find this load.
+    this.loading.remove(key, flight);
+    flight.future().complete(value);
+    return value;
+  }
+
+  private @Nullable V loadValue(final @NotNull K key, final boolean create) {
+    // The value may have been stored between the initial check and claiming the load.
+    Node<K, V> node = this.internal.get(key);
+    if (node != null) {
+      return touch(node);
+    }
+
+    long start = System.nanoTime();
+    V value;
+    try {
+      value = Objects.requireNonNull(this.load).apply(key, create);
+    } catch (RuntimeException | Error e) {
+      recordLoad(this.loadFailureCount, start);
+      throw e;
+    }
+    recordLoad(this.loadSuccessCount, start);
+    if (value != null) {
+      // Values put while loading take precedence.
+      value = insert(key, value, false);
+    }
+    return value;
+  }
+
+  private void recordLoad(@NotNull LongAdder counter, long start) {
+    long elapsed = System.nanoTime() - start;
+    counter.increment();
+    this.totalLoadNanos.add(elapsed);
+    this.loadTimeHistogram[CacheStats.getHistogramBucket(elapsed)].increment();
+  }
+
+  private @Nullable V touch(@Nullable Node<K, V> node) {
+    if (node == null) {
+      return null;
+    }
+
+    V value = node.value;
+    if (value != null) {
+      // Only the timestamp moves. The node is rescheduled lazily when its bucket is reached.
+      node.expiresAt = clock.millis() + this.retention;
+      // Likewise, the node is only promoted when it is considered for eviction.
+      node.accessed = true;
+      if (node.accesses < Integer.MAX_VALUE) {
+        node.accesses++;
+      }
+    }
+    return value;
   }
 
   /**
@@ -235,9 +666,7 @@ public class Cache<K, V> {
     // Run lazy check to clean cache
     this.lazyCheck();
 
-    synchronized (this.internal) {
-      return this.internal.containsKey(key);
-    }
+    return this.internal.containsKey(key);
   }
 
   /**
@@ -247,79 +676,564 @@ public class Cache<K, V> {
    * @param key key to invalidate
    */
   public void invalidate(final @NotNull K key) {
-    synchronized (this.internal) {
-      if (!this.internal.containsKey(key)) {
-        // Value either not present or cleaned by lazy check. Either way, we're good
-        return;
+    synchronized (this.expiryLock) {
+      Node<K, V> node = this.internal.remove(key);
+      if (node != null) {
+        detach(node);
       }
-
-      // Remove stored object
-      this.internal.remove(key);
-
-      // Remove expiration entry - prevents more work later, plus prevents issues with values
-      // invalidating early
-      this.expiry.entries().removeIf(entry -> entry.getValue().equals(key));
     }
 
     // Run lazy check to clean cache
     this.lazyCheck();
   }
 
+  /**
+   * Forcibly invalidate all keys even if they are considered to be in use. Like
+   * {@link #invalidate(Object)}, this will NOT cause the post-removal function to be run.
+   */
+  public void invalidateAll() {
+    synchronized (this.expiryLock) {
+      for (Node<K, V> node : this.internal.values()) {
+        this.internal.remove(node.key, node);
+        detach(node);
+      }
+    }
+  }
+
+  /**
+   * Perform an action for each cached mapping. Mappings are not considered accessed and are not
+   * checked for expiration.
+   *
+   * @param action the action to perform
+   */
+  public void forEach(final @NotNull BiConsumer<K, @Nullable V> action) {
+    for (Node<K, V> node : this.internal.values()) {
+      action.accept(node.key, node.value);
+    }
+  }
+
+  /**
+   * Get the keys read most often since they were cached, most frequent first. Keys mapped to
+   * {@code null} are not included. Read counts are approximate.
+   *
+   * @param limit the maximum number of keys
+   * @return the keys
+   */
+  public @NotNull List<K> getMostAccessed(@Range(from = 0, to = Integer.MAX_VALUE) int limit) {
+    List<Map.Entry<K, Integer>> counts = new ArrayList<>();
+    for (Node<K, V> node : this.internal.values()) {
+      if (node.value != null) {
+        // Counts are captured once so that concurrent reads cannot reorder the sort.
+        counts.add(Map.entry(node.key, node.accesses));
+      }
+    }
+    counts.sort((first, second) -> Integer.compare(second.getValue(), first.getValue()));
+
+    List<K> keys = new ArrayList<>(Math.min(limit, counts.size()));
+    for (int i = 0; i < limit && i < counts.size(); ++i) {
+      keys.add(counts.get(i).getKey());
+    }
+    return keys;
+  }
+
   /**
    * Forcibly expire all keys, requiring them to be in use to be kept.
    */
   public void expireAll() {
-    synchronized (this.internal) {
-      this.expiry.clear();
-      this.internal.keySet().forEach(key -> this.expiry.put(0L, key));
+    long now = clock.millis();
+    List<Node<K, V>> expired = new ArrayList<>();
+    synchronized (this.expiryLock) {
+      for (Node<K, V> node : this.internal.values()) {
+        node.expiresAt = 0L;
+        // Nodes already being checked see the new expiration time when they are handled.
+        if (!node.checking) {
+          unlink(node);
+          node.checking = true;
+          expired.add(node);
+        }
+      }
     }
 
+    removeUnused(expired, true, now, System.nanoTime(), Long.MAX_VALUE);
+
     this.lastLazyCheck.set(0);
 
     this.lazyCheck();
   }
 
+  /**
+   * Expire all keys without checking them. Keys are checked by the next {@link #sweep(long)} or,
+   * if the cache is not swept, the next lazy check, so that checks may be spread out.
+   */
+  public void expireAllLater() {
+    synchronized (this.expiryLock) {
+      for (Node<K, V> node : this.internal.values()) {
+        node.expiresAt = 0L;
+        // Nodes already being checked see the new expiration time when they are handled.
+        if (!node.checking) {
+          unlink(node);
+          schedule(node);
+        }
+      }
+    }
+
+    this.lastLazyCheck.set(0);
+  }
+
   /**
    * Invalidate all expired keys that are not considered in use. If a key is expired but is
    * considered in use by the provided Function, its expiration time is reset.
    */
   private void lazyCheck() {
+    if (this.sweep) {
+      return;
+    }
+
     long now = clock.millis();
 
-    if (lastLazyCheck.get() > now - lazyFrequency) {
+    long lastCheck = lastLazyCheck.get();
+    if (lastCheck > now - lazyFrequency || !lastLazyCheck.compareAndSet(lastCheck, now)) {
       return;
     }
 
-    lastLazyCheck.set(now);
+    List<Node<K, V>> expired;
+    synchronized (this.expiryLock) {
+      expired = collectExpired(now);
+    }
+    removeUnused(expired, true, now, System.nanoTime(), Long.MAX_VALUE);
+  }
 
-    synchronized (this.internal) {
-      SortedMap<Long, Collection<K>> subMap = this.expiry.asMap().headMap(now);
-      Collection<K> keys = subMap.values().stream()
-          .collect(ArrayList::new, ArrayList::addAll, ArrayList::addAll);
+  /**
+   * Expire and evict values within a time budget. If the budget runs out, the next call resumes
+   * where this one stopped. At least one value is examined per call so that progress is always
+   * made.
+   *
+   * <p>Caches that are not {@link CacheBuilder#withSweep(boolean) swept} do this work as they are
+   * accessed, but may still be swept to handle it at a more convenient time.
+   *
+   * @param budgetNanos the maximum time to spend in nanoseconds
+   * @return true if all expired values were handled
+   */
+  public boolean sweep(@Range(from = 0, to = Long.MAX_VALUE) long budgetNanos) {
+    long start = System.nanoTime();
+    long now = clock.millis();
+    List<Node<K, V>> expired;
+    synchronized (this.expiryLock) {
+      expired = collectExpired(now);
+    }
+    if (!removeUnused(expired, true, now, start, budgetNanos)) {
+      return false;
+    }
 
-      // Wipe original map
-      subMap.clear();
+    List<Node<K, V>> evictions;
+    synchronized (this.expiryLock) {
+      evictions = selectEvictions(null);
+    }
+    removeUnused(evictions, false, now, start, budgetNanos);
+    return true;
+  }
 
-      long nextExpiry = now + this.retention;
+  /**
+   * Take expired nodes out of the timing wheel so that they can be checked for use without holding
+   * the expiry lock. Collected nodes are flagged so that they are not collected again until they
+   * are handled. Must be called while holding the expiry lock.
+   *
+   * @param now the current time
+   * @return the expired nodes
+   */
+  private @NotNull List<Node<K, V>> collectExpired(long now) {
+    List<Node<K, V>> expired = new ArrayList<>();
+    long nowTick = now / this.tickMillis;
+    // The current bucket is always revisited; it may hold keys expiring later in the tick.
+    long firstTick = Math.max(this.processedTick, nowTick - WHEEL_SIZE + 1);
+    this.processedTick = nowTick;
+    for (long tick = firstTick; tick <= nowTick; ++tick) {
+      int bucket = (int) (tick & (WHEEL_SIZE - 1));
+      // Detach first so that nodes rescheduled into the same bucket are not revisited.
+      Node<K, V> node = this.wheel[bucket];
+      this.wheel[bucket] = null;
+      while (node != null) {
+        Node<K, V> next = node.next;
+        node.prev = null;
+        node.next = null;
+        node.bucket = -1;
+        if (node.expiresAt < now && !node.checking) {
+          node.checking = true;
+          expired.add(node);
+        } else {
+          schedule(node);
+        }
+        node = next;
+      }
+    }
+    return expired;
+  }
 
-      keys.forEach(key -> {
+  /**
+   * Select values to evict until the cache would be within its maximum weight. Selected nodes are
+   * flagged so that they are not selected again until they are handled. Must be called while
+   * holding the expiry lock.
+   *
+   * @param written the node being written, which is not evicted
+   * @return the selected nodes
+   */
+  private @NotNull List<Node<K, V>> selectEvictions(@Nullable Node<K, V> written) {
+    List<Node<K, V>> selected = new ArrayList<>();
+    long selectedWeight = 0;
+    int checks = MAX_EVICTION_CHECKS;
+    // Reads may flag nodes concurrently, so promotions are bounded as well.
+    int steps = 2 * this.internal.size() + MAX_EVICTION_CHECKS;
+    while (this.weight - selectedWeight > this.maximumWeight && this.maximumWeight > 0
+        && checks > 0 && steps-- > 0) {
+      Node<K, V> candidate = this.probation.head;
+      if (candidate == null) {
+        candidate = this.protectedSegment.head;
+        if (candidate == null) {
+          break;
+        }
+        demote(candidate);
+        continue;
+      }
 
-        V value = this.internal.get(key);
-        if (value != null && this.inUseCheck != null && this.inUseCheck.test(key, value)) {
-          this.expiry.put(nextExpiry, key);
-          return;
+      if (candidate.accessed) {
+        // Values read since they were last considered are given another chance.
+        candidate.accessed = false;
+        this.probation.remove(candidate);
+        this.protectedSegment.addLast(candidate);
+        long protectedMaximum = this.maximumWeight - this.maximumWeight / 5;
+        while (this.protectedSegment.weight > protectedMaximum
+            && this.protectedSegment.head != candidate) {
+          demote(Objects.requireNonNull(this.protectedSegment.head));
         }
+        continue;
+      }
+
+      --checks;
+      // Considered values move to the back of the queue so that other candidates are checked.
+      this.probation.remove(candidate);
+      this.probation.addLast(candidate);
+      if (candidate != written && !candidate.checking) {
+        candidate.checking = true;
+        selected.add(candidate);
+        selectedWeight += candidate.weight;
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Remove collected nodes that are not in use and run the post-removal function for them. Must
+   * not be called while holding the expiry lock.
+   *
+   * <p>Expired nodes that are in use have their expiration time reset. Nodes that are changed,
+   * read, or removed while being checked are left alone. If the budget runs out, remaining expired
+   * nodes are returned to the current bucket of the timing wheel. At least one node is checked.
+   *
+   * @param nodes the nodes collected for expiry or eviction
+   * @param expired whether the nodes expired rather than being selected for eviction
+   * @param now the current time
+   * @param start the time work started in nanoseconds
+   * @param budgetNanos the maximum time to spend in nanoseconds
+   * @return true if all nodes were checked
+   */
+  private boolean removeUnused(
+      @NotNull List<Node<K, V>> nodes,
+      boolean expired,
+      long now,
+      long start,
+      long budgetNanos) {
+    if (nodes.isEmpty()) {
+      return true;
+    }
 
-        this.internal.remove(key);
+    int count = nodes.size();
+    List<V> values = new ArrayList<>(count);
+    boolean[] inUse = new boolean[count];
+    int checked = 0;
+    while (checked < count && (checked == 0 || System.nanoTime() - start < budgetNanos)) {
+      Node<K, V> node = nodes.get(checked);
+      V value = node.value;
+      values.add(value);
+      inUse[checked] = isInUse(node.key, value);
+      ++checked;
+    }
+
+    List<K> removedKeys = new ArrayList<>();
+    List<V> removedValues = new ArrayList<>();
+    synchronized (this.expiryLock) {
+      for (int i = 0; i < count; ++i) {
+        Node<K, V> node = nodes.get(i);
+        node.checking = false;
+        if (this.internal.get(node.key) != node) {
+          // Removed while being checked.
+          continue;
+        }
 
-        if (value == null) {
-          return;
+        boolean retained = i >= checked || node.value != values.get(i)
+            || (expired ? node.expiresAt >= now : node.accessed);
+        if (!retained && inUse[i]) {
+          retained = true;
+          if (expired) {
+            node.expiresAt = now + this.retention;
+          }
         }
 
-        if (this.postRemoval != null) {
-          this.postRemoval.accept(key, value);
+        if (retained) {
+          if (expired) {
+            schedule(node);
+          }
+          continue;
+        }
+
+        this.evictionCount.increment();
+        this.internal.remove(node.key, node);
+        detach(node);
+        removedKeys.add(node.key);
+        removedValues.add(values.get(i));
+      }
+    }
+
+    if (this.postRemoval != null) {
+      for (int i = 0; i < removedKeys.size(); ++i) {
+        V value = removedValues.get(i);
+        if (value != null) {
+          this.postRemoval.accept(removedKeys.get(i), value);
         }
-      });
+      }
+    }
+
+    return checked == count;
+  }
+
+  /**
+   * Check if a value is in use. Must not be called while holding the expiry lock.
+   *
+   * @param key the key
+   * @param value the value
+   * @return true if the value is in use
+   */
+  private boolean isInUse(@NotNull K key, @Nullable V value) {
+    if (value == null || this.inUseCheck == null) {
+      return false;
+    }
+
+    long start = System.nanoTime();
+    try {
+      return this.inUseCheck.test(key, value);
+    } finally {
+      this.inUseCheckCount.increment();
+      this.totalInUseCheckNanos.add(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Move a node from the protected segment to the probationary segment. Must be called while
+   * holding the expiry lock.
+   *
+   * @param node the node
+   */
+  private void demote(@NotNull Node<K, V> node) {
+    node.accessed = false;
+    this.protectedSegment.remove(node);
+    this.probation.addLast(node);
+  }
+
+  /**
+   * Remove a node from its bucket and eviction segment. Must be called while holding the expiry
+   * lock.
+   *
+   * @param node the node
+   */
+  private void detach(@NotNull Node<K, V> node) {
+    unlink(node);
+    if (node.segment != null) {
+      this.weight -= node.weight;
+      node.segment.remove(node);
+    }
+  }
+
+  /**
+   * Add a node to the bucket for its expiration time. Must be called while holding the expiry
+   * lock.
+   *
+   * @param node the node
+   */
+  private void schedule(@NotNull Node<K, V> node) {
+    // Nodes that are already due are revisited with the current bucket.
+    long tick = Math.max(node.expiresAt / this.tickMillis, this.processedTick);
+    int bucket = (int) (tick & (WHEEL_SIZE - 1));
+    Node<K, V> head = this.wheel[bucket];
+    node.next = head;
+    if (head != null) {
+      head.prev = node;
+    }
+    node.bucket = bucket;
+    this.wheel[bucket] = node;
+  }
+
+  /**
+   * Remove a node from its bucket, if any. Must be called while holding the expiry lock.
+   *
+   * @param node the node
+   */
+  private void unlink(@NotNull Node<K, V> node) {
+    if (node.bucket < 0) {
+      return;
+    }
+
+    if (node.prev == null) {
+      this.wheel[node.bucket] = node.next;
+    } else {
+      node.prev.next = node.next;
+    }
+    if (node.next != null) {
+      node.next.prev = node.prev;
+    }
+    node.prev = null;
+    node.next = null;
+    node.bucket = -1;
+  }
+
+  /**
+   * Get a snapshot of the cache's statistics. Counters are read individually, so a snapshot taken
+   * while the cache is in use may be slightly inconsistent.
+   *
+   * @return the {@link CacheStats}
+   */
+  public @NotNull CacheStats getStats() {
+    long[] histogram = new long[CacheStats.HISTOGRAM_BUCKETS];
+    for (int i = 0; i < histogram.length; ++i) {
+      histogram[i] = this.loadTimeHistogram[i].sum();
+    }
+    return new CacheStats(
+        this.hitCount.sum(),
+        this.missCount.sum(),
+        this.loadSuccessCount.sum(),
+        this.loadFailureCount.sum(),
+        this.totalLoadNanos.sum(),
+        histogram,
+        this.evictionCount.sum(),
+        this.inUseCheckCount.sum(),
+        this.totalInUseCheckNanos.sum(),
+        this.internal.size(),
+        getWeight());
+  }
+
+  /**
+   * Get the total weight of values in the cache.
+   *
+   * @return the total weight
+   */
+  long getWeight() {
+    synchronized (this.expiryLock) {
+      return this.weight;
+    }
+  }
+
+  /**
+   * Count the nodes scheduled for expiration.
+   *
+   * @return the number of scheduled nodes
+   */
+  @TestOnly
+  int getScheduledCount() {
+    int count = 0;
+    synchronized (this.expiryLock) {
+      for (Node<K, V> head : this.wheel) {
+        for (Node<K, V> node = head; node != null; node = node.next) {
+          ++count;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * A load in progress.
+   *
+   * @param future the future completed with the loaded value once it is stored
+   * @param loaded the future completed with the loaded value before it is stored
+   * @param owner the thread performing the load or {@code null} if the load is asynchronous
+   * @param create whether the load may create a new value
+   * @param <V> the type of value
+   */
+  private record Load<V>(
+      @NotNull CompletableFuture<V> future,
+      @NotNull CompletableFuture<V> loaded,
+      @Nullable Thread owner,
+      boolean create) {}
+
+  /**
+   * A cached value, its expiration time, and its links in the timing wheel.
+   *
+   * @param <K> the type of key
+   * @param <V> the type of value
+   */
+  private static final class Node<K, V> {
+    private final @NotNull K key;
+    private volatile @Nullable V value;
+    private volatile long expiresAt;
+    // Bucket links are guarded by the expiry lock.
+    private @Nullable Node<K, V> prev;
+    private @Nullable Node<K, V> next;
+    private int bucket = -1;
+    // Whether the node is being checked for use outside the lock. Guarded by the expiry lock.
+    private boolean checking;
+    // Eviction state is guarded by the expiry lock, except for the access flag.
+    private @Nullable Segment<K, V> segment;
+    private @Nullable Node<K, V> segmentPrev;
+    private @Nullable Node<K, V> segmentNext;
+    private int weight;
+    private volatile boolean accessed;
+    // Approximate; concurrent reads may occasionally lose an increment.
+    private volatile int accesses;
+
+    private Node(@NotNull K key, @Nullable V value, long expiresAt) {
+      this.key = key;
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /**
+   * A doubly linked eviction queue ordered from least to most recently considered.
+   *
+   * @param <K> the type of key
+   * @param <V> the type of value
+   */
+  private static final class Segment<K, V> {
+    private @Nullable Node<K, V> head;
+    private @Nullable Node<K, V> tail;
+    private long weight;
+
+    private void addLast(@NotNull Node<K, V> node) {
+      node.segment = this;
+      node.segmentPrev = tail;
+      node.segmentNext = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.segmentNext = node;
+      }
+      tail = node;
+      weight += node.weight;
+    }
+
+    private void remove(@NotNull Node<K, V> node) {
+      if (node.segmentPrev == null) {
+        head = node.segmentNext;
+      } else {
+        node.segmentPrev.segmentNext = node.segmentNext;
+      }
+      if (node.segmentNext == null) {
+        tail = node.segmentPrev;
+      } else {
+        node.segmentNext.segmentPrev = node.segmentPrev;
+      }
+      node.segment = null;
+      node.segmentPrev = null;
+      node.segmentNext = null;
+      weight -= node.weight;
     }
   }
 
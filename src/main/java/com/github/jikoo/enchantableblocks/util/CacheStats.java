@@ -0,0 +1,161 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Range;
+
+/**
+ * A point-in-time snapshot of {@link Cache} statistics.
+ *
+ * <p>Load times are recorded in a histogram with power-of-two millisecond buckets. Bucket
+ * {@code 0} holds loads under one millisecond and bucket {@code i} holds loads of at least
+ * {@code 2^(i-1)} but under {@code 2^i} milliseconds. The final bucket has no upper bound.
+ *
+ * @param hits the number of requests that found a value in the cache
+ * @param misses the number of requests that did not find a value in the cache
+ * @param loads the number of loads that completed normally, including those producing no value
+ * @param loadFailures the number of loads that threw an exception
+ * @param totalLoadNanos the total time spent loading
+ * @param loadTimeHistogram the number of loads per histogram bucket
+ * @param evictions the number of values removed because they expired or exceeded the maximum
+ *     weight, excluding values removed by {@link Cache#invalidate(Object)}
+ * @param inUseChecks the number of times values were checked for use
+ * @param totalInUseCheckNanos the total time spent checking if values are in use
+ * @param size the number of values in the cache
+ * @param weight the total weight of values in the cache, always 0 if the cache is unbounded
+ */
+public record CacheStats(
+    long hits,
+    long misses,
+    long loads,
+    long loadFailures,
+    long totalLoadNanos,
+    long @NotNull [] loadTimeHistogram,
+    long evictions,
+    long inUseChecks,
+    long totalInUseCheckNanos,
+    long size,
+    long weight) {
+
+  /** Number of buckets in the load time histogram. */
+  public static final int HISTOGRAM_BUCKETS = 13;
+
+  public CacheStats {
+    loadTimeHistogram = loadTimeHistogram.clone();
+  }
+
+  /**
+   * Get the histogram bucket for a duration.
+   *
+   * @param nanos the duration in nanoseconds
+   * @return the bucket index
+   */
+  static int getHistogramBucket(long nanos) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+    return Math.min(HISTOGRAM_BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(millis));
+  }
+
+  /**
+   * Get the exclusive upper bound of a histogram bucket.
+   *
+   * @param bucket the bucket index
+   * @return the upper bound in milliseconds or {@link Long#MAX_VALUE} for the final bucket
+   */
+  public static long getHistogramUpperBoundMillis(
+      @Range(from = 0, to = HISTOGRAM_BUCKETS - 1) int bucket) {
+    if (bucket >= HISTOGRAM_BUCKETS - 1) {
+      return Long.MAX_VALUE;
+    }
+    return 1L << bucket;
+  }
+
+  /**
+   * Get a copy of the number of loads per histogram bucket.
+   *
+   * @return the load time histogram
+   */
+  @Override
+  public long @NotNull [] loadTimeHistogram() {
+    return loadTimeHistogram.clone();
+  }
+
+  /**
+   * Get the ratio of hits to requests.
+   *
+   * @return the hit rate, or 1 if there have been no requests
+   */
+  public double hitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 1 : hits / (double) requests;
+  }
+
+  /**
+   * Get the mean time spent on a single load.
+   *
+   * @return the mean load time in milliseconds
+   */
+  public double averageLoadMillis() {
+    long total = loads + loadFailures;
+    return total == 0 ? 0 : totalLoadNanos / (double) total / 1_000_000D;
+  }
+
+  /**
+   * Get the mean time spent on a single in use check.
+   *
+   * @return the mean in use check time in milliseconds
+   */
+  public double averageInUseCheckMillis() {
+    return inUseChecks == 0 ? 0 : totalInUseCheckNanos / (double) inUseChecks / 1_000_000D;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof CacheStats stats
+        && hits == stats.hits
+        && misses == stats.misses
+        && loads == stats.loads
+        && loadFailures == stats.loadFailures
+        && totalLoadNanos == stats.totalLoadNanos
+        && Arrays.equals(loadTimeHistogram, stats.loadTimeHistogram)
+        && evictions == stats.evictions
+        && inUseChecks == stats.inUseChecks
+        && totalInUseCheckNanos == stats.totalInUseCheckNanos
+        && size == stats.size
+        && weight == stats.weight;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Long.hashCode(hits);
+    result = 31 * result + Long.hashCode(misses);
+    result = 31 * result + Long.hashCode(loads);
+    result = 31 * result + Long.hashCode(loadFailures);
+    result = 31 * result + Long.hashCode(totalLoadNanos);
+    result = 31 * result + Arrays.hashCode(loadTimeHistogram);
+    result = 31 * result + Long.hashCode(evictions);
+    result = 31 * result + Long.hashCode(inUseChecks);
+    result = 31 * result + Long.hashCode(totalInUseCheckNanos);
+    result = 31 * result + Long.hashCode(size);
+    result = 31 * result + Long.hashCode(weight);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{"
+        + "hits=" + hits
+        + ",misses=" + misses
+        + ",loads=" + loads
+        + ",loadFailures=" + loadFailures
+        + ",totalLoadNanos=" + totalLoadNanos
+        + ",loadTimeHistogram=" + Arrays.toString(loadTimeHistogram)
+        + ",evictions=" + evictions
+        + ",inUseChecks=" + inUseChecks
+        + ",totalInUseCheckNanos=" + totalInUseCheckNanos
+        + ",size=" + size
+        + ",weight=" + weight
+        + "}";
+  }
+
+}
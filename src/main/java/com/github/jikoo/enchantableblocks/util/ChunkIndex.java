@@ -0,0 +1,286 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A memory-mapped bitmap of chunks that contain stored data.
+ *
+ * <p>The index is a hash table of regions, each holding one bit per chunk. Chunks without a set bit
+ * are guaranteed to have no stored data, so they can be skipped without touching region files.
+ *
+ * <p>The file records whether it was closed cleanly. If it was not, or if it is missing or
+ * unreadable, a fresh index is created and {@link #isRebuildRequired()} reports that it must be
+ * repopulated from region data before it can be trusted.
+ */
+public final class ChunkIndex implements Closeable {
+
+  private static final int MAGIC = 0x45424349; // "EBCI"
+  private static final byte VERSION = 1;
+  private static final byte STATE_CLEAN = 0;
+  private static final byte STATE_OPEN = 1;
+
+  private static final int HEADER_BYTES = 16;
+  private static final int OFFSET_MAGIC = 0;
+  private static final int OFFSET_VERSION = 4;
+  private static final int OFFSET_STATE = 5;
+  private static final int OFFSET_CAPACITY = 8;
+  private static final int OFFSET_SIZE = 12;
+
+  private static final int REGION_SHIFT = 5;
+  private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+  private static final int BITMAP_LONGS = (1 << (REGION_SHIFT * 2)) / Long.SIZE;
+  // Slot: long region key, int occupied marker, int padding, bitmap.
+  private static final int SLOT_BYTES = Long.BYTES + Integer.BYTES * 2 + BITMAP_LONGS * Long.BYTES;
+  private static final int SLOT_OCCUPIED = Long.BYTES;
+  private static final int SLOT_BITMAP = Long.BYTES + Integer.BYTES * 2;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final @NotNull FileChannel channel;
+  private final boolean rebuildRequired;
+  private @NotNull MappedByteBuffer buffer;
+  private int capacity;
+  private int size;
+
+  private ChunkIndex(@NotNull FileChannel channel) throws IOException {
+    this.channel = channel;
+
+    boolean valid = false;
+    int storedCapacity = 0;
+    int storedSize = 0;
+    if (channel.size() >= HEADER_BYTES) {
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      storedCapacity = header.getInt(OFFSET_CAPACITY);
+      storedSize = header.getInt(OFFSET_SIZE);
+      valid = header.getInt(OFFSET_MAGIC) == MAGIC
+          && header.get(OFFSET_VERSION) == VERSION
+          && header.get(OFFSET_STATE) == STATE_CLEAN
+          && storedCapacity > 0
+          && Integer.bitCount(storedCapacity) == 1
+          && storedSize >= 0
+          && storedSize < storedCapacity
+          && channel.size() >= fileSize(storedCapacity);
+    }
+
+    if (valid) {
+      this.capacity = storedCapacity;
+      this.size = storedSize;
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+    } else {
+      channel.truncate(0);
+      this.capacity = INITIAL_CAPACITY;
+      this.size = 0;
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+      buffer.putInt(OFFSET_MAGIC, MAGIC);
+      buffer.put(OFFSET_VERSION, VERSION);
+      buffer.putInt(OFFSET_CAPACITY, capacity);
+      buffer.putInt(OFFSET_SIZE, size);
+    }
+    this.rebuildRequired = !valid;
+
+    // Until closed cleanly, contents may not match region data.
+    buffer.put(OFFSET_STATE, STATE_OPEN);
+    buffer.force();
+  }
+
+  /**
+   * Open or create an index file.
+   *
+   * @param file the location of the index
+   * @return the index
+   * @throws IOException if there is an issue reading or creating the file
+   */
+  public static @NotNull ChunkIndex open(@NotNull Path file) throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    FileChannel channel = FileChannel.open(
+        file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      return new ChunkIndex(channel);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Check if the index was newly created and must be populated from region data.
+   *
+   * @return true if the index does not reflect existing data
+   */
+  public boolean isRebuildRequired() {
+    return rebuildRequired;
+  }
+
+  /**
+   * Check if a chunk may contain stored data.
+   *
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return true if the chunk is marked as populated
+   */
+  public synchronized boolean contains(int chunkX, int chunkZ) {
+    int slot = findSlot(regionKey(chunkX, chunkZ));
+    if (slot < 0) {
+      return false;
+    }
+    int bit = bitIndex(chunkX, chunkZ);
+    long word = buffer.getLong(bitmapOffset(slot, bit));
+    return (word & bitMask(bit)) != 0;
+  }
+
+  /**
+   * Mark whether a chunk contains stored data.
+   *
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @param populated whether the chunk contains data
+   */
+  public synchronized void set(int chunkX, int chunkZ, boolean populated) {
+    long key = regionKey(chunkX, chunkZ);
+    int slot = findSlot(key);
+    if (slot < 0) {
+      if (!populated) {
+        return;
+      }
+      slot = insert(key);
+    }
+
+    int bit = bitIndex(chunkX, chunkZ);
+    int offset = bitmapOffset(slot, bit);
+    long word = buffer.getLong(offset);
+    if (populated) {
+      word |= bitMask(bit);
+    } else {
+      word &= ~bitMask(bit);
+    }
+    buffer.putLong(offset, word);
+  }
+
+  private int findSlot(long key) {
+    int mask = capacity - 1;
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      int offset = slotOffset(i);
+      if (buffer.getInt(offset + SLOT_OCCUPIED) == 0) {
+        return -1;
+      }
+      if (buffer.getLong(offset) == key) {
+        return i;
+      }
+    }
+  }
+
+  private int insert(long key) {
+    // Keep load factor at or below 0.75 so probes stay short and always terminate.
+    if ((size + 1) * 4L > capacity * 3L) {
+      grow();
+    }
+
+    int mask = capacity - 1;
+    int slot = hash(key) & mask;
+    while (buffer.getInt(slotOffset(slot) + SLOT_OCCUPIED) != 0) {
+      slot = (slot + 1) & mask;
+    }
+
+    int offset = slotOffset(slot);
+    buffer.putLong(offset, key);
+    buffer.putInt(offset + SLOT_OCCUPIED, 1);
+    ++size;
+    buffer.putInt(OFFSET_SIZE, size);
+    return slot;
+  }
+
+  private void grow() {
+    List<Long> keys = new ArrayList<>(size);
+    List<long[]> bitmaps = new ArrayList<>(size);
+    for (int i = 0; i < capacity; ++i) {
+      int offset = slotOffset(i);
+      if (buffer.getInt(offset + SLOT_OCCUPIED) == 0) {
+        continue;
+      }
+      keys.add(buffer.getLong(offset));
+      long[] bitmap = new long[BITMAP_LONGS];
+      for (int j = 0; j < BITMAP_LONGS; ++j) {
+        bitmap[j] = buffer.getLong(offset + SLOT_BITMAP + j * Long.BYTES);
+      }
+      bitmaps.add(bitmap);
+    }
+
+    int newCapacity = capacity * 2;
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(newCapacity));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to grow chunk index", e);
+    }
+    capacity = newCapacity;
+    size = 0;
+    for (int offset = HEADER_BYTES; offset < fileSize(capacity); offset += Long.BYTES) {
+      buffer.putLong(offset, 0);
+    }
+    buffer.putInt(OFFSET_CAPACITY, capacity);
+    buffer.putInt(OFFSET_SIZE, size);
+
+    for (int i = 0; i < keys.size(); ++i) {
+      int slot = insert(keys.get(i));
+      long[] bitmap = bitmaps.get(i);
+      for (int j = 0; j < BITMAP_LONGS; ++j) {
+        buffer.putLong(slotOffset(slot) + SLOT_BITMAP + j * Long.BYTES, bitmap[j]);
+      }
+    }
+  }
+
+  /**
+   * Flush the index to disk and mark it as consistent with region data.
+   *
+   * @throws IOException if there is an issue closing the file
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    buffer.put(OFFSET_STATE, STATE_CLEAN);
+    buffer.force();
+    channel.close();
+  }
+
+  private static long fileSize(int capacity) {
+    return HEADER_BYTES + (long) capacity * SLOT_BYTES;
+  }
+
+  private static int slotOffset(int slot) {
+    return HEADER_BYTES + slot * SLOT_BYTES;
+  }
+
+  private static int bitmapOffset(int slot, int bit) {
+    return slotOffset(slot) + SLOT_BITMAP + (bit >>> 6) * Long.BYTES;
+  }
+
+  private static long bitMask(int bit) {
+    return 1L << (bit & (Long.SIZE - 1));
+  }
+
+  private static long regionKey(int chunkX, int chunkZ) {
+    return PackedCoords.packChunk(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+  }
+
+  private static int bitIndex(int chunkX, int chunkZ) {
+    return ((chunkZ & REGION_MASK) << REGION_SHIFT) | (chunkX & REGION_MASK);
+  }
+
+  private static int hash(long key) {
+    long mixed = key * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32));
+  }
+
+}
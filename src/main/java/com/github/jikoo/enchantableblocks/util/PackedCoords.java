@@ -0,0 +1,259 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Utility for packing coordinates into primitive keys.
+ *
+ * <p>Block coordinates use the same layout as Minecraft's block positions: 26 bits of X, 26 bits
+ * of Z, and 12 bits of Y. Chunk coordinates use the upper and lower halves of a {@code long}.
+ *
+ * <p>Storage keys are the decimal form of packed coordinates, so they decode with a single numeric
+ * parse. Legacy keys joined coordinates with underscores, such as {@code "1_64_-3"}, and are still
+ * accepted when parsing.
+ */
+public final class PackedCoords {
+
+  private static final int HORIZONTAL_BITS = 26;
+  private static final int VERTICAL_BITS = 12;
+  private static final long HORIZONTAL_MASK = (1L << HORIZONTAL_BITS) - 1;
+  private static final long VERTICAL_MASK = (1L << VERTICAL_BITS) - 1;
+  private static final int X_SHIFT = HORIZONTAL_BITS + VERTICAL_BITS;
+  private static final int Z_SHIFT = VERTICAL_BITS;
+
+  /**
+   * Pack block coordinates into a {@code long}.
+   *
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return the packed coordinates
+   */
+  public static long packBlock(int x, int y, int z) {
+    return ((x & HORIZONTAL_MASK) << X_SHIFT)
+        | ((z & HORIZONTAL_MASK) << Z_SHIFT)
+        | (y & VERTICAL_MASK);
+  }
+
+  /**
+   * Get the block X coordinate from packed block coordinates.
+   *
+   * @param packed the packed coordinates
+   * @return the block X coordinate
+   */
+  public static int unpackBlockX(long packed) {
+    return (int) (packed >> X_SHIFT);
+  }
+
+  /**
+   * Get the block Y coordinate from packed block coordinates.
+   *
+   * @param packed the packed coordinates
+   * @return the block Y coordinate
+   */
+  public static int unpackBlockY(long packed) {
+    return (int) (packed << (Long.SIZE - VERTICAL_BITS) >> (Long.SIZE - VERTICAL_BITS));
+  }
+
+  /**
+   * Get the block Z coordinate from packed block coordinates.
+   *
+   * @param packed the packed coordinates
+   * @return the block Z coordinate
+   */
+  public static int unpackBlockZ(long packed) {
+    return (int) (packed << (Long.SIZE - X_SHIFT) >> (Long.SIZE - HORIZONTAL_BITS));
+  }
+
+  /**
+   * Check if block coordinates can be packed without loss.
+   *
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return true if the coordinates survive packing
+   */
+  public static boolean isPackable(int x, int y, int z) {
+    long packed = packBlock(x, y, z);
+    return unpackBlockX(packed) == x && unpackBlockY(packed) == y && unpackBlockZ(packed) == z;
+  }
+
+  /**
+   * Pack chunk coordinates into a {@code long}.
+   *
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return the packed coordinates
+   */
+  public static long packChunk(int chunkX, int chunkZ) {
+    return ((long) chunkX << Integer.SIZE) | (chunkZ & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Get the chunk X coordinate from packed chunk coordinates.
+   *
+   * @param packed the packed coordinates
+   * @return the chunk X coordinate
+   */
+  public static int unpackChunkX(long packed) {
+    return (int) (packed >> Integer.SIZE);
+  }
+
+  /**
+   * Get the chunk Z coordinate from packed chunk coordinates.
+   *
+   * @param packed the packed coordinates
+   * @return the chunk Z coordinate
+   */
+  public static int unpackChunkZ(long packed) {
+    return (int) packed;
+  }
+
+  /**
+   * Get the storage key for block coordinates. The coordinates must be
+   * {@link #isPackable(int, int, int) packable}.
+   *
+   * @param x the block X coordinate
+   * @param y the block Y coordinate
+   * @param z the block Z coordinate
+   * @return the key
+   */
+  public static @NotNull String blockKey(int x, int y, int z) {
+    return Long.toString(packBlock(x, y, z));
+  }
+
+  /**
+   * Get the storage key for chunk coordinates.
+   *
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   * @return the key
+   */
+  public static @NotNull String chunkKey(int chunkX, int chunkZ) {
+    return Long.toString(packChunk(chunkX, chunkZ));
+  }
+
+  /**
+   * Parse a {@link #blockKey(int, int, int) block storage key} or legacy block key into its
+   * coordinates.
+   *
+   * @param key the key
+   * @param coordinates an array of length 3 to fill with the X, Y, and Z coordinates
+   * @return true if the key was parsed
+   */
+  public static boolean parseBlockKey(@NotNull String key, int @NotNull [] coordinates) {
+    if (isLegacyKey(key)) {
+      return parseKey(key, coordinates);
+    }
+
+    long packed = parseNumber(key);
+    if (packed == 0 && !key.equals("0")) {
+      return false;
+    }
+    coordinates[0] = unpackBlockX(packed);
+    coordinates[1] = unpackBlockY(packed);
+    coordinates[2] = unpackBlockZ(packed);
+    return true;
+  }
+
+  /**
+   * Parse a {@link #chunkKey(int, int) chunk storage key} or legacy chunk key into its
+   * coordinates.
+   *
+   * @param key the key
+   * @param coordinates an array of length 2 to fill with the X and Z coordinates
+   * @return true if the key was parsed
+   */
+  public static boolean parseChunkKey(@NotNull String key, int @NotNull [] coordinates) {
+    if (isLegacyKey(key)) {
+      return parseKey(key, coordinates);
+    }
+
+    long packed = parseNumber(key);
+    if (packed == 0 && !key.equals("0")) {
+      return false;
+    }
+    coordinates[0] = unpackChunkX(packed);
+    coordinates[1] = unpackChunkZ(packed);
+    return true;
+  }
+
+  /**
+   * Check if a storage key uses the legacy underscore-separated layout.
+   *
+   * @param key the key
+   * @return true if the key is a legacy key
+   */
+  public static boolean isLegacyKey(@NotNull String key) {
+    return key.indexOf('_') >= 0;
+  }
+
+  /**
+   * Parse a decimal {@code long}. Invalid input is rejected without throwing, as stray keys are
+   * expected in stored data.
+   *
+   * @param key the key
+   * @return the parsed value, or {@code 0} if the key is not a valid {@code long}
+   */
+  private static long parseNumber(@NotNull String key) {
+    int length = key.length();
+    int start = length > 1 && key.charAt(0) == '-' ? 1 : 0;
+    if (length == 0 || length - start > 19) {
+      return 0;
+    }
+
+    long value = 0;
+    for (int i = start; i < length; ++i) {
+      int digit = key.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return 0;
+      }
+      // Accumulate negatively so that Long.MIN_VALUE does not overflow.
+      long next = value * 10 - digit;
+      if (value < Long.MIN_VALUE / 10 || next > value) {
+        return 0;
+      }
+      value = next;
+    }
+
+    if (start == 0) {
+      return value == Long.MIN_VALUE ? 0 : -value;
+    }
+    return value;
+  }
+
+  /**
+   * Parse an underscore-separated coordinate key such as {@code "1_64_-3"} into integers without
+   * allocating substrings.
+   *
+   * @param key the key
+   * @param coordinates the array to fill; its length is the number of coordinates expected
+   * @return true if the key contained exactly the expected number of integers
+   */
+  public static boolean parseKey(@NotNull String key, int @NotNull [] coordinates) {
+    int start = 0;
+    for (int i = 0; i < coordinates.length; ++i) {
+      int end = key.indexOf('_', start);
+      boolean last = i == coordinates.length - 1;
+      if (last) {
+        if (end != -1) {
+          return false;
+        }
+        end = key.length();
+      } else if (end == -1) {
+        return false;
+      }
+
+      try {
+        coordinates[i] = Integer.parseInt(key, start, end, 10);
+      } catch (NumberFormatException e) {
+        return false;
+      }
+      start = end + 1;
+    }
+    return true;
+  }
+
+  private PackedCoords() {}
+
+}
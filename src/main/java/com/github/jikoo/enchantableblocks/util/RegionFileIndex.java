@@ -0,0 +1,136 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An in-memory record of the regions that have data files on disk.
+ *
+ * <p>Each world's directory is listed once, when the world is first queried. Afterwards the record
+ * is maintained as data is written and deleted, so regions without data can be identified without
+ * touching the file system. Files created or removed by anything else are not noticed.
+ *
+ * <p>If a world's directory cannot be listed, queries for that world fall back to checking for
+ * the region's files.
+ */
+public final class RegionFileIndex {
+
+  private final @NotNull Path dataDir;
+  private final @NotNull Logger logger;
+  private final @NotNull Map<String, Set<Long>> worlds = new ConcurrentHashMap<>();
+  private final @NotNull Set<String> unlistedWorlds = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Construct a new {@code RegionFileIndex}.
+   *
+   * @param dataDir the directory containing per-world data directories
+   * @param logger the {@link Logger} used to report listing failures
+   */
+  public RegionFileIndex(@NotNull Path dataDir, @NotNull Logger logger) {
+    this.dataDir = dataDir;
+    this.logger = logger;
+  }
+
+  /**
+   * Check if a {@link Region} has data on disk.
+   *
+   * @param region the {@code Region}
+   * @return true if data exists
+   */
+  public boolean exists(@NotNull Region region) {
+    Set<Long> regions = getRegions(region.worldName());
+    if (regions == null) {
+      return new RegionStorage(dataDir, region).exists();
+    }
+    return regions.contains(PackedCoords.packChunk(region.x(), region.z()));
+  }
+
+  /**
+   * Record that data is being written for a {@link Region}.
+   *
+   * <p>This should be called before the write is performed so that the region is never reported
+   * missing while its file exists.
+   *
+   * @param region the {@code Region}
+   */
+  public void add(@NotNull Region region) {
+    Set<Long> regions = getRegions(region.worldName());
+    if (regions != null) {
+      regions.add(PackedCoords.packChunk(region.x(), region.z()));
+    }
+  }
+
+  /**
+   * Record that data is being deleted for a {@link Region}.
+   *
+   * @param region the {@code Region}
+   */
+  public void remove(@NotNull Region region) {
+    Set<Long> regions = getRegions(region.worldName());
+    if (regions != null) {
+      regions.remove(PackedCoords.packChunk(region.x(), region.z()));
+    }
+  }
+
+  /**
+   * Get the packed coordinates of all regions with data in a world, listing the world's
+   * directory if it has not been listed yet.
+   *
+   * @param worldName the name of the world
+   * @return the packed region coordinates or {@code null} if the directory cannot be listed
+   */
+  private @Nullable Set<Long> getRegions(@NotNull String worldName) {
+    Set<Long> regions = worlds.get(worldName);
+    if (regions != null || unlistedWorlds.contains(worldName)) {
+      return regions;
+    }
+
+    return worlds.computeIfAbsent(worldName, name -> {
+      try {
+        return list(dataDir.resolve(name));
+      } catch (IOException e) {
+        unlistedWorlds.add(name);
+        logger.log(Level.WARNING, e, () -> "Unable to list region data for " + name);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * List the regions with data in a directory.
+   *
+   * @param worldDir the directory
+   * @return the packed region coordinates
+   * @throws IOException if the directory cannot be listed
+   */
+  private static @NotNull Set<Long> list(@NotNull Path worldDir) throws IOException {
+    Set<Long> regions = ConcurrentHashMap.newKeySet();
+    if (!Files.isDirectory(worldDir)) {
+      return regions;
+    }
+
+    int[] coords = new int[2];
+    try (Stream<Path> files = Files.list(worldDir)) {
+      files.forEach(file -> {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(".dat") && !name.endsWith(".yml")) {
+          return;
+        }
+        if (PackedCoords.parseKey(name.substring(0, name.length() - 4), coords)) {
+          regions.add(PackedCoords.packChunk(coords[0], coords[1]));
+        }
+      });
+    }
+    return regions;
+  }
+
+}
@@ -0,0 +1,551 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A compact binary encoding for {@link RegionStorage}.
+ *
+ * <p>A region is a header followed by length-prefixed chunk records. Each chunk record contains
+ * length-prefixed block records keyed by {@link PackedCoords packed coordinates}. Items are stored
+ * using Paper's byte serialization rather than {@link ConfigurationSerialization}, prefixed by
+ * their type and enchantment levels. They are read as {@link StoredItem StoredItems} so that they
+ * are only deserialized when needed. Any data that does not fit the chunk and block layout is
+ * retained in a trailing section keyed by path.
+ *
+ * <p>Encoded data may optionally be {@link #compress(byte[]) compressed}. Compressed data has its
+ * own header, so both forms are accepted when reading.
+ */
+public final class RegionFormat {
+
+  /** File magic, ASCII {@code EBRG}. */
+  static final int MAGIC = 0x45425247;
+  static final int VERSION = 2;
+  /** Compressed file magic, ASCII {@code EBRZ}. */
+  static final int COMPRESSED_MAGIC = 0x4542525A;
+
+  private static final byte TAG_NULL = 0;
+  private static final byte TAG_SECTION = 1;
+  private static final byte TAG_BOOLEAN = 2;
+  private static final byte TAG_INT = 3;
+  private static final byte TAG_LONG = 4;
+  private static final byte TAG_DOUBLE = 5;
+  private static final byte TAG_STRING = 6;
+  private static final byte TAG_ITEM = 7;
+  private static final byte TAG_LIST = 8;
+  private static final byte TAG_MAP = 9;
+  private static final byte TAG_SERIALIZED = 10;
+  private static final byte TAG_STORED_ITEM = 11;
+
+  /**
+   * Check if data is in the binary region format, compressed or not.
+   *
+   * @param data the raw data
+   * @return true if the data starts with a binary header
+   */
+  public static boolean isBinary(byte @NotNull [] data) {
+    if (data.length < Integer.BYTES) {
+      return false;
+    }
+    int magic = (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8
+        | (data[3] & 0xFF);
+    return magic == MAGIC || magic == COMPRESSED_MAGIC;
+  }
+
+  /**
+   * Compress encoded data.
+   *
+   * @param data the encoded data
+   * @return the compressed data
+   */
+  public static byte @NotNull [] compress(byte @NotNull [] data) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 4 + 64);
+    output.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(COMPRESSED_MAGIC).array());
+    Deflater deflater = new Deflater();
+    try (DeflaterOutputStream out = new DeflaterOutputStream(output, deflater)) {
+      out.write(data);
+    } catch (IOException e) {
+      // In-memory streams do not throw.
+      throw new UncheckedIOException(e);
+    } finally {
+      deflater.end();
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Encode a region's data.
+   *
+   * @param root the root section of the region
+   * @return the encoded data
+   * @throws IOException if a value cannot be encoded
+   */
+  public static byte @NotNull [] write(@NotNull ConfigurationSection root) throws IOException {
+    return write(root, null);
+  }
+
+  /**
+   * Encode a region's data, reusing previously encoded chunk records.
+   *
+   * <p>Chunks with an entry in the record cache are written from the cached bytes instead of being
+   * encoded again. Once written, the cache holds the records of all chunks present in the region,
+   * so callers must remove the entry for any chunk modified since it was cached.
+   *
+   * @param root the root section of the region
+   * @param chunkRecords encoded chunk records by {@link PackedCoords#packChunk packed coordinates}
+   * @return the encoded data
+   * @throws IOException if a value cannot be encoded
+   */
+  public static byte @NotNull [] write(
+      @NotNull ConfigurationSection root,
+      @Nullable Map<Long, byte[]> chunkRecords) throws IOException {
+    ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+    DataOutputStream records = new DataOutputStream(recordBuffer);
+    ByteArrayOutputStream chunkBuffer = new ByteArrayOutputStream();
+    DataOutputStream chunkOut = new DataOutputStream(chunkBuffer);
+    ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream();
+    DataOutputStream blockOut = new DataOutputStream(blockBuffer);
+
+    Map<Long, byte[]> written = new HashMap<>();
+    List<String> extras = new ArrayList<>();
+    int[] chunkCoords = new int[2];
+    int[] blockCoords = new int[3];
+    int chunkCount = 0;
+
+    for (String chunkKey : root.getKeys(false)) {
+      ConfigurationSection chunk = root.getConfigurationSection(chunkKey);
+      // Legacy keys are kept verbatim so that they cannot produce a second record for a chunk or
+      // block. They are upgraded when read.
+      if (chunk == null
+          || PackedCoords.isLegacyKey(chunkKey)
+          || !PackedCoords.parseChunkKey(chunkKey, chunkCoords)) {
+        extras.add(chunkKey);
+        continue;
+      }
+
+      long chunkPosition = PackedCoords.packChunk(chunkCoords[0], chunkCoords[1]);
+      byte[] cached = chunkRecords == null ? null : chunkRecords.get(chunkPosition);
+      if (cached != null) {
+        written.put(chunkPosition, cached);
+        if (cached.length > 0) {
+          records.write(cached);
+          ++chunkCount;
+        }
+        continue;
+      }
+
+      chunkBuffer.reset();
+      int blockCount = 0;
+      int extraCount = extras.size();
+      for (String blockKey : chunk.getKeys(false)) {
+        ConfigurationSection block = chunk.getConfigurationSection(blockKey);
+        if (block == null
+            || PackedCoords.isLegacyKey(blockKey)
+            || !PackedCoords.parseBlockKey(blockKey, blockCoords)
+            || !PackedCoords.isPackable(blockCoords[0], blockCoords[1], blockCoords[2])) {
+          extras.add(chunkKey + '.' + blockKey);
+          continue;
+        }
+
+        blockBuffer.reset();
+        writeSection(blockOut, block);
+        chunkOut.writeLong(PackedCoords.packBlock(blockCoords[0], blockCoords[1], blockCoords[2]));
+        chunkOut.writeInt(blockBuffer.size());
+        blockBuffer.writeTo(chunkOut);
+        ++blockCount;
+      }
+
+      byte[] record = new byte[0];
+      if (blockCount > 0) {
+        ByteArrayOutputStream recordBytes =
+            new ByteArrayOutputStream(Long.BYTES + Integer.BYTES * 2 + chunkBuffer.size());
+        DataOutputStream recordOut = new DataOutputStream(recordBytes);
+        recordOut.writeLong(chunkPosition);
+        recordOut.writeInt(Integer.BYTES + chunkBuffer.size());
+        recordOut.writeInt(blockCount);
+        chunkBuffer.writeTo(recordOut);
+        record = recordBytes.toByteArray();
+        records.write(record);
+        ++chunkCount;
+      }
+
+      // Chunks with stray data are always re-encoded so that their extras are not lost.
+      if (extras.size() == extraCount) {
+        written.put(chunkPosition, record);
+      }
+    }
+
+    if (chunkRecords != null) {
+      chunkRecords.clear();
+      chunkRecords.putAll(written);
+    }
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream(recordBuffer.size() + 64);
+    DataOutputStream out = new DataOutputStream(output);
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeInt(chunkCount);
+    recordBuffer.writeTo(out);
+
+    out.writeInt(extras.size());
+    for (String path : extras) {
+      writeString(out, path);
+      writeValue(out, root.get(path));
+    }
+
+    return output.toByteArray();
+  }
+
+  /**
+   * Decode a region's data.
+   *
+   * @param data the encoded data
+   * @param root the root section to populate
+   * @throws IOException if the data is not valid
+   */
+  public static void read(
+      byte @NotNull [] data,
+      @NotNull ConfigurationSection root) throws IOException {
+    read(data, root, null);
+  }
+
+  /**
+   * Decode a region's data, retaining the raw chunk records for reuse when
+   * {@link #write(ConfigurationSection, Map) writing}.
+   *
+   * @param data the encoded data
+   * @param root the root section to populate
+   * @param chunkRecords the map to populate with chunk records
+   * @throws IOException if the data is not valid
+   */
+  public static void read(
+      byte @NotNull [] data,
+      @NotNull ConfigurationSection root,
+      @Nullable Map<Long, byte[]> chunkRecords) throws IOException {
+    read(new ByteArrayInputStream(data), root, chunkRecords);
+  }
+
+  /**
+   * Decode a region's data as it is read, retaining the raw chunk records for reuse when
+   * {@link #write(ConfigurationSection, Map) writing}. Compressed data is decompressed on the fly.
+   *
+   * <p>The stream is not closed.
+   *
+   * @param input the encoded data
+   * @param root the root section to populate
+   * @param chunkRecords the map to populate with chunk records
+   * @throws IOException if the data cannot be read or is not valid
+   */
+  public static void read(
+      @NotNull InputStream input,
+      @NotNull ConfigurationSection root,
+      @Nullable Map<Long, byte[]> chunkRecords) throws IOException {
+    DataInputStream in = new DataInputStream(input);
+    int magic = in.readInt();
+    if (magic != COMPRESSED_MAGIC) {
+      readUncompressed(in, magic, root, chunkRecords);
+      return;
+    }
+
+    Inflater inflater = new Inflater();
+    try {
+      DataInputStream inflated = new DataInputStream(
+          new BufferedInputStream(new InflaterInputStream(input, inflater)));
+      readUncompressed(inflated, inflated.readInt(), root, chunkRecords);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static void readUncompressed(
+      @NotNull DataInputStream in,
+      int magic,
+      @NotNull ConfigurationSection root,
+      @Nullable Map<Long, byte[]> chunkRecords) throws IOException {
+    if (magic != MAGIC) {
+      throw new IOException("Data is not in binary region format");
+    }
+    int version = in.readUnsignedByte();
+    if (version > VERSION) {
+      throw new IOException("Unsupported region format version " + version);
+    }
+
+    int chunkCount = in.readInt();
+    for (int chunkIndex = 0; chunkIndex < chunkCount; ++chunkIndex) {
+      long chunk = in.readLong();
+      int chunkLength = in.readInt();
+      if (chunkLength < Integer.BYTES) {
+        throw new IOException("Invalid chunk record length " + chunkLength);
+      }
+
+      // Records are read whole so that they can be reused without encoding them again.
+      byte[] record = new byte[Long.BYTES + Integer.BYTES + chunkLength];
+      ByteBuffer.wrap(record).putLong(chunk).putInt(chunkLength);
+      in.readFully(record, Long.BYTES + Integer.BYTES, chunkLength);
+      DataInputStream recordIn = new DataInputStream(
+          new ByteArrayInputStream(record, Long.BYTES + Integer.BYTES, chunkLength));
+
+      // Records are keyed by packed coordinates, which are also the storage keys.
+      ConfigurationSection chunkSection = root.createSection(Long.toString(chunk));
+
+      int blockCount = recordIn.readInt();
+      for (int blockIndex = 0; blockIndex < blockCount; ++blockIndex) {
+        long block = recordIn.readLong();
+        int blockLength = recordIn.readInt();
+        int blockStart = recordIn.available();
+        readSection(recordIn, chunkSection.createSection(Long.toString(block)));
+        checkLength(blockStart - recordIn.available(), blockLength);
+      }
+      checkLength(chunkLength - recordIn.available(), chunkLength);
+      if (chunkRecords != null) {
+        chunkRecords.put(chunk, record);
+      }
+    }
+
+    int extraCount = in.readInt();
+    for (int i = 0; i < extraCount; ++i) {
+      String path = readString(in);
+      byte tag = in.readByte();
+      if (tag == TAG_SECTION) {
+        readSection(in, root.createSection(path));
+      } else {
+        root.set(path, readValue(in, tag));
+      }
+    }
+  }
+
+  private static void checkLength(int actual, int expected) throws IOException {
+    if (actual != expected) {
+      throw new IOException("Record length mismatch: expected " + expected + ", read " + actual);
+    }
+  }
+
+  /**
+   * Encode the contents of a {@link ConfigurationSection}.
+   *
+   * @param out the output
+   * @param section the section to encode
+   * @throws IOException if a value cannot be encoded
+   */
+  public static void writeSection(
+      @NotNull DataOutput out,
+      @NotNull ConfigurationSection section) throws IOException {
+    var keys = section.getKeys(false);
+    out.writeInt(keys.size());
+    for (String key : keys) {
+      writeString(out, key);
+      writeValue(out, section.get(key));
+    }
+  }
+
+  /**
+   * Decode the contents of a {@link ConfigurationSection}.
+   *
+   * @param in the input
+   * @param section the section to populate
+   * @throws IOException if the data is not valid
+   */
+  public static void readSection(
+      @NotNull DataInput in,
+      @NotNull ConfigurationSection section) throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; ++i) {
+      String key = readString(in);
+      byte tag = in.readByte();
+      if (tag == TAG_SECTION) {
+        readSection(in, section.createSection(key));
+      } else {
+        section.set(key, readValue(in, tag));
+      }
+    }
+  }
+
+  private static void writeValue(@NotNull DataOutput out, @Nullable Object value)
+      throws IOException {
+    switch (value) {
+      case null -> out.writeByte(TAG_NULL);
+      case ConfigurationSection section -> {
+        out.writeByte(TAG_SECTION);
+        writeSection(out, section);
+      }
+      case Boolean bool -> {
+        out.writeByte(TAG_BOOLEAN);
+        out.writeBoolean(bool);
+      }
+      case Integer integer -> writeInt(out, integer);
+      case Short shortValue -> writeInt(out, shortValue);
+      case Byte byteValue -> writeInt(out, byteValue);
+      case Long longValue -> {
+        out.writeByte(TAG_LONG);
+        out.writeLong(longValue);
+      }
+      case Double doubleValue -> writeDouble(out, doubleValue);
+      case Float floatValue -> writeDouble(out, floatValue);
+      case String string -> {
+        out.writeByte(TAG_STRING);
+        writeString(out, string);
+      }
+      case Character character -> {
+        out.writeByte(TAG_STRING);
+        writeString(out, character.toString());
+      }
+      case ItemStack itemStack -> writeItem(out, StoredItem.of(itemStack));
+      case StoredItem storedItem -> writeItem(out, storedItem);
+      case List<?> list -> {
+        out.writeByte(TAG_LIST);
+        out.writeInt(list.size());
+        for (Object element : list) {
+          writeValue(out, element);
+        }
+      }
+      case Map<?, ?> map -> {
+        out.writeByte(TAG_MAP);
+        writeMap(out, map);
+      }
+      case ConfigurationSerializable serializable -> {
+        Map<String, Object> serialized = new LinkedHashMap<>();
+        serialized.put(
+            ConfigurationSerialization.SERIALIZED_TYPE_KEY,
+            ConfigurationSerialization.getAlias(serializable.getClass()));
+        serialized.putAll(serializable.serialize());
+        out.writeByte(TAG_SERIALIZED);
+        writeMap(out, serialized);
+      }
+      default -> throw new IOException("Unsupported value type " + value.getClass().getName());
+    }
+  }
+
+  private static void writeItem(@NotNull DataOutput out, @NotNull StoredItem item)
+      throws IOException {
+    if (!item.isSummarized()) {
+      // Keep items from older data as-is rather than deserializing them just to write them.
+      byte[] bytes = item.getBytes();
+      out.writeByte(TAG_ITEM);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+      return;
+    }
+
+    out.writeByte(TAG_STORED_ITEM);
+    // Type and enchantments precede the item so loading blocks does not require deserializing it.
+    writeString(out, item.getTypeName());
+    Map<String, Integer> enchantments = item.getEnchantments();
+    out.writeInt(enchantments.size());
+    for (Map.Entry<String, Integer> entry : enchantments.entrySet()) {
+      writeString(out, entry.getKey());
+      out.writeInt(entry.getValue());
+    }
+    byte[] bytes = item.getBytes();
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writeInt(@NotNull DataOutput out, int value) throws IOException {
+    out.writeByte(TAG_INT);
+    out.writeInt(value);
+  }
+
+  private static void writeDouble(@NotNull DataOutput out, double value) throws IOException {
+    out.writeByte(TAG_DOUBLE);
+    out.writeDouble(value);
+  }
+
+  private static void writeMap(@NotNull DataOutput out, @NotNull Map<?, ?> map)
+      throws IOException {
+    out.writeInt(map.size());
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      writeString(out, String.valueOf(entry.getKey()));
+      writeValue(out, entry.getValue());
+    }
+  }
+
+  private static @Nullable Object readValue(@NotNull DataInput in, byte tag) throws IOException {
+    return switch (tag) {
+      case TAG_NULL -> null;
+      case TAG_BOOLEAN -> in.readBoolean();
+      case TAG_INT -> in.readInt();
+      case TAG_LONG -> in.readLong();
+      case TAG_DOUBLE -> in.readDouble();
+      case TAG_STRING -> readString(in);
+      case TAG_ITEM -> {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        yield StoredItem.of(bytes);
+      }
+      case TAG_STORED_ITEM -> {
+        String typeName = readString(in);
+        int enchantmentCount = in.readInt();
+        Map<String, Integer> enchantments = new HashMap<>(enchantmentCount);
+        for (int i = 0; i < enchantmentCount; ++i) {
+          enchantments.put(readString(in), in.readInt());
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        yield StoredItem.of(bytes, typeName, enchantments);
+      }
+      case TAG_LIST -> {
+        int size = in.readInt();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+          list.add(readValue(in, in.readByte()));
+        }
+        yield list;
+      }
+      // Sections nested in lists or maps have no parent section to attach to.
+      case TAG_SECTION, TAG_MAP -> readMap(in);
+      case TAG_SERIALIZED -> ConfigurationSerialization.deserializeObject(readMap(in));
+      default -> throw new IOException("Unknown value tag " + tag);
+    };
+  }
+
+  private static @NotNull Map<String, Object> readMap(@NotNull DataInput in) throws IOException {
+    int size = in.readInt();
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (int i = 0; i < size; ++i) {
+      String key = readString(in);
+      map.put(key, readValue(in, in.readByte()));
+    }
+    return map;
+  }
+
+  private static void writeString(@NotNull DataOutput out, @NotNull String value)
+      throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static @NotNull String readString(@NotNull DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private RegionFormat() {}
+
+}
@@ -0,0 +1,453 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+/**
+ * An executor for region file operations.
+ *
+ * <p>Work is split into lanes by {@link Region}, so operations on the same region always run in
+ * submission order. Each lane has a bounded queue; when it is full, the submitting thread blocks
+ * until space is available. Once {@link #shutdown(long, TimeUnit) shut down}, or if constructed
+ * with no lanes, all operations run synchronously on the calling thread. If queued operations do
+ * not finish while shutting down, further operations are rejected until they do.
+ *
+ * <p>Consecutive {@link #submitWrite(RegionStorage, byte[]) writes} to a region that are requested
+ * before the previous write starts are coalesced into a single write of the latest data.
+ */
+public class RegionIoExecutor {
+
+  private final @NotNull ThreadPoolExecutor @NotNull [] lanes;
+  private final @Nullable ScheduledExecutorService delayer;
+  private final long coalesceWindowMillis;
+  private final @NotNull Map<Region, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+  private final @NotNull LongAdder writes = new LongAdder();
+  private final @NotNull LongAdder coalescedWrites = new LongAdder();
+  private final @NotNull LongAdder writeNanos = new LongAdder();
+  private final @NotNull LongAccumulator maxWriteNanos = new LongAccumulator(Math::max, 0);
+  private final @NotNull LongAdder failures = new LongAdder();
+  private volatile boolean shutdown = false;
+
+  /**
+   * Construct a new {@code RegionIoExecutor} that does not delay writes.
+   *
+   * @param threads the number of lanes, each backed by a virtual thread
+   * @param queueSize the maximum number of queued operations per lane
+   */
+  public RegionIoExecutor(
+      @Range(from = 0, to = Integer.MAX_VALUE) int threads,
+      @Range(from = 1, to = Integer.MAX_VALUE) int queueSize) {
+    this(threads, queueSize, 0);
+  }
+
+  /**
+   * Construct a new {@code RegionIoExecutor}.
+   *
+   * @param threads the number of lanes, each backed by a virtual thread
+   * @param queueSize the maximum number of queued operations per lane
+   * @param coalesceWindowMillis the time writes are held to absorb further writes to the region
+   */
+  public RegionIoExecutor(
+      @Range(from = 0, to = Integer.MAX_VALUE) int threads,
+      @Range(from = 1, to = Integer.MAX_VALUE) int queueSize,
+      @Range(from = 0, to = Long.MAX_VALUE) long coalesceWindowMillis) {
+    this.lanes = new ThreadPoolExecutor[Math.max(0, threads)];
+    this.coalesceWindowMillis = Math.max(0, coalesceWindowMillis);
+    if (lanes.length > 0 && this.coalesceWindowMillis > 0) {
+      this.delayer = Executors.newSingleThreadScheduledExecutor(
+          Thread.ofVirtual().name("EnchantableBlocks-IO-delay").factory());
+    } else {
+      this.delayer = null;
+    }
+    RejectedExecutionHandler blockOnFull = RegionIoExecutor::awaitCapacity;
+    for (int i = 0; i < lanes.length; ++i) {
+      ThreadPoolExecutor lane = new ThreadPoolExecutor(
+          1,
+          1,
+          30,
+          TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+          Thread.ofVirtual().name("EnchantableBlocks-IO-" + i).factory(),
+          blockOnFull);
+      lane.allowCoreThreadTimeOut(true);
+      lanes[i] = lane;
+    }
+  }
+
+  /**
+   * Construct a {@code RegionIoExecutor} that runs all operations on the calling thread.
+   *
+   * @return the synchronous executor
+   */
+  public static @NotNull RegionIoExecutor synchronous() {
+    return new RegionIoExecutor(0, 1);
+  }
+
+  private static void awaitCapacity(Runnable task, ThreadPoolExecutor executor) {
+    if (executor.isShutdown()) {
+      throw new RejectedExecutionException("Executor is shut down");
+    }
+    try {
+      executor.getQueue().put(task);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted while waiting for queue capacity", e);
+    }
+  }
+
+  /**
+   * Check if operations are currently run on another thread.
+   *
+   * @return true if operations are asynchronous
+   */
+  public boolean isAsync() {
+    return !shutdown && lanes.length > 0;
+  }
+
+  /**
+   * Submit an operation for a {@link Region}.
+   *
+   * <p>Operations for the same region are run in the order they are submitted.
+   *
+   * @param region the region the operation concerns
+   * @param task the operation
+   * @param <T> the type of result
+   * @return a future completed with the result of the operation
+   */
+  public <T> @NotNull CompletableFuture<T> submit(
+      @NotNull Region region,
+      @NotNull Callable<T> task) {
+    // Any held write must happen before this operation to preserve ordering.
+    PendingWrite pending = pendingWrites.get(region);
+    if (pending != null) {
+      release(pending);
+    }
+
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      execute(region, () -> complete(future, task));
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Submit an operation that is not tied to a single {@link Region}, such as a scan of every region
+   * in a world.
+   *
+   * <p>The operation runs on its own thread so that it does not hold up any lane, and it is not
+   * ordered with other operations.
+   *
+   * @param task the operation
+   * @param <T> the type of result
+   * @return a future completed with the result of the operation
+   */
+  public <T> @NotNull CompletableFuture<T> submitUnordered(@NotNull Callable<T> task) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    if (!isAsync()) {
+      complete(future, task);
+      return future;
+    }
+
+    Thread.ofVirtual()
+        .name("EnchantableBlocks-IO-unordered")
+        .start(() -> complete(future, task));
+    return future;
+  }
+
+  /**
+   * Submit a write of {@link RegionStorage#encode() encoded} data for a {@link RegionStorage}.
+   *
+   * <p>If a write for the same region is still waiting to run, its data is replaced and no
+   * additional write is queued.
+   *
+   * @param storage the storage to write to
+   * @param data the encoded data
+   * @return a future completed once the data, or newer data, is written
+   */
+  public @NotNull CompletableFuture<Void> submitWrite(
+      @NotNull RegionStorage storage,
+      byte @NotNull [] data) {
+    Region region = storage.getRegion();
+    if (!isAsync()) {
+      PendingWrite write = new PendingWrite(region, storage, data);
+      write.run();
+      return write.future;
+    }
+
+    PendingWrite[] created = new PendingWrite[1];
+    PendingWrite pending = pendingWrites.compute(region, (key, existing) -> {
+      if (existing != null && existing.replace(storage, data)) {
+        coalescedWrites.increment();
+        return existing;
+      }
+      created[0] = new PendingWrite(region, storage, data);
+      return created[0];
+    });
+
+    if (created[0] != null) {
+      if (delayer == null) {
+        release(pending);
+      } else {
+        try {
+          delayer.schedule(() -> release(pending), coalesceWindowMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+          // Shutting down. Write immediately instead.
+          release(pending);
+        }
+      }
+    }
+
+    return pending.future;
+  }
+
+  private void execute(@NotNull Region region, @NotNull Runnable task) {
+    if (!isAsync()) {
+      task.run();
+      return;
+    }
+
+    ThreadPoolExecutor lane = lanes[Math.floorMod(region.hashCode(), lanes.length)];
+    try {
+      lane.execute(task);
+    } catch (RejectedExecutionException e) {
+      // Lanes were shut down between the check and submission. Running on the caller is only
+      // safe once earlier operations for the region are finished.
+      if (!lane.isTerminated()) {
+        throw e;
+      }
+      task.run();
+    }
+  }
+
+  private void release(@NotNull PendingWrite pending) {
+    // Once queued, later operations are ordered after the write, so it must not absorb newer data.
+    pendingWrites.remove(pending.region, pending);
+    try {
+      execute(pending.region, pending);
+    } catch (RejectedExecutionException e) {
+      pending.reject(e);
+    }
+  }
+
+  private <T> void complete(
+      @NotNull CompletableFuture<T> future,
+      @NotNull Callable<T> task) {
+    try {
+      future.complete(task.call());
+    } catch (Exception e) {
+      failures.increment();
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Release all held writes and wait for every operation submitted so far.
+   *
+   * @return a future completed once prior operations finish, or completed exceptionally if any
+   *     operation failed in the meantime
+   */
+  public @NotNull CompletableFuture<Void> flush() {
+    long failed = failures.sum();
+
+    for (PendingWrite pending : pendingWrites.values()) {
+      release(pending);
+    }
+
+    CompletableFuture<?>[] barriers = new CompletableFuture<?>[lanes.length];
+    for (int i = 0; i < lanes.length; ++i) {
+      CompletableFuture<Void> barrier = new CompletableFuture<>();
+      try {
+        lanes[i].execute(() -> barrier.complete(null));
+      } catch (RejectedExecutionException e) {
+        // Lane is shutting down. Earlier operations are only known to be done once it terminates.
+        if (lanes[i].isTerminated()) {
+          barrier.complete(null);
+        } else {
+          barrier.completeExceptionally(e);
+        }
+      }
+      barriers[i] = barrier;
+    }
+
+    return CompletableFuture.allOf(barriers).thenRun(() -> {
+      if (failures.sum() != failed) {
+        throw new IllegalStateException("Region operations failed during flush");
+      }
+    });
+  }
+
+  /**
+   * Finish all queued operations and switch to running operations on the calling thread.
+   *
+   * <p>If queued operations do not complete in time, further operations are rejected rather than
+   * run out of order on the calling thread. Shutting down again waits for them once more.
+   *
+   * @param timeout the maximum time to wait for queued operations
+   * @param unit the unit of the timeout
+   * @return true if all queued operations completed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean shutdown(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+    if (delayer != null) {
+      delayer.shutdownNow();
+    }
+
+    // Release held writes immediately rather than waiting out the window.
+    for (PendingWrite pending : pendingWrites.values()) {
+      release(pending);
+    }
+
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    boolean terminated = true;
+    for (ThreadPoolExecutor lane : lanes) {
+      terminated &= lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    if (terminated) {
+      shutdown = true;
+    }
+    return terminated;
+  }
+
+  /**
+   * Get statistics for writes performed so far.
+   *
+   * @return the write statistics
+   */
+  public @NotNull WriteStats getWriteStats() {
+    return new WriteStats(
+        writes.sum(),
+        coalescedWrites.sum(),
+        writeNanos.sum(),
+        maxWriteNanos.get());
+  }
+
+  /**
+   * Statistics about region writes.
+   *
+   * @param writes the number of writes performed
+   * @param coalesced the number of requested writes absorbed by another write
+   * @param totalNanos the total time spent writing
+   * @param maxNanos the longest time spent on a single write
+   */
+  public record WriteStats(long writes, long coalesced, long totalNanos, long maxNanos) {
+
+    /**
+     * Get the mean time spent on a single write.
+     *
+     * @return the mean write time in milliseconds
+     */
+    public double averageMillis() {
+      return writes == 0 ? 0 : totalNanos / (double) writes / 1_000_000D;
+    }
+
+    /**
+     * Get the longest time spent on a single write.
+     *
+     * @return the maximum write time in milliseconds
+     */
+    public double maxMillis() {
+      return maxNanos / 1_000_000D;
+    }
+
+  }
+
+  /**
+   * A write that may be replaced with newer data until it starts.
+   */
+  private final class PendingWrite implements Runnable {
+
+    private final @NotNull Region region;
+    private final @NotNull CompletableFuture<Void> future = new CompletableFuture<>();
+    private @Nullable RegionStorage storage;
+    private byte @Nullable [] data;
+    private boolean started = false;
+
+    private PendingWrite(
+        @NotNull Region region,
+        @NotNull RegionStorage storage,
+        byte @NotNull [] data) {
+      this.region = region;
+      this.storage = storage;
+      this.data = data;
+    }
+
+    private synchronized boolean replace(@NotNull RegionStorage storage, byte @NotNull [] data) {
+      if (started) {
+        return false;
+      }
+      this.storage = storage;
+      this.data = data;
+      return true;
+    }
+
+    private void reject(@NotNull RejectedExecutionException cause) {
+      synchronized (this) {
+        if (started) {
+          return;
+        }
+        started = true;
+        storage = null;
+        data = null;
+      }
+      pendingWrites.remove(region, this);
+      failures.increment();
+      future.completeExceptionally(cause);
+    }
+
+    @Override
+    public void run() {
+      RegionStorage target;
+      byte[] latest;
+      synchronized (this) {
+        // May be run more than once when flushed ahead of another operation.
+        if (started) {
+          return;
+        }
+        started = true;
+        target = storage;
+        latest = data;
+        storage = null;
+        data = null;
+      }
+      pendingWrites.remove(region, this);
+
+      long start = System.nanoTime();
+      try {
+        Objects.requireNonNull(target).write(Objects.requireNonNull(latest));
+        future.complete(null);
+      } catch (Exception e) {
+        failures.increment();
+        future.completeExceptionally(e);
+      } finally {
+        long elapsed = System.nanoTime() - start;
+        writes.increment();
+        writeNanos.add(elapsed);
+        maxWriteNanos.accumulate(elapsed);
+      }
+    }
+
+  }
+
+}
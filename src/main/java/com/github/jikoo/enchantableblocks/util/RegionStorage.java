@@ -1,24 +1,47 @@
 package com.github.jikoo.enchantableblocks.util;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A simplified way of managing a {@link YamlConfiguration} per Minecraft region.
+ *
+ * <p>Data is stored on disk in the binary {@link RegionFormat}, optionally compressed. Legacy YAML
+ * files are still read, and are replaced by the binary format on the next save.
+ *
+ * <p>Chunks and blocks are keyed by {@link PackedCoords#chunkKey(int, int) packed coordinates}.
+ * Data stored under legacy underscore-separated keys is moved to numeric keys when loaded.
  */
 public class RegionStorage extends YamlConfiguration {
 
+  private static final String TEMP_SUFFIX = ".tmp";
+
   private final @NotNull Path dataDir;
   private final @NotNull Region region;
+  private final @NotNull Map<Long, byte[]> chunkRecords = new HashMap<>();
+  private boolean legacy = false;
+  private volatile boolean compressed = false;
 
   /**
    * Construct a new {@code RegionStorage}.
@@ -47,33 +70,304 @@ public class RegionStorage extends YamlConfiguration {
   /**
    * Load the configuration from the default location on disk.
    *
-   * <p>Note that if the file is not present, an empty configuration will be returned instead.
+   * <p>If no binary data is present, the legacy YAML file is loaded instead. Note that if neither
+   * file is present, an empty configuration will be returned instead.
    *
    * @throws IOException if there is an issue reading from disk
    * @throws InvalidConfigurationException if the configuration is not valid
-   * @see YamlConfiguration#load(File)
+   * @see #load(File)
    */
   public void load() throws IOException, InvalidConfigurationException {
     File dataFile = getDataFile();
     if (dataFile.exists()) {
       load(dataFile);
+      return;
+    }
+
+    File legacyFile = getLegacyDataFile();
+    if (legacyFile.exists()) {
+      load(legacyFile);
+    }
+  }
+
+  /**
+   * Load the configuration from a file on disk.
+   *
+   * <p>The format is detected from the file header, so both binary and legacy YAML data are
+   * accepted.
+   *
+   * @param file the file to load from
+   * @throws IOException if there is an issue reading from disk
+   * @throws InvalidConfigurationException if the data is not valid
+   */
+  @Override
+  public void load(@NotNull File file) throws IOException, InvalidConfigurationException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+      load(in);
+    }
+  }
+
+  /**
+   * Load the configuration from raw file contents.
+   *
+   * @param data the file contents
+   * @throws InvalidConfigurationException if the data is not valid
+   */
+  public void load(byte @NotNull [] data) throws InvalidConfigurationException {
+    try {
+      load(new ByteArrayInputStream(data));
+    } catch (IOException e) {
+      // Only thrown for binary data, as in-memory streams do not fail.
+      throw new InvalidConfigurationException("Invalid region data", e);
+    }
+  }
+
+  /**
+   * Load the configuration from a stream. Binary data is decoded as it is read.
+   *
+   * @param in the stream, which must support {@link InputStream#mark(int) marking}
+   * @throws IOException if the stream cannot be read
+   * @throws InvalidConfigurationException if the data is not valid
+   */
+  private void load(@NotNull InputStream in) throws IOException, InvalidConfigurationException {
+    chunkRecords.clear();
+    in.mark(Integer.BYTES);
+    byte[] header = in.readNBytes(Integer.BYTES);
+    in.reset();
+
+    if (!RegionFormat.isBinary(header)) {
+      loadFromString(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      upgradeLegacyKeys();
+      legacy = true;
+      return;
+    }
+
+    for (String key : getKeys(false)) {
+      set(key, null);
+    }
+
+    try {
+      RegionFormat.read(in, this, chunkRecords);
+    } catch (IOException e) {
+      chunkRecords.clear();
+      throw new InvalidConfigurationException("Invalid region data", e);
+    }
+    // Stray data may still be stored under legacy chunk keys.
+    if (upgradeLegacyKeys()) {
+      chunkRecords.clear();
+    }
+    legacy = false;
+  }
+
+  /**
+   * Move data stored under legacy underscore-separated keys to
+   * {@link PackedCoords#chunkKey(int, int) numeric keys}. Entries that cannot be represented by a
+   * numeric key are left in place.
+   *
+   * @return true if any data was moved
+   */
+  private boolean upgradeLegacyKeys() {
+    boolean upgraded = false;
+    int[] chunkCoords = new int[2];
+    int[] blockCoords = new int[3];
+    for (String chunkKey : getKeys(false)) {
+      ConfigurationSection chunk = getConfigurationSection(chunkKey);
+      if (chunk == null) {
+        continue;
+      }
+
+      ConfigurationSection target = chunk;
+      if (PackedCoords.isLegacyKey(chunkKey) && PackedCoords.parseKey(chunkKey, chunkCoords)) {
+        String key = PackedCoords.chunkKey(chunkCoords[0], chunkCoords[1]);
+        target = isConfigurationSection(key) ? getConfigurationSection(key) : createSection(key);
+        set(chunkKey, null);
+        upgraded = true;
+      }
+
+      for (String blockKey : chunk.getKeys(false)) {
+        String key = blockKey;
+        if (PackedCoords.isLegacyKey(blockKey)
+            && PackedCoords.parseKey(blockKey, blockCoords)
+            && PackedCoords.isPackable(blockCoords[0], blockCoords[1], blockCoords[2])) {
+          key = PackedCoords.blockKey(blockCoords[0], blockCoords[1], blockCoords[2]);
+        } else if (target == chunk) {
+          continue;
+        }
+
+        move(chunk, blockKey, Objects.requireNonNull(target), key);
+        upgraded = true;
+      }
     }
+    return upgraded;
+  }
+
+  /**
+   * Move a value between {@link ConfigurationSection ConfigurationSections}. Child sections are
+   * recreated rather than moved, as sections are bound to their parent.
+   *
+   * @param from the source section
+   * @param fromKey the key of the value in the source section
+   * @param to the destination section
+   * @param toKey the key of the value in the destination section
+   */
+  private static void move(
+      @NotNull ConfigurationSection from,
+      @NotNull String fromKey,
+      @NotNull ConfigurationSection to,
+      @NotNull String toKey) {
+    ConfigurationSection section = from.getConfigurationSection(fromKey);
+    Object value = from.get(fromKey);
+    from.set(fromKey, null);
+    if (section == null) {
+      to.set(toKey, value);
+      return;
+    }
+
+    ConfigurationSection created = to.createSection(toKey);
+    for (String key : section.getKeys(false)) {
+      move(section, key, created, key);
+    }
+  }
+
+  /**
+   * Check if data is compressed when written.
+   *
+   * @return true if data is compressed
+   */
+  public boolean isCompressed() {
+    return compressed;
+  }
+
+  /**
+   * Set whether data is compressed when written. Data is readable either way.
+   *
+   * @param compressed true if data should be compressed
+   */
+  public void setCompressed(boolean compressed) {
+    this.compressed = compressed;
+  }
+
+  /**
+   * Check if the configuration was loaded from the legacy YAML format and has not yet been
+   * upgraded.
+   *
+   * @return true if the data is still stored as YAML
+   */
+  public boolean isLegacy() {
+    return legacy;
+  }
+
+  /**
+   * Check if data is stored on disk in either format.
+   *
+   * @return true if a data file exists
+   */
+  public boolean exists() {
+    return getDataFile().exists() || getLegacyDataFile().exists();
   }
 
   /**
    * Save the configuration to the default location on disk.
    *
+   * <p>If a legacy YAML file is present, it is removed once the binary data is written.
+   *
    * @throws IOException if there is an issue writing the file to disk
    */
   public void save() throws IOException {
-    save(getDataFile());
+    write(encode());
+    legacy = false;
   }
 
   /**
-   * Save the configuration to disk.
+   * Encode the configuration in the binary {@link RegionFormat}.
+   *
+   * <p>The result is a snapshot that may be {@link #write(byte[]) written} from another thread.
+   *
+   * @return the encoded data
+   * @throws IOException if a value cannot be encoded
+   */
+  public byte @NotNull [] encode() throws IOException {
+    chunkRecords.clear();
+    return RegionFormat.write(this, chunkRecords);
+  }
+
+  /**
+   * Encode the configuration in the binary {@link RegionFormat}, only re-encoding chunks that were
+   * {@link #invalidateChunk(int, int) invalidated} since they were last loaded or encoded.
+   *
+   * <p>Unchanged chunks reuse their previously encoded bytes. Callers are responsible for
+   * invalidating every chunk they modify; modifications to other chunks will not be written.
    *
-   * <p>Very similar to the overriden method, however, leverages {@link java.nio} features instead
-   * of beta Google APIs.
+   * @return the encoded data
+   * @throws IOException if a value cannot be encoded
+   */
+  public byte @NotNull [] encodeChanged() throws IOException {
+    return RegionFormat.write(this, chunkRecords);
+  }
+
+  /**
+   * Mark a chunk's data as modified so that it is re-encoded by {@link #encodeChanged()}.
+   *
+   * @param chunkX the chunk X coordinate
+   * @param chunkZ the chunk Z coordinate
+   */
+  public void invalidateChunk(int chunkX, int chunkZ) {
+    chunkRecords.remove(PackedCoords.packChunk(chunkX, chunkZ));
+  }
+
+  /**
+   * Write {@link #encode() encoded} data to the default location on disk.
+   *
+   * <p>If a legacy YAML file is present, it is removed once the binary data is written. This does
+   * not access the configuration's contents, so it is safe to call from any thread. If enabled,
+   * compression is performed here rather than when encoding.
+   *
+   * @param data the encoded data
+   * @throws IOException if there is an issue writing the file to disk
+   * @see #writeAtomically(Path, byte[])
+   */
+  public void write(byte @NotNull [] data) throws IOException {
+    writeAtomically(getDataFile().toPath(), compressed ? RegionFormat.compress(data) : data);
+    Files.deleteIfExists(getLegacyDataFile().toPath());
+  }
+
+  /**
+   * Replace a file's contents without risking a partially written file.
+   *
+   * <p>Data is written to a temporary file beside the target and synced to disk before being
+   * moved into place. If the file system cannot move atomically, a plain replacement is used.
+   *
+   * @param path the file to write
+   * @param data the file contents
+   * @throws IOException if there is an issue writing to disk
+   */
+  private static void writeAtomically(@NotNull Path path, byte @NotNull [] data)
+      throws IOException {
+    path = path.normalize();
+    Files.createDirectories(path.getParent());
+    Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+
+    try (FileChannel channel = FileChannel.open(
+        temp,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+
+    try {
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Save the configuration to disk in the binary {@link RegionFormat}.
    *
    * @param file the file to save to on disk
    * @throws IOException if there is an issue writing to disk
@@ -81,14 +375,43 @@ public class RegionStorage extends YamlConfiguration {
    */
   @Override
   public void save(@NotNull File file) throws IOException {
-    Files.createDirectories(file.toPath().normalize().getParent());
+    byte[] data = encode();
+    writeAtomically(file.toPath(), compressed ? RegionFormat.compress(data) : data);
+  }
 
-    String yamlData = saveToString();
+  /**
+   * Delete all data for the region from disk.
+   *
+   * <p>To delete from another thread, {@link #discardEncoded()} on the owning thread and then
+   * {@link #deleteFiles()}.
+   *
+   * @throws IOException if there is an issue deleting files
+   */
+  public void delete() throws IOException {
+    discardEncoded();
+    deleteFiles();
+  }
 
-    try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file),
-        StandardCharsets.UTF_8)) {
-      writer.write(yamlData);
-    }
+  /**
+   * Discard previously encoded chunks and the legacy state ahead of the region being deleted.
+   */
+  public void discardEncoded() {
+    chunkRecords.clear();
+    legacy = false;
+  }
+
+  /**
+   * Delete the region's files from disk.
+   *
+   * <p>This does not access the configuration's contents, so it is safe to call from any thread.
+   *
+   * @throws IOException if there is an issue deleting files
+   */
+  public void deleteFiles() throws IOException {
+    Path dataPath = getDataFile().toPath();
+    Files.deleteIfExists(dataPath);
+    Files.deleteIfExists(dataPath.resolveSibling(dataPath.getFileName() + TEMP_SUFFIX));
+    Files.deleteIfExists(getLegacyDataFile().toPath());
   }
 
   /**
@@ -97,10 +420,23 @@ public class RegionStorage extends YamlConfiguration {
    * @return the location on disk
    */
   public File getDataFile() {
+    return getFile("dat");
+  }
+
+  /**
+   * Get the legacy YAML storage location on disk.
+   *
+   * @return the location on disk
+   */
+  public File getLegacyDataFile() {
+    return getFile("yml");
+  }
+
+  private @NotNull File getFile(@NotNull String extension) {
     return dataDir
         .resolve(Path.of(
             region.worldName(),
-            String.format("%1$s_%2$s.yml", region.x(), region.z())
+            String.format("%1$s_%2$s.%3$s", region.x(), region.z(), extension)
         )).toFile();
   }
 
@@ -113,4 +449,18 @@ public class RegionStorage extends YamlConfiguration {
     return this.region;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Items read from the binary format are kept serialized as {@link StoredItem StoredItems}
+   * until needed; this deserializes a copy.
+   */
+  @Override
+  public @Nullable ItemStack getItemStack(@NotNull String path, @Nullable ItemStack def) {
+    if (get(path) instanceof StoredItem storedItem) {
+      return storedItem.toItemStack();
+    }
+    return super.getItemStack(path, def);
+  }
+
 }
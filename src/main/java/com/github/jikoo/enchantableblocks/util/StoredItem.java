@@ -0,0 +1,243 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An {@link ItemStack} that is only deserialized when it is actually needed.
+ *
+ * <p>Loading a stored block only requires the item's type and enchantment levels. Those are kept
+ * alongside the serialized item so that blocks can be validated and created without paying for a
+ * full deserialization on every chunk load. Items read from data that predates the summary decode
+ * once to extract it.
+ */
+public final class StoredItem {
+
+  private byte @Nullable [] bytes;
+  private final @Nullable ItemStack itemStack;
+  private @Nullable String typeName;
+  private @Nullable Map<String, Integer> enchantments;
+  private @Nullable ItemStack comparison;
+
+  private StoredItem(
+      byte @Nullable [] bytes,
+      @Nullable ItemStack itemStack,
+      @Nullable String typeName,
+      @Nullable Map<String, Integer> enchantments) {
+    this.bytes = bytes;
+    this.itemStack = itemStack;
+    this.typeName = typeName;
+    this.enchantments = enchantments;
+  }
+
+  /**
+   * Create a {@code StoredItem} from serialized data and its summary.
+   *
+   * @param bytes the serialized item
+   * @param typeName the {@link Material#name() name} of the item's type
+   * @param enchantments the item's enchantment levels keyed by enchantment key
+   * @return the {@code StoredItem}
+   */
+  static @NotNull StoredItem of(
+      byte @NotNull [] bytes,
+      @NotNull String typeName,
+      @NotNull Map<String, Integer> enchantments) {
+    return new StoredItem(bytes, null, typeName, Map.copyOf(enchantments));
+  }
+
+  /**
+   * Create a {@code StoredItem} from serialized data with no summary. The summary is extracted
+   * when first needed.
+   *
+   * @param bytes the serialized item
+   * @return the {@code StoredItem}
+   */
+  static @NotNull StoredItem of(byte @NotNull [] bytes) {
+    return new StoredItem(bytes, null, null, null);
+  }
+
+  /**
+   * Create a {@code StoredItem} for an {@link ItemStack} that is already deserialized.
+   *
+   * @param itemStack the {@code ItemStack}
+   * @return the {@code StoredItem}
+   */
+  public static @NotNull StoredItem of(@NotNull ItemStack itemStack) {
+    return new StoredItem(null, itemStack, null, null);
+  }
+
+  /**
+   * Get a {@code StoredItem} from a {@link ConfigurationSection}.
+   *
+   * @param section the {@code ConfigurationSection}
+   * @param path the path of the item
+   * @return the {@code StoredItem} or {@code null} if the value is not an item
+   */
+  public static @Nullable StoredItem get(
+      @NotNull ConfigurationSection section,
+      @NotNull String path) {
+    Object value = section.get(path);
+    if (value instanceof StoredItem storedItem) {
+      return storedItem;
+    }
+    ItemStack itemStack = section.getItemStack(path);
+    return itemStack == null ? null : of(itemStack);
+  }
+
+  /**
+   * Get an {@link ItemStack} from a {@link ConfigurationSection}, deserializing it if necessary.
+   *
+   * @param section the {@code ConfigurationSection}
+   * @param path the path of the item
+   * @return the {@code ItemStack} or {@code null} if the value is not an item
+   */
+  public static @Nullable ItemStack getItemStack(
+      @NotNull ConfigurationSection section,
+      @NotNull String path) {
+    if (section.get(path) instanceof StoredItem storedItem) {
+      return storedItem.toItemStack();
+    }
+    return section.getItemStack(path);
+  }
+
+  /**
+   * Extract the enchantment levels of an {@link ItemStack}.
+   *
+   * @param itemStack the {@code ItemStack}
+   * @return the enchantment levels keyed by enchantment key
+   */
+  public static @NotNull Map<String, Integer> getEnchantments(@NotNull ItemStack itemStack) {
+    Map<Enchantment, Integer> itemEnchantments = itemStack.getEnchantments();
+    Map<String, Integer> levels = new HashMap<>(itemEnchantments.size());
+    for (Map.Entry<Enchantment, Integer> entry : itemEnchantments.entrySet()) {
+      levels.put(getKey(entry.getKey()), entry.getValue());
+    }
+    return Map.copyOf(levels);
+  }
+
+  /**
+   * Get the key used to identify an {@link Enchantment} in extracted enchantment levels.
+   *
+   * @param enchantment the {@code Enchantment}
+   * @return the key
+   */
+  public static @NotNull String getKey(@NotNull Enchantment enchantment) {
+    return enchantment.getKey().asString();
+  }
+
+  /**
+   * Get the item's type.
+   *
+   * @return the {@link Material} or {@code null} if the type no longer exists
+   */
+  public @Nullable Material getType() {
+    if (itemStack != null) {
+      return itemStack.getType();
+    }
+    summarize();
+    return Material.getMaterial(typeName);
+  }
+
+  /**
+   * Get the {@link Material#name() name} of the item's type.
+   *
+   * @return the name of the type
+   */
+  @NotNull String getTypeName() {
+    if (itemStack != null) {
+      return itemStack.getType().name();
+    }
+    summarize();
+    return typeName;
+  }
+
+  /**
+   * Get the item's enchantment levels.
+   *
+   * @return the enchantment levels keyed by {@link #getKey(Enchantment) enchantment key}
+   */
+  public @NotNull Map<String, Integer> getEnchantments() {
+    if (enchantments == null) {
+      if (itemStack != null) {
+        enchantments = getEnchantments(itemStack);
+      } else {
+        summarize();
+      }
+    }
+    return enchantments;
+  }
+
+  /**
+   * Check if the item's type and enchantments are available without deserializing it.
+   *
+   * @return true if the summary is available
+   */
+  boolean isSummarized() {
+    return itemStack != null || (typeName != null && enchantments != null);
+  }
+
+  /**
+   * Get the serialized item.
+   *
+   * @return the serialized item
+   */
+  byte @NotNull [] getBytes() {
+    if (bytes == null) {
+      bytes = itemStack.serializeAsBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Deserialize a copy of the item.
+   *
+   * @return the {@link ItemStack}
+   */
+  public @NotNull ItemStack toItemStack() {
+    if (itemStack != null) {
+      return itemStack.clone();
+    }
+    return ItemStack.deserializeBytes(bytes);
+  }
+
+  /**
+   * Check if the item is equal to an {@link ItemStack}. The item is deserialized once for the
+   * comparison and kept for future comparisons.
+   *
+   * @param other the {@code ItemStack}
+   * @return true if the items are equal
+   */
+  public boolean matches(@NotNull ItemStack other) {
+    if (itemStack != null) {
+      return other.equals(itemStack);
+    }
+    if (comparison == null) {
+      comparison = toItemStack();
+    }
+    return other.equals(comparison);
+  }
+
+  private void summarize() {
+    if (typeName != null && enchantments != null) {
+      return;
+    }
+    ItemStack decoded = ItemStack.deserializeBytes(bytes);
+    typeName = decoded.getType().name();
+    enchantments = getEnchantments(decoded);
+  }
+
+  @Override
+  public String toString() {
+    if (itemStack != null) {
+      return itemStack.toString();
+    }
+    return "StoredItem{type=" + typeName + ",enchantments=" + enchantments + "}";
+  }
+
+}
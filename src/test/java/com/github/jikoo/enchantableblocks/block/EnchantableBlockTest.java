@@ -4,14 +4,17 @@ import com.github.jikoo.enchantableblocks.config.EnchantableBlockConfig;
 import com.github.jikoo.enchantableblocks.mock.ServerMocks;
 import com.github.jikoo.enchantableblocks.mock.inventory.ItemFactoryMocks;
 import com.github.jikoo.enchantableblocks.mock.inventory.ItemStackMocks;
+import com.github.jikoo.enchantableblocks.mock.world.WorldMocks;
 import com.github.jikoo.enchantableblocks.registry.EnchantableRegistration;
 import com.jparams.verifier.tostring.ToStringVerifier;
 import com.jparams.verifier.tostring.preset.Presets;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.ItemType;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,12 +22,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
 import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
@@ -54,7 +66,7 @@ class EnchantableBlockTest {
   @BeforeEach
   void beforeEach() {
     registration = mock(EnchantableRegistration.class);
-    block = mock(Block.class);
+    block = WorldMocks.newWorld("world").getBlockAt(1, 64, -1);
     itemStack = mock(ItemStack.class);
     doAnswer(invocation -> itemStack).when(itemStack).clone();
     storage = mock(ConfigurationSection.class);
@@ -68,6 +80,69 @@ class EnchantableBlockTest {
     assertThat("Block is expected block", enchantableBlock.getBlock(), is(block));
   }
 
+  @DisplayName("Enchantable blocks resolve the in-world block from their world and position.")
+  @Test
+  void testBlockResolved() {
+    World world = block.getWorld();
+    var enchantableBlock = new EnchantableBlock(registration, block, itemStack, storage) {};
+    assertThat("World must be available", enchantableBlock.getWorld(), is(world));
+    assertThat("X must be retained", enchantableBlock.getX(), is(block.getX()));
+    assertThat("Y must be retained", enchantableBlock.getY(), is(block.getY()));
+    assertThat("Z must be retained", enchantableBlock.getZ(), is(block.getZ()));
+    assertThat(
+        "Block must be resolved from world",
+        enchantableBlock.getBlock(),
+        is(world.getBlockAt(block.getX(), block.getY(), block.getZ())));
+  }
+
+  @DisplayName("Enchantable blocks must not keep the in-world block or its world reachable.")
+  @Test
+  void testBlockNotRetained() throws InterruptedException {
+    List<WeakReference<?>> references = new ArrayList<>();
+    EnchantableBlock enchantableBlock = newDetachedBlock(references);
+
+    // System.gc() is only a request, so collection is retried for a generous period.
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (references.stream().anyMatch(reference -> reference.get() != null)
+        && System.nanoTime() < deadline) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertThat("World must be collected", references.get(0).get(), is(nullValue()));
+    assertThat("Block must be collected", references.get(1).get(), is(nullValue()));
+    assertThrows(IllegalStateException.class, enchantableBlock::getWorld);
+    assertThat(
+        "Released world must still be described",
+        enchantableBlock.toString(),
+        containsString("world=detached"));
+    Reference.reachabilityFence(enchantableBlock);
+  }
+
+  private @NotNull EnchantableBlock newDetachedBlock(@NotNull List<WeakReference<?>> references) {
+    // Mocks are tracked by Mockito for their lifetime, so plain proxies stand in for them.
+    World world = (World) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] { World.class },
+        (proxy, method, args) -> switch (method.getName()) {
+          case "getName" -> "detached";
+          default -> throw new UnsupportedOperationException(method.getName());
+        });
+    Block detached = (Block) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] { Block.class },
+        (proxy, method, args) -> switch (method.getName()) {
+          case "getWorld" -> world;
+          case "getX" -> 16;
+          case "getY" -> -64;
+          case "getZ" -> -16;
+          default -> throw new UnsupportedOperationException(method.getName());
+        });
+    references.add(new WeakReference<>(world));
+    references.add(new WeakReference<>(detached));
+    return new EnchantableBlock(registration, detached, itemStack, storage) {};
+  }
+
   @DisplayName("Constructor clones and singularizes creation item.")
   @Test
   void testGetItemStack() {
@@ -196,7 +271,16 @@ class EnchantableBlockTest {
               .noneMatch(packageName -> packageName.equals("org.junit.jupiter.api"));
         })
         .withPreset(Presets.INTELLI_J)
-        .withIgnoredFields("registration", "storage", "dirty", "updating")
+        .withIgnoredFields(
+            "registration",
+            "storage",
+            "dirty",
+            "world",
+            "worldName",
+            "position",
+            "storedItem",
+            "enchantments",
+            "changeListener")
         .withValueProvider(ItemStack.class, path -> ItemStackMocks.newItemMock(ItemType.AIR, 1))
         .withFailOnExcludedFields(true).verify();
   }
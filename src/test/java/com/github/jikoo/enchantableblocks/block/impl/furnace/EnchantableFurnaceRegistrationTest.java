@@ -3,12 +3,12 @@ package com.github.jikoo.enchantableblocks.block.impl.furnace;
 import com.github.jikoo.enchantableblocks.mock.ServerMocks;
 import com.github.jikoo.enchantableblocks.mock.inventory.InventoryMocks;
 import com.github.jikoo.enchantableblocks.mock.inventory.ItemFactoryMocks;
+import com.github.jikoo.enchantableblocks.mock.world.WorldMocks;
 import com.github.jikoo.enchantableblocks.registry.EnchantableBlockManager;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.block.BlastFurnace;
-import org.bukkit.block.Block;
 import org.bukkit.block.Furnace;
 import org.bukkit.block.Smoker;
 import org.bukkit.configuration.ConfigurationSection;
@@ -142,7 +142,7 @@ class EnchantableFurnaceRegistrationTest {
   @DisplayName("Registration must create EnchantableFurnace instances.")
   @Test
   void testNewBlock() {
-    var block = mock(Block.class);
+    var block = WorldMocks.newWorld("world").getBlockAt(0, 0, 0);
     // EnchantableFurnace creation requires several ItemStack methods, easier to not stub.
     var itemStack = new ItemStack(Material.FURNACE);
     var section = mock(ConfigurationSection.class);
@@ -4,6 +4,7 @@ import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
 import com.github.jikoo.enchantableblocks.mock.ServerMocks;
 import com.github.jikoo.enchantableblocks.mock.inventory.InventoryMocks;
 import com.github.jikoo.enchantableblocks.mock.inventory.ItemFactoryMocks;
+import com.github.jikoo.enchantableblocks.mock.world.WorldMocks;
 import com.github.jikoo.enchantableblocks.registry.EnchantableBlockManager;
 import com.github.jikoo.planarwrappers.util.StringConverters;
 import org.bukkit.Bukkit;
@@ -83,7 +84,7 @@ class EnchantableFurnaceTest {
   @BeforeEach
   void beforeEach() {
     reg = mock(EnchantableFurnaceRegistration.class);
-    block = mock(Block.class);
+    block = WorldMocks.newWorld("world").getBlockAt(0, 0, 0);
     itemStack = ItemType.FURNACE.createItemStack();
     storage = mock(ConfigurationSection.class);
     input = ItemType.DIRT.createItemStack();
@@ -639,7 +640,7 @@ class EnchantableFurnaceTest {
       var inventory = mock(FurnaceInventory.class);
 
       EnchantableFurnace.update(plugin, manager, inventory);
-      verify(manager, times(0)).getBlock(any());
+      verify(manager, times(0)).getBlock(any(), anyInt(), anyInt(), anyInt());
     }
 
     @DisplayName("Tile must be linked to an EnchantableFurnace to update.")
@@ -649,15 +650,15 @@ class EnchantableFurnaceTest {
       var inventory = setUpTile().getInventory();
 
       EnchantableFurnace.update(plugin, manager, inventory);
-      verify(manager).getBlock(any());
+      verify(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
       verify(plugin, times(0)).getServer();
 
       manager = mock(EnchantableBlockManager.class);
       var enchantableBlock = mock(EnchantableBlock.class);
-      doReturn(enchantableBlock).when(manager).getBlock(any());
+      doReturn(enchantableBlock).when(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
 
       EnchantableFurnace.update(plugin, manager, inventory);
-      verify(manager).getBlock(any());
+      verify(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
       verify(plugin, times(0)).getServer();
     }
 
@@ -666,11 +667,11 @@ class EnchantableFurnaceTest {
     void testUpdateNoPause() {
       var manager = mock(EnchantableBlockManager.class);
       var enchantableFurnace = new EnchantableFurnace(reg, block, itemStack, storage);
-      doReturn(enchantableFurnace).when(manager).getBlock(any());
+      doReturn(enchantableFurnace).when(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
       var inventory = setUpTile().getInventory();
 
       EnchantableFurnace.update(plugin, manager, inventory);
-      verify(manager).getBlock(any());
+      verify(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
       verify(plugin, times(0)).getServer();
     }
 
@@ -680,7 +681,7 @@ class EnchantableFurnaceTest {
       var manager = mock(EnchantableBlockManager.class);
       var enchantableFurnace = spy(new EnchantableFurnace(reg, block, itemStack, storage));
       when(enchantableFurnace.canPause()).thenReturn(true);
-      doReturn(enchantableFurnace).when(manager).getBlock(any());
+      doReturn(enchantableFurnace).when(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
       var inventory = setUpTile().getInventory();
 
       EnchantableFurnace.update(plugin, manager, inventory);
@@ -701,7 +702,7 @@ class EnchantableFurnaceTest {
       var manager = mock(EnchantableBlockManager.class);
       var enchantableFurnace = spy(new EnchantableFurnace(reg, block, itemStack, storage));
       when(enchantableFurnace.canPause()).thenReturn(true);
-      doReturn(enchantableFurnace).when(manager).getBlock(any());
+      doReturn(enchantableFurnace).when(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
       var inventory = setUpTile().getInventory();
       EnchantableFurnace.update(plugin, manager, inventory);
       Runnable task = taskCaptor.getValue();
@@ -724,7 +725,7 @@ class EnchantableFurnaceTest {
       var manager = mock(EnchantableBlockManager.class);
       var enchantableFurnace = spy(new EnchantableFurnace(reg, block, itemStack, storage));
       when(enchantableFurnace.canPause()).thenReturn(true);
-      doReturn(enchantableFurnace).when(manager).getBlock(any());
+      doReturn(enchantableFurnace).when(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
       var inventory = setUpTile().getInventory();
       EnchantableFurnace.update(plugin, manager, inventory);
       Runnable task = taskCaptor.getValue();
@@ -742,7 +743,7 @@ class EnchantableFurnaceTest {
       var manager = mock(EnchantableBlockManager.class);
       var enchantableFurnace = spy(new EnchantableFurnace(reg, block, itemStack, storage));
       when(enchantableFurnace.canPause()).thenReturn(true);
-      doReturn(enchantableFurnace).when(manager).getBlock(any());
+      doReturn(enchantableFurnace).when(manager).getBlock(any(), anyInt(), anyInt(), anyInt());
       var inventory = setUpTile().getInventory();
       EnchantableFurnace.update(plugin, manager, inventory);
       Runnable task = taskCaptor.getValue();
@@ -383,7 +383,7 @@ class FurnaceListenerTest {
     void testFurnaceSmeltNoPause() {
       var event = new FurnaceSmeltEvent(block, input, recipe.getResult(), recipe);
       assertDoesNotThrow(() -> listener.onFurnaceSmelt(event));
-      verify(enchantableFurnace, times(0)).shouldPause(any());
+      verify(enchantableFurnace, times(0)).shouldPause(any(), any());
       assertThat("Event is never cancelled", !event.isCancelled());
     }
 
@@ -393,7 +393,7 @@ class FurnaceListenerTest {
       when(enchantableFurnace.canPause()).thenReturn(true);
       var event = new FurnaceSmeltEvent(block, input, recipe.getResult(), recipe);
       assertDoesNotThrow(() -> listener.onFurnaceSmelt(event));
-      verify(enchantableFurnace).shouldPause(any());
+      verify(enchantableFurnace).shouldPause(any(), any());
       verify(enchantableFurnace, times(0)).pause();
       assertThat("Event is never cancelled", !event.isCancelled());
     }
@@ -402,7 +402,7 @@ class FurnaceListenerTest {
     @Test
     void testFurnaceSmeltDoPause() {
       when(enchantableFurnace.canPause()).thenReturn(true);
-      when(enchantableFurnace.shouldPause(any())).thenReturn(true);
+      when(enchantableFurnace.shouldPause(any(), any())).thenReturn(true);
       var event = new FurnaceSmeltEvent(block, input, recipe.getResult(), recipe);
       assertDoesNotThrow(() -> listener.onFurnaceSmelt(event));
       verify(enchantableFurnace).pause();
@@ -21,6 +21,7 @@ import org.bukkit.event.block.BlockDropItemEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
@@ -149,12 +150,21 @@ class WorldListenerTest {
   void testChunkLoad() {
     var event = new ChunkLoadEvent(block.getChunk(), false);
     assertDoesNotThrow(() -> listener.onChunkLoad(event));
+    verify(manager).prefetchChunkBlocks(any());
     verify(manager, times(0)).loadChunkBlocks(any());
     Runnable task = runnableCaptor.getValue();
     assertDoesNotThrow(task::run);
     verify(manager).loadChunkBlocks(any());
   }
 
+  @DisplayName("World loading compiles world settings.")
+  @Test
+  void testWorldLoad() {
+    var event = new WorldLoadEvent(block.getWorld());
+    assertDoesNotThrow(() -> listener.onWorldLoad(event));
+    verify(manager).compileWorldSettings(any());
+  }
+
   @DisplayName("Chunk unloads unload blocks from storage.")
   @Test
   void testChunkUnload() {
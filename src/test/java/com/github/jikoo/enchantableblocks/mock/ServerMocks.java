@@ -12,6 +12,9 @@ import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -38,6 +41,8 @@ public final class ServerMocks {
 
     ItemFactory itemFactory = ItemFactoryMocks.mockFactory();
     when(mock.getItemFactory()).thenReturn(itemFactory);
+    // Byte serialization is handled by the server implementation. Store copies and use the index.
+    List<ItemStack> serializedItems = new ArrayList<>();
     doAnswer(invocation -> {
        UnsafeValues unsafe = mock();
 
@@ -45,6 +50,20 @@ public final class ServerMocks {
       doReturn(Material.AIR).when(empty).getType();
       when(unsafe.createEmptyStack()).thenReturn(empty);
 
+      doAnswer(invocationSerialize -> {
+        ItemStack itemStack = invocationSerialize.getArgument(0);
+        synchronized (serializedItems) {
+          serializedItems.add(itemStack.clone());
+          return ByteBuffer.allocate(Integer.BYTES).putInt(serializedItems.size() - 1).array();
+        }
+      }).when(unsafe).serializeItem(notNull());
+      doAnswer(invocationDeserialize -> {
+        byte[] bytes = invocationDeserialize.getArgument(0);
+        synchronized (serializedItems) {
+          return serializedItems.get(ByteBuffer.wrap(bytes).getInt()).clone();
+        }
+      }).when(unsafe).deserializeItem(notNull());
+
       return unsafe;
     }).when(mock).getUnsafe();
 
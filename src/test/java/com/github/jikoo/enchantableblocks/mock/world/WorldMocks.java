@@ -6,8 +6,10 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.github.jikoo.planarwrappers.util.Coords;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -21,6 +23,8 @@ public final class WorldMocks {
     World mock = mock(World.class);
 
     when(mock.getName()).thenReturn(name);
+    UUID uuid = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+    when(mock.getUID()).thenReturn(uuid);
 
     Map<Coordinate, Block> blocks = new HashMap<>();
     when(mock.getBlockAt(anyInt(), anyInt(), anyInt()))
@@ -6,14 +6,23 @@ import com.github.jikoo.enchantableblocks.mock.ServerMocks;
 import com.github.jikoo.enchantableblocks.mock.answer.SpiedAnswer;
 import com.github.jikoo.enchantableblocks.mock.inventory.ItemFactoryMocks;
 import com.github.jikoo.enchantableblocks.mock.world.WorldMocks;
-import com.github.jikoo.enchantableblocks.registry.EnchantableBlockManager.RegionStorageData;
+import com.github.jikoo.enchantableblocks.storage.BlockJournal;
+import com.github.jikoo.enchantableblocks.storage.BlockStorageBackend;
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend;
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend.RegionStorageData;
 import com.github.jikoo.enchantableblocks.util.Cache;
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
 import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionIoExecutor;
 import com.github.jikoo.enchantableblocks.util.RegionStorage;
+import com.github.jikoo.enchantableblocks.util.StoredItem;
 import com.github.jikoo.planarwrappers.util.Coords;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemStack;
@@ -32,25 +41,34 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 import static com.github.jikoo.enchantableblocks.mock.matcher.ItemMatcher.isSimilar;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -115,8 +133,11 @@ class EnchantableBlockManagerTest {
     // Set up registration.
     var registration = mock(EnchantableRegistration.class);
     doAnswer(invocation ->
-        new EnchantableBlock(registration, invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)) {})
-        .when(registration).newBlock(any(), any(), any());
+        new EnchantableBlock(registration, invocation.getArgument(0), invocation.getArgument(1, ItemStack.class), invocation.getArgument(2)) {})
+        .when(registration).newBlock(any(), any(ItemStack.class), any());
+    doAnswer(invocation ->
+        new EnchantableBlock(registration, invocation.getArgument(0), invocation.getArgument(1, StoredItem.class), invocation.getArgument(2)) {})
+        .when(registration).newBlock(any(), any(StoredItem.class), any());
     doReturn(registration).when(registry).get(goodMat);
     doReturn(Set.of(goodMat)).when(registration).getMaterials();
 
@@ -137,8 +158,20 @@ class EnchantableBlockManagerTest {
   }
 
   @AfterAll
-  void afterAll() {
+  void afterAll() throws IOException {
     ServerMocks.unsetBukkitServer();
+    if (!Files.exists(dataDir)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(dataDir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> {
+        try {
+          Files.delete(file);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+    }
   }
 
   @DisplayName("Registry is obtainable for type registration.")
@@ -271,25 +304,56 @@ class EnchantableBlockManagerTest {
           is(nullValue()));
     }
 
+    @DisplayName("Compiled world settings match configuration until registrations change.")
+    @Test
+    void testCompiledWorldSettings() {
+      var item = getValidItem();
+      var registration = registry.get(goodMat);
+      doReturn(List.of(registration)).when(registry).getRegistrations();
+      World disabledWorld = blockDisabledWorld.getWorld();
+      backingConfig.set(DISABLED_WORLD_PATH, true);
+      var enchantableBlock = manager.createBlock(blockDisabledWorld, item);
+      assertThat("Manager must create block", enchantableBlock, is(notNullValue()));
+
+      backingConfig.set(DISABLED_WORLD_PATH, false);
+      manager.compileWorldSettings(List.of(block.getWorld(), disabledWorld));
+      assertThat(
+          "Registration must be enabled in normal world",
+          manager.isEnabled(block.getWorld(), registration));
+      assertThat(
+          "Registration must be disabled in disabled world",
+          manager.isEnabled(disabledWorld, registration),
+          is(false));
+      assertThat("Disabled world must be skipped", manager.isAnyEnabled(disabledWorld), is(false));
+      assertThat(
+          "Block in skipped world must return null",
+          manager.getBlock(blockDisabledWorld),
+          is(nullValue()));
+
+      // Settings are compiled; configuration is not consulted again until recompiled.
+      backingConfig.set(DISABLED_WORLD_PATH, true);
+      assertThat(
+          "Compiled settings must be used",
+          manager.isEnabled(disabledWorld, registration),
+          is(false));
+      manager.compileWorldSettings(List.of(block.getWorld(), disabledWorld));
+      assertThat(
+          "Recompiled settings must be used",
+          manager.getBlock(blockDisabledWorld),
+          is(enchantableBlock));
+    }
+
   }
 
   @DisplayName("Tests for block data management and destruction.")
   @Nested
   class DataManagementTest {
 
-    private static Field cacheField;
     private Cache<Region, RegionStorageData> saveFileCache;
 
-    @BeforeAll
-    static void beforeAll() throws NoSuchFieldException {
-      // This is hacky, but I'd argue that it's better practice than a VisibleForTesting annotation.
-      cacheField = EnchantableBlockManager.class.getDeclaredField("saveFileCache");
-      cacheField.setAccessible(true);
-    }
-
     @BeforeEach
-    void beforeEach() throws IllegalAccessException {
-      saveFileCache = (Cache<Region, RegionStorageData>) cacheField.get(manager);
+    void beforeEach() {
+      saveFileCache = cache;
     }
 
     @DisplayName("Destroying undefined blocks returns null.")
@@ -343,7 +407,7 @@ class EnchantableBlockManagerTest {
 
       assertThat("Storage data must be present", storageData, is(notNullValue()));
 
-      String chunkPath = EnchantableBlockManager.getChunkPath(block);
+      String chunkPath = getChunkPath(block);
       storageData.getStorage().set(chunkPath, "not a section");
 
       assertThat(
@@ -373,10 +437,10 @@ class EnchantableBlockManagerTest {
       chunkBad = block.getWorld().getChunkAt(chunk.getX() + 1, chunk.getZ() + 1);
       var blockBad = block.getWorld().getBlockAt(Coords.chunkToBlock(chunkBad.getX()), 0,
           Coords.chunkToBlock(chunkBad.getZ()));
-      storage.set(EnchantableBlockManager.getChunkPath(blockBad), null);
-      var section = storage.getConfigurationSection(EnchantableBlockManager.getChunkPath(block));
+      storage.set(getChunkPath(blockBad), null);
+      var section = storage.getConfigurationSection(getChunkPath(block));
       if (section == null) {
-        section = storage.createSection(EnchantableBlockManager.getChunkPath(block));
+        section = storage.createSection(getChunkPath(block));
       }
       section.set("badpath", "not a config section");
       section.set("bad block path.stuff", "value");
@@ -384,7 +448,7 @@ class EnchantableBlockManagerTest {
       section.set("1_1_1", "bad value");
       section.set("1_2_1.itemstack", "bad value");
       ItemStack stack = getValidItem();
-      section.set(EnchantableBlockManager.getBlockPath(block) + ".itemstack", stack);
+      section.set(getBlockPath(block) + ".itemstack", stack);
       block.setType(stack.getType());
       section.set("0_1_0.itemstack", stack);
     }
@@ -419,6 +483,30 @@ class EnchantableBlockManagerTest {
       assertDoesNotThrow(() -> manager.loadChunkBlocks(chunkBad));
     }
 
+    @DisplayName("Chunks without stored data are skipped without reading region data.")
+    @Test
+    void testLoadEmptyChunk() throws IOException {
+      ItemStack stack = getValidItem();
+      manager.createBlock(block, stack);
+      Region region = new Region(block);
+      RegionStorage storage = Objects.requireNonNull(saveFileCache.get(region)).getStorage();
+      storage.save();
+      saveFileCache.invalidate(region);
+
+      Chunk populated = block.getChunk();
+      Chunk empty = block.getWorld().getChunkAt(populated.getX() + 1, populated.getZ());
+      manager.loadChunkBlocks(empty);
+      assertThat(
+          "Region must not be read for empty chunk",
+          saveFileCache.containsKey(region),
+          is(false));
+
+      manager.loadChunkBlocks(populated);
+      assertThat("Region must be read for populated chunk", saveFileCache.containsKey(region));
+
+      storage.delete();
+    }
+
     @DisplayName("Invalid data is handled gracefully when chunks are unloaded.")
     @Test
     void testUnloadChunkBlocks() {
@@ -432,49 +520,229 @@ class EnchantableBlockManagerTest {
       assertDoesNotThrow(() -> manager.unloadChunkBlocks(chunkBad));
     }
 
-    @DisplayName("Data is removed from cache when expired.")
+    @DisplayName("Periodic saves are left to cache sweeps.")
     @Test
-    void testExpireCache() {
+    void testSave() {
       // Don't bother fetching via block so that chunks are guaranteed unloaded.
       Region key = new Region("not_a_world", 0, 0);
-      RegionStorageData storage = saveFileCache.get(key);
+      assertThat("Cached value must not be null", saveFileCache.get(key), is(notNullValue()));
+
+      manager.save();
+      // Stats do not trigger checks.
+      assertThat("Save must not check regions", saveFileCache.getStats().size(), is(1L));
+
+      manager.sweep(Long.MAX_VALUE);
+      assertThat("Sweep must check saved regions", saveFileCache.containsKey(key), is(false));
+    }
+
+    @DisplayName("Blocks in uncached regions are created and destroyed on the calling thread.")
+    @Test
+    void testSyncRegionLoad() {
+      var asyncManager = new EnchantableBlockManager(
+          registry,
+          logger,
+          Runnable::run,
+          (loadedBlocks, mainThread) -> new RegionFileStorageBackend(
+              dataDir,
+              logger,
+              new RegionIoExecutor(1, 16),
+              mainThread,
+              loadedBlocks,
+              new Cache.CacheBuilder<>(),
+              false),
+          null);
+      ItemStack stack = getValidItem();
+
+      assertThat(
+          "Block must be created without waiting for a load",
+          asyncManager.createBlock(block, stack),
+          is(notNullValue()));
+      assertThat("Block must be available", asyncManager.getBlock(block), is(notNullValue()));
+      assertThat("Block must be destroyed", asyncManager.destroyBlock(block), isSimilar(stack));
+      asyncManager.shutdown();
+    }
+  }
+
+  @DisplayName("Tests for delegating to a storage backend.")
+  @Nested
+  class BackendTest {
 
-      assertThat("Cached value must not be null", storage, is(notNullValue()));
+    private BlockStorageBackend backend;
+    private EnchantableBlockManager backedManager;
 
-      manager.expireCache();
-      storage = saveFileCache.get(key, false);
+    @BeforeEach
+    void beforeEach() {
+      backend = mock(BlockStorageBackend.class);
+      doAnswer(invocation -> new MemoryConfiguration())
+          .when(backend).putBlock(any(), anyInt(), anyInt(), anyInt());
+      doReturn(true).when(backend).removeBlock(any(), anyInt(), anyInt(), anyInt());
+      doReturn(CompletableFuture.completedFuture(null)).when(backend).flush();
+      backedManager = newManager(null);
+    }
 
-      assertThat("Cache must be cleaned after values expire", storage, is(nullValue()));
+    private EnchantableBlockManager newManager(BlockJournal journal) {
+      return new EnchantableBlockManager(
+          registry,
+          logger,
+          Runnable::run,
+          (loadedBlocks, mainThread) -> backend,
+          journal);
     }
 
-    @DisplayName("Regional data holder manages dirty state for blocks.")
+    @DisplayName("Created and destroyed blocks are stored by the backend.")
     @Test
-    void testDataHolder() {
-      var regionStorage = spy(new RegionStorage(dataDir, new Region(block)));
-      var data = manager.new RegionStorageData(regionStorage);
-      assertThat("New data should not be dirty", data.isDirty(), is(false));
-      verify(regionStorage, times(2)).getRegion();
-
-      data.setDirty();
-      assertThat("Data must be dirty once set", data.isDirty());
-      // Verify that once dirty state is set, isDirty uses set state.
-      verify(regionStorage, times(2)).getRegion();
-
-      data.clean();
-      assertThat("Data must not be dirty after clean", data.isDirty(), is(false));
-
-      data = manager.new RegionStorageData(new RegionStorage(dataDir, new Region(block)));
-      block.setType(goodMat);
+    void testCreateDestroy() {
       ItemStack stack = getValidItem();
-      var enchantableBlock = manager.createBlock(block, stack);
-      assertThat("EnchantableBlock must not be null", enchantableBlock, notNullValue());
-      enchantableBlock.setDirty(true);
-      assertThat("Block must be dirty", enchantableBlock.isDirty());
-      assertThat("Data must be dirty if blocks are dirty", data.isDirty());
-      data.clean();
-      assertThat("Data must not be dirty after clean", data.isDirty(), is(false));
-      assertThat("Block must be dirty", enchantableBlock.isDirty(), is(false));
+      assertThat(
+          "Manager must create block",
+          backedManager.createBlock(block, stack),
+          is(notNullValue()));
+      verify(backend).putBlock(
+          block.getWorld().getName(),
+          block.getX(),
+          block.getY(),
+          block.getZ());
+
+      assertThat("Block must be destroyed", backedManager.destroyBlock(block), isSimilar(stack));
+      verify(backend).removeBlock(
+          block.getWorld().getName(),
+          block.getX(),
+          block.getY(),
+          block.getZ());
     }
+
+    @DisplayName("Journaled changes are restored to the backend after a crash.")
+    @Test
+    void testJournalReplay() throws IOException {
+      Path journalDir = dataDir.resolve("journal");
+      BlockJournal journal = BlockJournal.open(journalDir, logger);
+      EnchantableBlockManager journaledManager = newManager(journal);
+      assertThat(
+          "Manager must create block",
+          journaledManager.createBlock(block, getValidItem()),
+          is(notNullValue()));
+      // Simulate a crash: the journal is written, but changes are never flushed.
+      journal.close();
+
+      BlockJournal reopened = BlockJournal.open(journalDir, logger);
+      newManager(reopened);
+      verify(backend).restoreBlock(
+          eq(block.getWorld().getName()),
+          eq(block.getX()),
+          eq(block.getY()),
+          eq(block.getZ()),
+          any());
+      verify(backend).flush();
+      reopened.close();
+
+      BlockJournal truncated = BlockJournal.open(journalDir, logger);
+      assertThat("Restored changes must be discarded", truncated.replay(entry -> {}), is(-1L));
+      truncated.close();
+    }
+
+    @DisplayName("Chunk blocks are loaded from and released to the backend.")
+    @Test
+    void testLoadUnload() {
+      ItemStack stack = getValidItem();
+      MemoryConfiguration storage = new MemoryConfiguration();
+      storage.set("itemstack", stack);
+      Chunk chunk = block.getChunk();
+      long position = PackedCoords.packBlock(block.getX(), block.getY(), block.getZ());
+      doReturn(CompletableFuture.completedFuture(Map.of(position, storage)))
+          .when(backend).loadChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+
+      backedManager.loadChunkBlocks(chunk);
+      assertThat("Block must be loaded", backedManager.getBlock(block), is(notNullValue()));
+
+      backedManager.unloadChunkBlocks(chunk);
+      verify(backend).unloadChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+      assertThat("Block must be unloaded", backedManager.getBlock(block), is(nullValue()));
+    }
+
+    @DisplayName("Invalid saves are removed from the journal rather than journaled.")
+    @Test
+    void testLoadInvalidJournal() throws IOException {
+      BlockJournal journal = mock(BlockJournal.class);
+      doReturn(-1L).when(journal).replay(any());
+      EnchantableBlockManager journaledManager = newManager(journal);
+      MemoryConfiguration storage = new MemoryConfiguration();
+      storage.set("itemstack", getValidItem());
+      block.setType(badMat);
+      Chunk chunk = block.getChunk();
+      long position = PackedCoords.packBlock(block.getX(), block.getY(), block.getZ());
+      doReturn(CompletableFuture.completedFuture(Map.of(position, storage)))
+          .when(backend).loadChunk(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+
+      journaledManager.loadChunkBlocks(chunk);
+      assertThat("Block must not be loaded", journaledManager.getBlock(block), is(nullValue()));
+      verify(journal, never()).put(any(), anyInt(), anyInt(), anyInt(), any());
+      verify(journal).remove(
+          block.getWorld().getName(),
+          block.getX(),
+          block.getY(),
+          block.getZ());
+    }
+
+    @DisplayName("Blocks in chunks still being read are loaded on demand.")
+    @Test
+    void testLoadPending() {
+      ItemStack stack = getValidItem();
+      MemoryConfiguration storage = new MemoryConfiguration();
+      storage.set("itemstack", stack);
+      Chunk chunk = block.getChunk();
+      String worldName = chunk.getWorld().getName();
+      long position = PackedCoords.packBlock(block.getX(), block.getY(), block.getZ());
+      CompletableFuture<Map<Long, ConfigurationSection>> reading = new CompletableFuture<>();
+      doReturn(reading).when(backend).loadChunk(worldName, chunk.getX(), chunk.getZ());
+      doReturn(Map.of(position, storage))
+          .when(backend).loadChunkNow(worldName, chunk.getX(), chunk.getZ());
+      when(chunk.isLoaded()).thenReturn(true);
+
+      backedManager.loadChunkBlocks(chunk);
+      EnchantableBlock loaded = backedManager.getBlock(block);
+      assertThat("Block must be loaded on demand", loaded, is(notNullValue()));
+
+      reading.complete(Map.of(position, storage));
+      assertThat(
+          "Completed read must not replace block",
+          backedManager.getBlock(block),
+          is(sameInstance(loaded)));
+      assertThat("Block must be destroyed", backedManager.destroyBlock(block), isSimilar(stack));
+      verify(backend, times(1)).loadChunkNow(worldName, chunk.getX(), chunk.getZ());
+    }
+
+    @DisplayName("Reads for chunks unloaded before they complete are discarded.")
+    @Test
+    void testReloadDuringLoad() {
+      MemoryConfiguration storage = new MemoryConfiguration();
+      storage.set("itemstack", getValidItem());
+      Chunk chunk = block.getChunk();
+      String worldName = chunk.getWorld().getName();
+      long position = PackedCoords.packBlock(block.getX(), block.getY(), block.getZ());
+      CompletableFuture<Map<Long, ConfigurationSection>> stale = new CompletableFuture<>();
+      CompletableFuture<Map<Long, ConfigurationSection>> current = new CompletableFuture<>();
+      doReturn(stale, current).when(backend).loadChunk(worldName, chunk.getX(), chunk.getZ());
+      when(chunk.isLoaded()).thenReturn(true);
+
+      backedManager.loadChunkBlocks(chunk);
+      backedManager.unloadChunkBlocks(chunk);
+      backedManager.loadChunkBlocks(chunk);
+
+      stale.complete(Map.of(position, storage));
+      // The current read is still pending, so the block is read on demand from empty storage.
+      assertThat("Stale read must be discarded", backedManager.getBlock(block), is(nullValue()));
+    }
+
+  }
+
+  private static @NotNull String getChunkPath(@NotNull Block block) {
+    return PackedCoords.chunkKey(
+        Coords.blockToChunk(block.getX()),
+        Coords.blockToChunk(block.getZ()));
+  }
+
+  private static @NotNull String getBlockPath(@NotNull Block block) {
+    return PackedCoords.blockKey(block.getX(), block.getY(), block.getZ());
   }
 
   private @NotNull ItemStack getValidItem() {
@@ -0,0 +1,130 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@DisplayName("Feature: Journal block changes until they are persisted.")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BlockJournalTest {
+
+  private final Path directory =
+      Path.of(".", "src", "test", "resources", getClass().getSimpleName());
+  private final Logger logger = mock(Logger.class);
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    delete();
+  }
+
+  @AfterEach
+  void afterEach() throws IOException {
+    delete();
+  }
+
+  private void delete() throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> {
+        try {
+          Files.delete(file);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+    }
+  }
+
+  private List<BlockJournal.Entry> replay() throws IOException {
+    List<BlockJournal.Entry> entries = new ArrayList<>();
+    BlockJournal journal = BlockJournal.open(directory, logger);
+    journal.replay(entries::add);
+    journal.close();
+    return entries;
+  }
+
+  @DisplayName("Entries must be replayed in order after a restart.")
+  @Test
+  void testReplay() throws IOException {
+    BlockJournal journal = BlockJournal.open(directory, logger);
+    ConfigurationSection data = new MemoryConfiguration();
+    data.set("frozenTicks", 200);
+    journal.put("world", 1, 2, 3, data);
+    journal.remove("world", 4, 5, 6);
+    journal.close();
+
+    List<BlockJournal.Entry> entries = replay();
+
+    assertThat("Both entries must be replayed", entries.size(), is(2));
+    BlockJournal.Entry put = entries.get(0);
+    assertThat("World must match", put.worldName(), is("world"));
+    assertThat("Coordinates must match", List.of(put.x(), put.y(), put.z()), is(List.of(1, 2, 3)));
+    assertThat("Data must be present", put.data(), is(notNullValue()));
+    assertThat("Data must match", put.data().getInt("frozenTicks"), is(200));
+    assertThat("Removal must have no data", entries.get(1).data(), is(nullValue()));
+  }
+
+  @DisplayName("Truncated checkpoints must not be replayed.")
+  @Test
+  void testTruncate() throws IOException {
+    BlockJournal journal = BlockJournal.open(directory, logger);
+    journal.remove("world", 0, 0, 0);
+    long checkpoint = journal.checkpoint();
+    journal.remove("world", 1, 1, 1);
+    journal.truncate(checkpoint);
+    journal.close();
+
+    List<BlockJournal.Entry> entries = replay();
+
+    assertThat("Only later entry must be replayed", entries.size(), is(1));
+    assertThat("Later entry must be replayed", entries.getFirst().x(), is(1));
+  }
+
+  @DisplayName("Incomplete entries must be ignored.")
+  @Test
+  void testTornWrite() throws IOException {
+    BlockJournal journal = BlockJournal.open(directory, logger);
+    journal.remove("world", 0, 0, 0);
+    journal.close();
+
+    try (Stream<Path> files = Files.list(directory)) {
+      Path segment = files.findFirst().orElseThrow();
+      Files.write(segment, new byte[] { 0, 0, 0, 64, 1, 2 }, StandardOpenOption.APPEND);
+    }
+
+    assertThat("Complete entry must be replayed", replay().size(), is(1));
+  }
+
+  @DisplayName("Empty journals must not leave segments behind.")
+  @Test
+  void testEmpty() throws IOException {
+    BlockJournal.open(directory, logger).close();
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat("No segments must remain", files.toList(), is(empty()));
+    }
+  }
+
+}
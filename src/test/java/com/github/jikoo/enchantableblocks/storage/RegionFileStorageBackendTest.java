@@ -0,0 +1,230 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
+import com.github.jikoo.enchantableblocks.mock.ServerMocks;
+import com.github.jikoo.enchantableblocks.mock.answer.SpiedAnswer;
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend.RegionStorageData;
+import com.github.jikoo.enchantableblocks.util.Cache;
+import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionIoExecutor;
+import com.github.jikoo.enchantableblocks.util.RegionStorage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@DisplayName("Feature: Store blocks in a file per region.")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RegionFileStorageBackendTest {
+
+  private static final String WORLD = "world";
+
+  private final Path dataDir =
+      Path.of(".", "src", "test", "resources", getClass().getSimpleName(), "data");
+  private final Logger logger = mock(Logger.class);
+  private final List<EnchantableBlock> loadedBlocks = new ArrayList<>();
+  private Cache<Region, RegionStorageData> cache;
+  private RegionFileStorageBackend backend;
+
+  @BeforeAll
+  void beforeAll() {
+    ServerMocks.mockServer();
+  }
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    delete();
+    loadedBlocks.clear();
+
+    // Grab finalized cache from builder during creation.
+    var builder = spy(new Cache.CacheBuilder<Region, RegionStorageData>());
+    doAnswer(new SpiedAnswer<Cache<Region, RegionStorageData>>() {
+      @Override
+      public Cache<Region, RegionStorageData> accept(Cache<Region, RegionStorageData> answer) {
+        cache = super.accept(answer);
+        return cache;
+      }
+    }).when(builder).build();
+
+    backend = new RegionFileStorageBackend(
+        dataDir,
+        logger,
+        RegionIoExecutor.synchronous(),
+        Runnable::run,
+        // Only the first chunk of the world has loaded blocks.
+        (worldName, chunkX, chunkZ) ->
+            WORLD.equals(worldName) && chunkX == 0 && chunkZ == 0 ? loadedBlocks : List.of(),
+        builder,
+        false);
+  }
+
+  @AfterEach
+  void afterEach() throws IOException {
+    backend.close();
+    delete();
+  }
+
+  @AfterAll
+  void afterAll() {
+    ServerMocks.unsetBukkitServer();
+  }
+
+  private void delete() throws IOException {
+    if (!Files.exists(dataDir)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(dataDir)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @DisplayName("Data is removed from cache when flushed.")
+  @Test
+  void testFlushExpires() {
+    // Don't bother fetching via block so that chunks are guaranteed unloaded.
+    Region key = new Region("not_a_world", 0, 0);
+    assertThat("Cached value must not be null", cache.get(key), is(notNullValue()));
+
+    backend.flush().join();
+    assertThat("Cache must be cleaned after values expire", cache.get(key, false), is(nullValue()));
+  }
+
+  @DisplayName("Periodic saves are left to cache sweeps.")
+  @Test
+  void testSave() {
+    // Don't bother fetching via block so that chunks are guaranteed unloaded.
+    Region key = new Region("not_a_world", 0, 0);
+    assertThat("Cached value must not be null", cache.get(key), is(notNullValue()));
+
+    CompletableFuture<Void> save = backend.save();
+    assertThat("Pending save must be shared", backend.save(), is(sameInstance(save)));
+    // Stats do not trigger checks.
+    assertThat("Save must not check regions", cache.getStats().size(), is(1L));
+    assertThat("Save must wait for a sweep", save.isDone(), is(false));
+
+    backend.sweep(Long.MAX_VALUE);
+    assertThat("Sweep must check saved regions", cache.containsKey(key), is(false));
+    assertThat("Save must complete once regions are checked", save.isDone());
+  }
+
+  @DisplayName("Flushing writes changed regions and skips unchanged regions.")
+  @Test
+  void testFlushRegions() {
+    RegionStorageData changed = cache.get(new Region("flush_world", 0, 0));
+    RegionStorageData unchanged = cache.get(new Region("flush_world", 1, 0));
+    RegionStorageData emptied = cache.get(new Region("flush_world", 2, 0));
+    assertThat("Cached value must not be null", changed, is(notNullValue()));
+    assertThat("Cached value must not be null", unchanged, is(notNullValue()));
+    assertThat("Cached value must not be null", emptied, is(notNullValue()));
+    changed.getStorage().set("0_0.1_2_3.silk.ticks", 1);
+    changed.setDirty();
+    emptied.setDirty();
+
+    var report = backend.flushRegions(2, System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+    assertThat("Changed region must be written", report.written(), is(1));
+    assertThat("Empty region must be deleted", report.deleted(), is(1));
+    assertThat("Unchanged region must be skipped", report.clean(), is(1));
+    assertThat("Flush must complete", report.isComplete());
+    assertThat("Region must be clean", changed.isDirty(), is(false));
+    assertThat("Region must be written", changed.getStorage().exists());
+
+    changed.setDirty();
+    report = backend.flushRegions(2, System.nanoTime() - 1);
+    assertThat("Region must not be written after deadline", report.timedOut(), is(1));
+    assertThat("Flush must not complete", report.isComplete(), is(false));
+    assertThat("Unwritten region must remain dirty", changed.isDirty());
+  }
+
+  @DisplayName("Frequently used regions are recorded and read ahead on startup.")
+  @Test
+  void testHotRegions() throws IOException {
+    Region hot = new Region("hot_world", 0, 0);
+    Region cold = new Region("hot_world", 1, 0);
+    for (int i = 0; i < 3; ++i) {
+      cache.get(hot);
+    }
+    cache.get(cold);
+
+    backend.saveHotData(1);
+    Path file = dataDir.resolve("hot_regions.dat");
+    assertThat("Regions must be recorded", Files.exists(file));
+    assertThat(
+        "Regions must not be read ahead synchronously",
+        backend.prefetchHotData(),
+        is(0));
+
+    var asyncBackend = new RegionFileStorageBackend(
+        dataDir,
+        logger,
+        new RegionIoExecutor(1, 16),
+        Runnable::run,
+        (worldName, chunkX, chunkZ) -> List.of(),
+        new Cache.CacheBuilder<>(),
+        false);
+    assertThat("Recorded regions must be read ahead", asyncBackend.prefetchHotData(), is(1));
+    asyncBackend.close();
+
+    backend.saveHotData(0);
+    assertThat("Record must be removed if disabled", Files.exists(file), is(false));
+  }
+
+  @DisplayName("Regional data holder manages dirty state for blocks.")
+  @Test
+  void testDataHolder() {
+    var regionStorage = spy(new RegionStorage(dataDir, new Region(WORLD, 0, 0)));
+    var data = backend.new RegionStorageData(regionStorage);
+    assertThat("New data should not be dirty", data.isDirty(), is(false));
+    verify(regionStorage, times(2)).getRegion();
+
+    data.setDirty();
+    assertThat("Data must be dirty once set", data.isDirty());
+    // Verify that once dirty state is set, isDirty uses set state.
+    verify(regionStorage, times(2)).getRegion();
+
+    data.clean();
+    assertThat("Data must not be dirty after clean", data.isDirty(), is(false));
+
+    data = backend.new RegionStorageData(new RegionStorage(dataDir, new Region(WORLD, 0, 0)));
+    EnchantableBlock enchantableBlock = mock(EnchantableBlock.class);
+    AtomicBoolean blockDirty = new AtomicBoolean(true);
+    doAnswer(invocation -> blockDirty.get()).when(enchantableBlock).isDirty();
+    doAnswer(invocation -> {
+      blockDirty.set(invocation.getArgument(0));
+      return null;
+    }).when(enchantableBlock).setDirty(anyBoolean());
+    loadedBlocks.add(enchantableBlock);
+    assertThat("Data must be dirty if blocks are dirty", data.isDirty());
+    data.clean();
+    assertThat("Data must not be dirty after clean", data.isDirty(), is(false));
+    assertThat("Block must not be dirty after clean", enchantableBlock.isDirty(), is(false));
+  }
+
+}
@@ -1,4 +1,4 @@
-package com.github.jikoo.enchantableblocks.registry;
+package com.github.jikoo.enchantableblocks.storage;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -9,13 +9,17 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.github.jikoo.enchantableblocks.mock.ServerMocks;
-import com.github.jikoo.enchantableblocks.registry.EnchantableBlockManager.RegionStorageData;
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend.RegionStorageData;
+import com.github.jikoo.enchantableblocks.util.Cache;
 import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionFileIndex;
+import com.github.jikoo.enchantableblocks.util.RegionIoExecutor;
 import com.github.jikoo.enchantableblocks.util.RegionStorage;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -23,13 +27,14 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 import org.bukkit.World;
-import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -45,7 +50,7 @@ class RegionInUseCheckTest {
 
   private Collection<LoadedStateWorld> worlds;
   private Path dataDir;
-  private EnchantableBlockManager manager;
+  private RegionFileStorageBackend backend;
   private RegionInUseCheck inUseCheck;
 
   @BeforeAll
@@ -70,12 +75,16 @@ class RegionInUseCheckTest {
   @BeforeEach
   void setUp() {
     dataDir = Path.of(".", "src", "test", "resources", getClass().getSimpleName());
-    var plugin = mock(Plugin.class);
-    when(plugin.getDataFolder()).thenReturn(dataDir.toFile());
-    when(plugin.getConfig()).thenReturn(new YamlConfiguration());
-    manager = new EnchantableBlockManager(plugin);
     Logger logger = mock(Logger.class);
-    inUseCheck = new RegionInUseCheck(logger);
+    backend = new RegionFileStorageBackend(
+        dataDir,
+        logger,
+        RegionIoExecutor.synchronous(),
+        Runnable::run,
+        (worldName, chunkX, chunkZ) -> List.of(),
+        new Cache.CacheBuilder<>(),
+        false);
+    inUseCheck = new RegionInUseCheck(RegionIoExecutor.synchronous(), logger);
   }
 
   @AfterAll
@@ -105,7 +114,7 @@ class RegionInUseCheckTest {
   @MethodSource("getWorlds")
   void testCleanRegion(@NotNull LoadedStateWorld world) {
     Region key = new Region(world.getName(), 0, 0);
-    RegionStorageData value = manager.new RegionStorageData(new RegionStorage(dataDir, key));
+    RegionStorageData value = backend.new RegionStorageData(new RegionStorage(dataDir, key));
 
     assertThat(
         "Value in-use state must match world state",
@@ -119,7 +128,7 @@ class RegionInUseCheckTest {
   void testDirtyEmptyRegion(@NotNull LoadedStateWorld world) throws IOException {
     var key = new Region(world.getName(), 0, 0);
     var regionStorage = spy(new RegionStorage(dataDir, key));
-    var storageData = manager.new RegionStorageData(regionStorage);
+    var storageData = backend.new RegionStorageData(regionStorage);
 
     // Dirty empty state.
     storageData.setDirty();
@@ -136,13 +145,46 @@ class RegionInUseCheckTest {
     assertThat("File must not exist after in use check on empty data", !Files.exists(path));
   }
 
+  @DisplayName("Empty data is reset on the checking thread and only files are deleted by the lane.")
+  @ParameterizedTest
+  @MethodSource("getWorlds")
+  void testDirtyEmptyRegionAsync(@NotNull LoadedStateWorld world)
+      throws IOException, InterruptedException {
+    var key = new Region(world.getName(), 0, 0);
+    var regionStorage = spy(new RegionStorage(dataDir, key));
+    var storageData = backend.new RegionStorageData(regionStorage);
+    storageData.setDirty();
+    doReturn(Set.of("path")).when(regionStorage).getKeys(anyBoolean());
+
+    RegionIoExecutor io = new RegionIoExecutor(1, 1);
+    var asyncCheck = new RegionInUseCheck(io, mock(Logger.class));
+    CountDownLatch blocker = new CountDownLatch(1);
+    io.submit(key, () -> {
+      blocker.await();
+      return null;
+    });
+
+    assertThat(
+        "Value in-use state must match world state",
+        asyncCheck.test(key, storageData),
+        is(world.getLoadedState()));
+    verify(regionStorage).discardEncoded();
+    verify(regionStorage, never()).deleteFiles();
+
+    blocker.countDown();
+    io.flush().join();
+    verify(regionStorage).deleteFiles();
+    verify(regionStorage, never()).delete();
+    assertThat("Executor must terminate", io.shutdown(1, TimeUnit.SECONDS));
+  }
+
   @DisplayName("Errors are logged when file fails to delete.")
   @ParameterizedTest
   @MethodSource("getWorlds")
   void testDirtyEmptyRegionError(@NotNull LoadedStateWorld world) throws IOException {
     var key = new Region(world.getName(), 0, 0);
     var regionStorage = spy(new RegionStorage(dataDir, key));
-    var storageData = manager.new RegionStorageData(regionStorage);
+    var storageData = backend.new RegionStorageData(regionStorage);
 
     // Dirty empty state
     storageData.setDirty();
@@ -166,12 +208,42 @@ class RegionInUseCheckTest {
     Files.deleteIfExists(path);
   }
 
+  @DisplayName("Regions are still indexed when their files fail to delete.")
+  @ParameterizedTest
+  @MethodSource("getWorlds")
+  void testDirtyEmptyRegionErrorIndexed(@NotNull LoadedStateWorld world) throws IOException {
+    var key = new Region(world.getName(), 0, 0);
+    var regionStorage = spy(new RegionStorage(dataDir, key));
+    var storageData = backend.new RegionStorageData(regionStorage);
+    storageData.setDirty();
+    Path path = storageData.getStorage().getDataFile().toPath();
+    Files.createDirectories(path.getParent());
+    Files.createFile(path);
+
+    Logger logger = mock(Logger.class);
+    RegionFileIndex regionFiles = new RegionFileIndex(dataDir, logger);
+    assertThat("Region must be indexed", regionFiles.exists(key));
+    var indexedCheck = new RegionInUseCheck(RegionIoExecutor.synchronous(), logger, regionFiles);
+    doThrow(new IOException("oh no")).when(regionStorage).deleteFiles();
+
+    assertThat(
+        "Value in-use state must match world state",
+        indexedCheck.test(key, storageData),
+        is(world.getLoadedState()));
+    assertThat("File must remain", Files.exists(path));
+    assertThat("Remaining file must still be indexed", regionFiles.exists(key));
+    assertThat("Value must be retried", storageData.isDirty());
+
+    // Clean up.
+    Files.deleteIfExists(path);
+  }
+
   @DisplayName("Valid data writes to disk during check.")
   @ParameterizedTest
   @MethodSource("getWorlds")
   void testDirtyRegion(@NotNull LoadedStateWorld world) throws IOException {
     Region key = new Region(world.getName(), 0, 0);
-    RegionStorageData value = manager.new RegionStorageData(new RegionStorage(dataDir, key));
+    RegionStorageData value = backend.new RegionStorageData(new RegionStorage(dataDir, key));
 
     // Non-empty dirty state
     value.setDirty();
@@ -196,7 +268,7 @@ class RegionInUseCheckTest {
   void testDirtyRegionError(@NotNull LoadedStateWorld world) throws IOException {
     var key = new Region(world.getName(), 0, 0);
     var regionStorage = spy(new RegionStorage(dataDir, key));
-    var storageData = manager.new RegionStorageData(regionStorage);
+    var storageData = backend.new RegionStorageData(regionStorage);
 
     // Non-empty dirty state
     storageData.setDirty();
@@ -206,7 +278,7 @@ class RegionInUseCheckTest {
     Files.createFile(path);
 
     // Throw when saving.
-    doThrow(new IOException("oh no")).when(regionStorage).save();
+    doThrow(new IOException("oh no")).when(regionStorage).write(any());
 
     assertThat(
         "Value in-use state must match world state",
@@ -1,4 +1,4 @@
-package com.github.jikoo.enchantableblocks.registry;
+package com.github.jikoo.enchantableblocks.storage;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -8,9 +8,11 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
-import com.github.jikoo.enchantableblocks.registry.EnchantableBlockManager.RegionStorageData;
+import com.github.jikoo.enchantableblocks.storage.RegionFileStorageBackend.RegionStorageData;
 import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionFileIndex;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -29,10 +31,10 @@ class RegionLoadFunctionTest {
 
   @BeforeEach
   void setUp() {
-    EnchantableBlockManager manager = mock(EnchantableBlockManager.class);
+    RegionFileStorageBackend backend = mock(RegionFileStorageBackend.class);
     var dataDir = Path.of(".", "src", "test", "resources", getClass().getSimpleName(), "data");
     var logger = mock(Logger.class);
-    loadFunction = new RegionLoadFunction(manager, dataDir, logger);
+    loadFunction = new RegionLoadFunction(backend, dataDir, logger);
   }
 
   @DisplayName("Nonexistent data should be handled gracefully.")
@@ -67,6 +69,24 @@ class RegionLoadFunctionTest {
     verify(logger, times(2)).log(any(Level.class), any(Throwable.class), any());
   }
 
+  @DisplayName("Indexed regions without data should not be loaded.")
+  @Test
+  void testLoadIndexed() {
+    var index = mock(RegionFileIndex.class);
+    var indexed = new RegionLoadFunction(
+        loadFunction.backend(),
+        loadFunction.dataDir(),
+        loadFunction.logger(),
+        index);
+    Region region = new Region("world", 1, 1);
+
+    assertThat("Unindexed data must not load", indexed.apply(region, false), is(nullValue()));
+    verify(index).exists(region);
+
+    when(index.exists(region)).thenReturn(true);
+    assertThat("Indexed data must load", indexed.apply(region, false), is(notNullValue()));
+  }
+
   @DisplayName("Valid data should always load.")
   @Test
   void testLoadValid() {
@@ -0,0 +1,194 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.github.jikoo.enchantableblocks.block.EnchantableBlock;
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@DisplayName("Feature: Store blocks in an SQLite database.")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SqliteStorageBackendTest {
+
+  private static final String WORLD = "world";
+  private static final long POSITION = PackedCoords.packBlock(1, 64, 1);
+
+  private final Path directory =
+      Path.of(".", "src", "test", "resources", getClass().getSimpleName());
+  private final Logger logger = mock(Logger.class);
+  private final Queue<Runnable> mainThread = new ConcurrentLinkedQueue<>();
+  private final List<EnchantableBlock> loadedBlocks = new ArrayList<>();
+  private SqliteStorageBackend backend;
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    delete();
+    mainThread.clear();
+    loadedBlocks.clear();
+    backend = open();
+  }
+
+  @AfterEach
+  void afterEach() throws IOException {
+    backend.close();
+    delete();
+  }
+
+  private void delete() throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> {
+        try {
+          Files.delete(file);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+    }
+  }
+
+  private @NotNull SqliteStorageBackend open() throws IOException {
+    return new SqliteStorageBackend(
+        directory.resolve("blocks.db"),
+        logger,
+        mainThread::add,
+        (worldName, chunkX, chunkZ) -> loadedBlocks);
+  }
+
+  private <T> T await(@NotNull CompletableFuture<T> future) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!future.isDone()) {
+      Runnable task = mainThread.poll();
+      if (task != null) {
+        task.run();
+      } else if (System.nanoTime() - deadline > 0) {
+        throw new AssertionError("Timed out waiting for main thread task");
+      } else {
+        Thread.sleep(1);
+      }
+    }
+    return future.join();
+  }
+
+  private void putDirtyBlock(int ticks) {
+    ConfigurationSection section = backend.putBlock(WORLD, 1, 64, 1);
+    section.set("silk.ticks", ticks);
+    EnchantableBlock enchantableBlock = mock(EnchantableBlock.class);
+    doReturn(true).when(enchantableBlock).isDirty();
+    doReturn(1).when(enchantableBlock).getX();
+    doReturn(64).when(enchantableBlock).getY();
+    doReturn(1).when(enchantableBlock).getZ();
+    loadedBlocks.add(enchantableBlock);
+  }
+
+  private @NotNull Map<Long, ConfigurationSection> load() throws InterruptedException {
+    return await(backend.loadChunk(WORLD, 0, 0));
+  }
+
+  @DisplayName("Blocks must be stored, loaded, and removed.")
+  @Test
+  void testRoundTrip() throws IOException, InterruptedException {
+    putDirtyBlock(5);
+    backend.flush().join();
+    backend.unloadChunk(WORLD, 0, 0);
+    loadedBlocks.clear();
+
+    Map<Long, ConfigurationSection> stored = load();
+    ConfigurationSection section = stored.get(POSITION);
+    assertThat("Block must be loaded", section, is(notNullValue()));
+    assertThat("Data must be preserved", section.getInt("silk.ticks"), is(5));
+
+    backend.close();
+    backend = open();
+    section = load().get(POSITION);
+    assertThat("Block must be persisted", section, is(notNullValue()));
+    assertThat("Data must be persisted", section.getInt("silk.ticks"), is(5));
+
+    backend.removeBlock(WORLD, 1, 64, 1);
+    backend.unloadChunk(WORLD, 0, 0);
+    backend.flush().join();
+    assertThat("Block must be removed", load(), is(anEmptyMap()));
+  }
+
+  @DisplayName("Chunks unloaded while being read must not serve stale data.")
+  @Test
+  void testUnloadDuringLoad() throws InterruptedException {
+    putDirtyBlock(1);
+    backend.unloadChunk(WORLD, 0, 0);
+    loadedBlocks.clear();
+    backend.flush().join();
+
+    CompletableFuture<Map<Long, ConfigurationSection>> inFlight = backend.loadChunk(WORLD, 0, 0);
+    assertThat(
+        "Loads in flight must be shared",
+        backend.loadChunk(WORLD, 0, 0),
+        is(inFlight));
+    backend.unloadChunk(WORLD, 0, 0);
+    ConfigurationSection data = new MemoryConfiguration();
+    data.set("silk.ticks", 2);
+    backend.restoreBlock(WORLD, 1, 64, 1, data);
+    backend.flush().join();
+    await(inFlight);
+
+    ConfigurationSection section = load().get(POSITION);
+    assertThat("Block must be loaded", section, is(notNullValue()));
+    assertThat("Newer data must be loaded", section.getInt("silk.ticks"), is(2));
+  }
+
+  @DisplayName("Blocks removed while a chunk is read must stay removed.")
+  @Test
+  void testRemoveDuringLoad() throws InterruptedException {
+    putDirtyBlock(1);
+    backend.unloadChunk(WORLD, 0, 0);
+    loadedBlocks.clear();
+    backend.flush().join();
+
+    CompletableFuture<Map<Long, ConfigurationSection>> inFlight = backend.loadChunk(WORLD, 0, 0);
+    backend.removeBlock(WORLD, 1, 64, 1);
+
+    assertThat("Removed block must not be loaded", await(inFlight), is(anEmptyMap()));
+  }
+
+  @DisplayName("Chunks needed immediately must share the read in progress.")
+  @Test
+  void testLoadNowDuringLoad() throws InterruptedException {
+    putDirtyBlock(1);
+    backend.unloadChunk(WORLD, 0, 0);
+    loadedBlocks.clear();
+    backend.flush().join();
+
+    CompletableFuture<Map<Long, ConfigurationSection>> inFlight = backend.loadChunk(WORLD, 0, 0);
+    Map<Long, ConfigurationSection> stored = backend.loadChunkNow(WORLD, 0, 0);
+    assertThat("Block must be loaded", stored.get(POSITION), is(notNullValue()));
+    assertThat("Read in progress must be shared", await(inFlight), is(sameInstance(stored)));
+  }
+
+}
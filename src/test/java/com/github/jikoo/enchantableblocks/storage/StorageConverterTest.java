@@ -0,0 +1,182 @@
+package com.github.jikoo.enchantableblocks.storage;
+
+import static com.github.jikoo.enchantableblocks.mock.matcher.ItemMatcher.isSimilar;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.jikoo.enchantableblocks.mock.ServerMocks;
+import com.github.jikoo.enchantableblocks.util.PackedCoords;
+import com.github.jikoo.enchantableblocks.util.Region;
+import com.github.jikoo.enchantableblocks.util.RegionStorage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.bukkit.Material;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@DisplayName("Feature: Convert stored data between formats offline.")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StorageConverterTest {
+
+  private final Path dataDir =
+      Path.of(".", "src", "test", "resources", getClass().getSimpleName(), "data");
+
+  @BeforeAll
+  void beforeAll() {
+    ServerMocks.mockServer();
+  }
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    delete();
+  }
+
+  @AfterEach
+  void afterEach() throws IOException {
+    delete();
+  }
+
+  private void delete() throws IOException {
+    Path root = dataDir.getParent();
+    if (!Files.exists(root)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(root)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> {
+        try {
+          Files.delete(file);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+    }
+  }
+
+  @DisplayName("Regions must convert between formats without changing their data.")
+  @Test
+  void testConvertRegions() throws IOException, InvalidConfigurationException {
+    ItemStack itemStack = new ItemStack(Material.FURNACE);
+    itemStack.addUnsafeEnchantment(Enchantment.EFFICIENCY, 5);
+    String path = PackedCoords.chunkKey(0, 0) + "." + PackedCoords.blockKey(1, 64, 1);
+    for (int i = 0; i < 4; ++i) {
+      RegionStorage storage = new RegionStorage(dataDir, new Region("world", i, i));
+      storage.set(path + ".itemstack", itemStack);
+      storage.set(path + ".silk.ticks", i);
+      storage.save();
+    }
+
+    StorageConverter.Report report =
+        StorageConverter.parse(new String[] { dataDir.toString(), "compressed", "--threads", "2" })
+            .convert();
+    assertThat("All regions must be converted", report.results().size(), is(4));
+    assertThat("No regions may fail", report.failed(), is(empty()));
+    assertThat(
+        "All blocks must be counted",
+        report.results().stream().mapToInt(StorageConverter.Result::blocks).sum(),
+        is(4));
+
+    for (int i = 0; i < 4; ++i) {
+      RegionStorage storage = new RegionStorage(dataDir, new Region("world", i, i));
+      byte[] raw = Files.readAllBytes(storage.getDataFile().toPath());
+      assertThat("Region must be compressed", raw[3], is((byte) 'Z'));
+      storage.load();
+      assertThat(
+          "Item must be preserved",
+          storage.getItemStack(path + ".itemstack"),
+          isSimilar(itemStack));
+      assertThat("Data must be preserved", storage.getInt(path + ".silk.ticks"), is(i));
+    }
+
+    report = StorageConverter.parse(new String[] { dataDir.toString(), "binary" }).convert();
+    assertThat("No regions may fail", report.failed(), is(empty()));
+    RegionStorage storage = new RegionStorage(dataDir, new Region("world", 0, 0));
+    byte[] raw = Files.readAllBytes(storage.getDataFile().toPath());
+    assertThat("Region must be uncompressed", raw[3], is((byte) 'G'));
+  }
+
+  @DisplayName("Regions must convert into a database and back without changing their data.")
+  @Test
+  void testConvertDatabase() throws IOException, InvalidConfigurationException {
+    ItemStack itemStack = new ItemStack(Material.FURNACE);
+    itemStack.addUnsafeEnchantment(Enchantment.EFFICIENCY, 5);
+    String path = PackedCoords.chunkKey(0, 0) + "." + PackedCoords.blockKey(1, 64, 1);
+    RegionStorage original = new RegionStorage(dataDir, new Region("world", 0, 0));
+    original.set(path + ".itemstack", itemStack);
+    original.set(path + ".silk.ticks", 3);
+    original.save();
+
+    String dir = dataDir.toString();
+    StorageConverter.Report report =
+        StorageConverter.parse(new String[] { dir, "sqlite" }).convert();
+    assertThat("No regions may fail", report.failed(), is(empty()));
+    Files.delete(original.getDataFile().toPath());
+
+    report = StorageConverter.parse(new String[] { dir, "compressed", "--from-database" })
+        .convert();
+    assertThat("Region must be converted", report.results().size(), is(1));
+    assertThat("No regions may fail", report.failed(), is(empty()));
+    assertThat("Block must be counted", report.results().getFirst().blocks(), is(1));
+
+    RegionStorage storage = new RegionStorage(dataDir, new Region("world", 0, 0));
+    byte[] raw = Files.readAllBytes(storage.getDataFile().toPath());
+    assertThat("Region must be compressed", raw[3], is((byte) 'Z'));
+    storage.load();
+    assertThat(
+        "Item must be preserved",
+        storage.getItemStack(path + ".itemstack"),
+        isSimilar(itemStack));
+    assertThat("Data must be preserved", storage.getInt(path + ".silk.ticks"), is(3));
+  }
+
+  @DisplayName("Legacy YAML regions must be skipped.")
+  @Test
+  void testSkipLegacy() throws IOException {
+    Path legacy = dataDir.resolve(Path.of("world", "0_0.yml"));
+    Files.createDirectories(legacy.getParent());
+    Files.writeString(legacy, "0_0:\n  1_64_1:\n    silk:\n      ticks: 1\n");
+
+    StorageConverter.Report report =
+        StorageConverter.parse(new String[] { dataDir.toString(), "binary" }).convert();
+    assertThat("Region must be found", report.results().size(), is(1));
+    assertThat(
+        "Region must be skipped",
+        report.results().getFirst().status(),
+        is(StorageConverter.Status.SKIPPED));
+    assertThat("Legacy file must be untouched", Files.exists(legacy));
+  }
+
+  @DisplayName("Invalid arguments must be rejected.")
+  @Test
+  void testInvalidArguments() throws IOException {
+    Files.createDirectories(dataDir);
+    String dir = dataDir.toString();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> StorageConverter.parse(new String[] { dir }));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> StorageConverter.parse(new String[] { dir, "csv" }));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> StorageConverter.parse(new String[] { dir, "binary", "--threads", "0" }));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> StorageConverter.parse(new String[] { dir, "binary", "--threads" }));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> StorageConverter.parse(new String[] { dir, "binary", "--from-database" }));
+  }
+
+}
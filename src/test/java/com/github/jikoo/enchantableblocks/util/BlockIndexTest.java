@@ -0,0 +1,102 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@DisplayName("Feature: Index loaded values by block coordinates.")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BlockIndexTest {
+
+  private static final String WORLD = "world";
+
+  @DisplayName("Values must be retrievable at their exact position.")
+  @Test
+  void testGetPut() {
+    BlockIndex<String> index = new BlockIndex<>();
+    assertThat("Unset position must be null", index.get(WORLD, 0, 0, 0), is(nullValue()));
+
+    assertThat("New value must not replace", index.put(WORLD, -1, -64, 17, "a"), is(nullValue()));
+    assertThat("Value must be set", index.get(WORLD, -1, -64, 17), is("a"));
+    assertThat("Other world must not match", index.get("other", -1, -64, 17), is(nullValue()));
+    assertThat("Other height must not match", index.get(WORLD, -1, 64, 17), is(nullValue()));
+    assertThat("Other chunk must not match", index.get(WORLD, 15, -64, 17), is(nullValue()));
+
+    assertThat("Value must be replaced", index.put(WORLD, -1, -64, 17, "b"), is("a"));
+    assertThat("Replacement must be set", index.get(WORLD, -1, -64, 17), is("b"));
+  }
+
+  @DisplayName("Occupancy filter must never reject set positions.")
+  @Test
+  void testMayContain() {
+    BlockIndex<String> index = new BlockIndex<>();
+    int[][] positions = { { 0, 0, 0 }, { -17, -64, 33 }, { 1_000, 319, -1_000 } };
+    for (int[] position : positions) {
+      assertThat(
+          "Empty index must reject positions",
+          index.mayContain(position[0], position[1], position[2]),
+          is(false));
+    }
+
+    for (int[] position : positions) {
+      index.put(WORLD, position[0], position[1], position[2], "value");
+      index.put("other", position[0], position[1], position[2], "value");
+    }
+    for (int[] position : positions) {
+      assertThat(
+          "Set positions must not be rejected",
+          index.mayContain(position[0], position[1], position[2]));
+    }
+
+    index.remove(WORLD, 0, 0, 0);
+    assertThat("Position set in other world must not be rejected", index.mayContain(0, 0, 0));
+    index.remove("other", 0, 0, 0);
+    assertThat("Removed positions must be rejected", index.mayContain(0, 0, 0), is(false));
+
+    index.removeChunk(WORLD, -2, 2);
+    index.removeChunk("other", -2, 2);
+    assertThat(
+        "Positions in removed chunks must be rejected",
+        index.mayContain(-17, -64, 33),
+        is(false));
+    assertThat("Other positions must not be rejected", index.mayContain(1_000, 319, -1_000));
+  }
+
+  @DisplayName("Values must be grouped and removable by chunk.")
+  @Test
+  void testChunks() {
+    BlockIndex<String> index = new BlockIndex<>();
+    // Enough values to grow the chunk's table.
+    for (int i = 0; i < 8; ++i) {
+      index.put(WORLD, i, i, i, String.valueOf(i));
+    }
+    index.put(WORLD, 16, 0, 0, "neighbor");
+
+    assertThat(
+        "Chunk must contain its values",
+        index.getChunk(WORLD, 0, 0),
+        containsInAnyOrder("0", "1", "2", "3", "4", "5", "6", "7"));
+
+    assertThat("Value must be removed", index.remove(WORLD, 3, 3, 3), is("3"));
+    assertThat("Removed value must be unset", index.get(WORLD, 3, 3, 3), is(nullValue()));
+    assertThat("Remaining value must be set", index.get(WORLD, 7, 7, 7), is("7"));
+    assertThat("Missing value must not be removed", index.remove(WORLD, 3, 3, 3), is(nullValue()));
+
+    assertThat(
+        "Chunk values must be removed",
+        index.removeChunk(WORLD, 0, 0),
+        containsInAnyOrder("0", "1", "2", "4", "5", "6", "7"));
+    assertThat("Removed chunk must be empty", index.getChunk(WORLD, 0, 0), is(empty()));
+    assertThat(
+        "Neighboring chunk must be retained",
+        index.get(WORLD, 16, 0, 0),
+        is("neighbor"));
+  }
+
+}
@@ -1,14 +1,26 @@
 package com.github.jikoo.enchantableblocks.util;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -84,6 +96,54 @@ class CacheTest {
 
   }
 
+  @DisplayName("Cache must visit and remove all values without checking use.")
+  @Test
+  void testInvalidateAll() {
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withPostRemoval((key, value) -> {
+          throw new IllegalStateException("Post-removal function may not be called!");
+        })
+        .withInUseCheck((key, value) -> {
+          throw new IllegalStateException("In use check may not be called!");
+        })
+        .withMaximumWeight(10, (key, value) -> 1)
+        .build();
+    cache.put(KEY, VALUE);
+    cache.put(VALUE, KEY);
+
+    List<String> visited = new ArrayList<>();
+    cache.forEach((key, value) -> visited.add(key + value));
+    visited.sort(null);
+    assertThat("All values must be visited.", visited, is(List.of(KEY + VALUE, VALUE + KEY)));
+
+    assertDoesNotThrow(cache::invalidateAll);
+    assertThat("Values must be removed by invalidation.", cache.containsKey(KEY), is(false));
+    assertThat("Values must be removed by invalidation.", cache.containsKey(VALUE), is(false));
+    assertThat("Weight must be released.", cache.getWeight(), is(0L));
+    assertThat("Expiry must be released.", cache.getScheduledCount(), is(0));
+  }
+
+  @DisplayName("Cache must rank values by how often they are read.")
+  @Test
+  void testMostAccessed() {
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>().build();
+    cache.put(KEY, VALUE);
+    cache.put(VALUE, KEY);
+    cache.put("null", null);
+    for (int i = 0; i < 3; ++i) {
+      cache.get(VALUE);
+    }
+    cache.get(KEY);
+    cache.get("null");
+
+    assertThat(
+        "Keys must be ordered by reads.",
+        cache.getMostAccessed(10),
+        is(List.of(VALUE, KEY)));
+    assertThat("Keys must be limited.", cache.getMostAccessed(1), is(List.of(VALUE)));
+    assertThat("Keys must be limited.", cache.getMostAccessed(0), is(empty()));
+  }
+
   @DisplayName("Cache must remove mappings when keys are expired.")
   @Test
   void testExpireAll() {
@@ -94,6 +154,28 @@ class CacheTest {
     assertThat("Value must be removed when all keys expire.", cache.containsKey(KEY), is(false));
   }
 
+  @DisplayName("Cache must defer checking keys expired for a later sweep.")
+  @Test
+  void testExpireAllLater() {
+    AtomicInteger inUseChecks = new AtomicInteger();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withInUseCheck((key, value) -> inUseChecks.incrementAndGet() < 0)
+        .withSweep(true)
+        .build();
+    cache.put(KEY, VALUE);
+    cache.put(VALUE, KEY);
+    cache.expireAllLater();
+
+    assertThat("In use check must not run until swept.", inUseChecks.get(), is(0));
+    assertThat("Value must remain set until swept.", cache.containsKey(KEY));
+
+    assertThat("Sweep must complete.", cache.sweep(Long.MAX_VALUE));
+    assertThat("In use check must run on sweep.", inUseChecks.get(), is(2));
+    assertThat("Value must be removed by sweep.", cache.containsKey(KEY), is(false));
+    assertThat("Value must be removed by sweep.", cache.containsKey(VALUE), is(false));
+    assertThat("Expiry must be released.", cache.getScheduledCount(), is(0));
+  }
+
   @DisplayName("Cache must retain values for the specified duration.")
   @Test
   void testRetentionDuration() {
@@ -160,4 +242,477 @@ class CacheTest {
     assertThat("Value must be removed by retention policy.", cache.containsKey(KEY), is(false));
   }
 
+  @DisplayName("Cache must retain accessed values regardless of how long they are cached.")
+  @Test
+  void testRetentionTouched() {
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withClock(clock)
+        .withRetention(MIN_RETENTION)
+        .withLazyFrequency(0)
+        .build();
+    cache.put(KEY, VALUE);
+
+    // Access over many retention periods so expiry records must be moved repeatedly.
+    long now = 0;
+    for (int i = 0; i < 500; ++i) {
+      now += MIN_RETENTION / 10;
+      when(clock.millis()).thenReturn(now);
+      assertThat("Accessed value must remain set.", cache.get(KEY), is(VALUE));
+    }
+
+    when(clock.millis()).thenReturn(now + MIN_RETENTION + 1L);
+
+    assertThat("Value must be removed once no longer accessed.", cache.containsKey(KEY), is(false));
+  }
+
+  @DisplayName("Expiry bookkeeping must be proportional to live keys, not accesses.")
+  @Test
+  void testExpiryProportionalToKeys() {
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withClock(clock)
+        .withRetention(MIN_RETENTION)
+        .withLazyFrequency(0)
+        .withInUseCheck((key, value) -> !key.equals(KEY))
+        .build();
+    int liveKeys = 16;
+    for (int i = 0; i < liveKeys; ++i) {
+      cache.put(KEY + i, VALUE);
+    }
+
+    // Span several retention periods so records are rescheduled as well as touched.
+    long now = 0;
+    for (int i = 0; i < 10_000; ++i) {
+      now += 50;
+      when(clock.millis()).thenReturn(now);
+      // Hot key is accessed constantly while another key churns.
+      cache.get(KEY + 0);
+      cache.put(KEY, VALUE);
+      cache.invalidate(KEY);
+    }
+
+    assertThat(
+        "Each live key must have exactly one expiry record.",
+        cache.getScheduledCount(),
+        is(liveKeys));
+  }
+
+  @DisplayName("Bounded cache must evict values read less often first.")
+  @Test
+  void testMaximumWeight() {
+    List<String> removed = new ArrayList<>();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withMaximumWeight(10, (key, value) -> value.length())
+        .withPostRemoval((key, value) -> removed.add(key))
+        .build();
+
+    cache.put("hot", "12345");
+    cache.put("cold", "12345");
+    assertThat("Values within bound must be retained.", removed, is(empty()));
+    assertThat("Weight must be tracked.", cache.getWeight(), is(10L));
+
+    cache.get("hot");
+    cache.put("new", "12345");
+    assertThat("Value read less often must be evicted.", removed, is(List.of("cold")));
+    assertThat("Value read again must be retained.", cache.containsKey("hot"));
+    assertThat("New value must be retained.", cache.containsKey("new"));
+    assertThat("Weight must be bounded.", cache.getWeight(), is(10L));
+
+    cache.invalidate("new");
+    assertThat("Invalidated weight must be released.", cache.getWeight(), is(5L));
+  }
+
+  @DisplayName("Unbounded cache must not weigh values.")
+  @Test
+  void testMaximumWeightUnbounded() {
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withMaximumWeight(0, (key, value) -> {
+          throw new IllegalStateException("Weigher may not be called!");
+        })
+        .build();
+
+    assertDoesNotThrow(() -> cache.put(KEY, VALUE));
+    assertDoesNotThrow(() -> cache.put(KEY, KEY));
+    assertThat("Value must be retained.", cache.get(KEY), is(KEY));
+    assertThat("Weight must not be tracked.", cache.getWeight(), is(0L));
+  }
+
+  @DisplayName("Bounded cache must not evict values in use.")
+  @Test
+  void testMaximumWeightInUse() {
+    AtomicBoolean inUse = new AtomicBoolean(true);
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withMaximumWeight(1, (key, value) -> 1)
+        .withInUseCheck((key, value) -> inUse.get())
+        .build();
+
+    cache.put(KEY, VALUE);
+    cache.put(VALUE, KEY);
+    assertThat("Value in use must be retained.", cache.containsKey(KEY));
+    assertThat("New value must be retained.", cache.containsKey(VALUE));
+    assertThat("Bound may be exceeded by values in use.", cache.getWeight(), is(2L));
+
+    inUse.set(false);
+    cache.put(KEY + VALUE, VALUE);
+    assertThat("Values no longer in use must be evicted.", cache.getWeight(), is(1L));
+    assertThat("New value must be retained.", cache.containsKey(KEY + VALUE));
+  }
+
+  @DisplayName("Cache must record statistics.")
+  @Test
+  void testStats() {
+    AtomicBoolean fail = new AtomicBoolean();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withClock(clock)
+        .withRetention(MIN_RETENTION)
+        .withLazyFrequency(0)
+        .withInUseCheck((key, value) -> false)
+        .withLoadFunction((key, create) -> {
+          if (fail.get()) {
+            throw new IllegalStateException("Failed to load " + key);
+          }
+          return create ? VALUE : null;
+        })
+        .build();
+
+    cache.get(KEY);
+    cache.get(KEY);
+    cache.get(VALUE, false);
+    fail.set(true);
+    assertThrows(IllegalStateException.class, () -> cache.get(KEY + VALUE));
+
+    CacheStats stats = cache.getStats();
+    assertThat("Hits must be counted.", stats.hits(), is(1L));
+    assertThat("Misses must be counted.", stats.misses(), is(3L));
+    assertThat("Loads must be counted.", stats.loads(), is(2L));
+    assertThat("Failed loads must be counted.", stats.loadFailures(), is(1L));
+    assertThat(
+        "Load times must be recorded.",
+        Arrays.stream(stats.loadTimeHistogram()).sum(),
+        is(3L));
+    assertThat("Size must be recorded.", stats.size(), is(1L));
+
+    when(clock.millis()).thenReturn(MIN_RETENTION + 1L);
+    cache.containsKey(KEY);
+    stats = cache.getStats();
+    assertThat("Evictions must be counted.", stats.evictions(), is(1L));
+    assertThat("In use checks must be counted.", stats.inUseChecks(), is(1L));
+    assertThat("Size must be recorded.", stats.size(), is(0L));
+  }
+
+  @DisplayName("Swept cache must only expire and evict values when swept.")
+  @Test
+  void testSweep() {
+    AtomicInteger inUseChecks = new AtomicInteger();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withClock(clock)
+        .withRetention(MIN_RETENTION)
+        .withLazyFrequency(0)
+        .withInUseCheck((key, value) -> inUseChecks.incrementAndGet() < 0)
+        .withMaximumWeight(1, (key, value) -> 1)
+        .withSweep(true)
+        .build();
+    cache.put(KEY, VALUE);
+    cache.put(VALUE, KEY);
+
+    when(clock.millis()).thenReturn(MIN_RETENTION + 1L);
+
+    assertThat("Value must not be expired by access.", cache.containsKey(KEY));
+    assertThat("Value must not be evicted by access.", cache.get(VALUE), is(KEY));
+    assertThat("In use check must not run on access.", inUseChecks.get(), is(0));
+
+    assertThat("Sweep must complete.", cache.sweep(Long.MAX_VALUE));
+    assertThat("Value must be expired by sweep.", cache.containsKey(KEY), is(false));
+    assertThat("Value read recently must be retained.", cache.containsKey(VALUE));
+    assertThat("In use check must run on sweep.", inUseChecks.get(), is(1));
+  }
+
+  @DisplayName("Sweep must resume when out of time.")
+  @Test
+  void testSweepBudget() {
+    Cache<Integer, Integer> cache = new Cache.CacheBuilder<Integer, Integer>()
+        .withClock(clock)
+        .withRetention(MIN_RETENTION)
+        .withSweep(true)
+        .build();
+    int keyCount = 10;
+    for (int i = 0; i < keyCount; ++i) {
+      cache.put(i, i);
+    }
+
+    when(clock.millis()).thenReturn(MIN_RETENTION + 1L);
+
+    assertThat("Sweep must not complete without time.", cache.sweep(0), is(false));
+    assertThat("Sweep must make progress.", cache.getStats().size(), is(keyCount - 1L));
+
+    int sweeps = 1;
+    boolean complete;
+    do {
+      complete = cache.sweep(0);
+      ++sweeps;
+    } while (!complete);
+    assertThat("Each sweep must handle a value.", sweeps, is(keyCount));
+    assertThat("All values must be expired.", cache.getStats().size(), is(0L));
+  }
+
+  @DisplayName("In use checks must not block other threads from using the cache.")
+  @Test
+  void testInUseCheckUnlocked() {
+    AtomicReference<Cache<String, String>> cacheRef = new AtomicReference<>();
+    AtomicBoolean written = new AtomicBoolean();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withClock(clock)
+        .withRetention(MIN_RETENTION)
+        .withInUseCheck((key, value) -> {
+          // Writes may wait on other threads, such as when a backed-up writer applies backpressure.
+          Thread writer = new Thread(() -> cacheRef.get().put(VALUE, KEY));
+          writer.start();
+          try {
+            written.set(writer.join(Duration.ofSeconds(5)));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return false;
+        })
+        .withSweep(true)
+        .build();
+    cacheRef.set(cache);
+    cache.put(KEY, VALUE);
+
+    when(clock.millis()).thenReturn(MIN_RETENTION + 1L);
+
+    assertThat("Sweep must complete.", cache.sweep(Long.MAX_VALUE));
+    assertThat("Other threads must be able to write during in use checks.", written.get());
+    assertThat("Value not in use must be expired.", cache.containsKey(KEY), is(false));
+    assertThat("Value written during check must be retained.", cache.containsKey(VALUE));
+  }
+
+  @DisplayName("Asynchronous requests must share a single load.")
+  @Test
+  void testGetAsync() {
+    AtomicInteger loads = new AtomicInteger();
+    CompletableFuture<String> pending = new CompletableFuture<>();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withAsyncLoadFunction((key, create) -> {
+          loads.incrementAndGet();
+          return pending;
+        })
+        .build();
+
+    CompletableFuture<String> first = cache.getAsync(KEY, true);
+    CompletableFuture<String> second = cache.getAsync(KEY, true);
+    assertThat("Request must not wait for load.", first.isDone(), is(false));
+    assertThat("Value must not be set until loaded.", cache.containsKey(KEY), is(false));
+
+    pending.complete(VALUE);
+    assertThat("Loaded value must be returned.", first.join(), is(VALUE));
+    assertThat("Shared value must be returned.", second.join(), is(VALUE));
+    assertThat("Key must be loaded once.", loads.get(), is(1));
+    assertThat("Loaded value must be cached.", cache.get(KEY), is(VALUE));
+    assertThat(
+        "Cached value must be returned immediately.",
+        cache.getAsync(KEY, true).isDone());
+  }
+
+  @DisplayName("Failed asynchronous loads must complete exceptionally and not be cached.")
+  @Test
+  void testGetAsyncFailure() {
+    AtomicBoolean fail = new AtomicBoolean(true);
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withAsyncLoadFunction((key, create) -> fail.get()
+            ? CompletableFuture.failedFuture(new IllegalStateException("Failed to load " + key))
+            : CompletableFuture.completedFuture(key))
+        .build();
+
+    CompletableFuture<String> future = cache.getAsync(KEY, true);
+    assertThat("Load must fail.", future.isCompletedExceptionally());
+    assertThat("Failure must not be cached.", cache.containsKey(KEY), is(false));
+
+    fail.set(false);
+    assertThat("Next request must load again.", cache.getAsync(KEY, true).join(), is(KEY));
+  }
+
+  @DisplayName("Synchronous requests must share asynchronous loads.")
+  @Test
+  void testGetDuringAsyncLoad() throws InterruptedException {
+    CompletableFuture<String> pending = new CompletableFuture<>();
+    AtomicInteger loads = new AtomicInteger();
+    List<Runnable> executor = new ArrayList<>();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withLoadFunction((key, create) -> {
+          loads.incrementAndGet();
+          return VALUE;
+        })
+        .withAsyncLoadFunction((key, create) -> pending)
+        .withAsyncLoadExecutor(executor::add)
+        .build();
+
+    CompletableFuture<String> future = cache.getAsync(KEY, true);
+    Thread completer = new Thread(() -> {
+      try {
+        Thread.sleep(50L);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      pending.complete(KEY);
+    });
+    completer.start();
+    assertThat("Asynchronous load must be shared.", cache.get(KEY), is(KEY));
+    completer.join();
+    assertThat("Synchronous load must not be used.", loads.get(), is(0));
+    assertThat("Request must not wait for the executor.", future.isDone(), is(false));
+
+    executor.forEach(Runnable::run);
+    assertThat("Shared value must be returned.", future.join(), is(KEY));
+    assertThat("Loaded value must be cached.", cache.get(KEY), is(KEY));
+  }
+
+  @DisplayName("Cache must support concurrent access.")
+  @Test
+  void testConcurrentAccess() throws InterruptedException {
+    Cache<Integer, Integer> cache = new Cache.CacheBuilder<Integer, Integer>()
+        .withLoadFunction((key, create) -> key)
+        .withLazyFrequency(0)
+        .build();
+    int threadCount = 8;
+    int keyCount = 1_000;
+    AtomicBoolean failed = new AtomicBoolean();
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; ++i) {
+      int offset = i;
+      threads[i] = new Thread(() -> {
+        for (int key = 0; key < keyCount; ++key) {
+          int actual = (key + offset * 31) % keyCount;
+          if (offset % 2 == 0) {
+            cache.put(actual, actual);
+          }
+          Integer value = cache.get(actual);
+          if (value == null || value != actual) {
+            failed.set(true);
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat("Values must always be consistent.", failed.get(), is(false));
+    for (int key = 0; key < keyCount; ++key) {
+      assertThat("Value must be set.", cache.containsKey(key));
+    }
+  }
+
+  @DisplayName("Concurrent requests for a key must share a single load.")
+  @Test
+  void testSingleFlight() throws InterruptedException {
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoad = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withLoadFunction((key, create) -> {
+          loads.incrementAndGet();
+          if (key.equals("slow")) {
+            loadStarted.countDown();
+            try {
+              releaseLoad.await();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+          }
+          return key;
+        })
+        .build();
+
+    AtomicReference<String> first = new AtomicReference<>();
+    AtomicReference<String> second = new AtomicReference<>();
+    Thread loader = new Thread(() -> first.set(cache.get("slow")));
+    loader.start();
+    assertThat("Load must start.", loadStarted.await(5, TimeUnit.SECONDS));
+    Thread waiter = new Thread(() -> second.set(cache.get("slow")));
+    waiter.start();
+
+    assertThat("Other keys must not wait for the load.", cache.get("fast"), is("fast"));
+
+    releaseLoad.countDown();
+    loader.join();
+    waiter.join();
+    assertThat("Loaded value must be returned.", first.get(), is("slow"));
+    assertThat("Shared value must be returned.", second.get(), is("slow"));
+    assertThat("Each key must be loaded once.", loads.get(), is(2));
+  }
+
+  @DisplayName("Failed loads must be reported to waiters and must not be cached.")
+  @Test
+  void testLoadFailure() throws InterruptedException {
+    CountDownLatch loadStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoad = new CountDownLatch(1);
+    AtomicBoolean fail = new AtomicBoolean(true);
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withLoadFunction((key, create) -> {
+          if (fail.get()) {
+            loadStarted.countDown();
+            try {
+              releaseLoad.await();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+            throw new IllegalStateException("Failed to load " + key);
+          }
+          return key;
+        })
+        .build();
+
+    AtomicReference<Throwable> loaderError = new AtomicReference<>();
+    AtomicReference<Throwable> waiterError = new AtomicReference<>();
+    Thread loader = new Thread(() -> {
+      try {
+        cache.get("key");
+      } catch (RuntimeException e) {
+        loaderError.set(e);
+      }
+    });
+    loader.start();
+    assertThat("Load must start.", loadStarted.await(5, TimeUnit.SECONDS));
+    Thread waiter = new Thread(() -> {
+      try {
+        cache.get("key");
+      } catch (RuntimeException e) {
+        waiterError.set(e);
+      }
+    });
+    waiter.start();
+    // Give the waiter a chance to join the load in progress.
+    waiter.join(100);
+
+    releaseLoad.countDown();
+    loader.join();
+    waiter.join();
+    assertThat(
+        "Loader must receive failure.",
+        loaderError.get() instanceof IllegalStateException);
+    Throwable error = waiterError.get();
+    if (error instanceof CompletionException) {
+      error = error.getCause();
+    }
+    assertThat("Waiter must receive failure.", error instanceof IllegalStateException);
+    assertThat("Failure must not be cached.", cache.containsKey("key"), is(false));
+
+    fail.set(false);
+    assertThat("Next request must load again.", cache.get("key"), is("key"));
+  }
+
+  @DisplayName("Recursive loads must be rejected.")
+  @Test
+  void testRecursiveLoad() {
+    AtomicReference<Cache<String, String>> reference = new AtomicReference<>();
+    Cache<String, String> cache = new Cache.CacheBuilder<String, String>()
+        .withLoadFunction((key, create) -> reference.get().get(key))
+        .build();
+    reference.set(cache);
+
+    assertThrows(IllegalStateException.class, () -> cache.get("key"));
+    assertThat("Failure must not be cached.", cache.containsKey("key"), is(false));
+  }
+
 }
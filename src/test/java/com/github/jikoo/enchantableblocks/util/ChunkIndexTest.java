@@ -0,0 +1,105 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@DisplayName("Feature: Index chunks containing stored data.")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ChunkIndexTest {
+
+  private final Path dataDir = Path.of(".", "src", "test", "resources", getClass().getSimpleName());
+  private final Path indexFile = dataDir.resolve("chunks.idx");
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    Files.deleteIfExists(indexFile);
+  }
+
+  @AfterAll
+  void afterAll() throws IOException {
+    try (Stream<Path> files = Files.walk(dataDir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> {
+        try {
+          Files.delete(file);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+    }
+  }
+
+  @DisplayName("Chunks must be marked and unmarked.")
+  @Test
+  void testSet() throws IOException {
+    try (ChunkIndex index = ChunkIndex.open(indexFile)) {
+      assertThat("New index must require rebuild", index.isRebuildRequired());
+      assertThat("Unset chunk must not be contained", index.contains(0, 0), is(false));
+
+      index.set(0, 0, true);
+      index.set(-1, 31, true);
+      assertThat("Set chunk must be contained", index.contains(0, 0));
+      assertThat("Negative chunk must be contained", index.contains(-1, 31));
+      assertThat("Neighbor must not be contained", index.contains(1, 0), is(false));
+
+      index.set(0, 0, false);
+      assertThat("Unset chunk must not be contained", index.contains(0, 0), is(false));
+    }
+  }
+
+  @DisplayName("Index must grow to hold many regions.")
+  @Test
+  void testGrow() throws IOException {
+    try (ChunkIndex index = ChunkIndex.open(indexFile)) {
+      for (int region = -500; region < 500; ++region) {
+        index.set(region * 32, region * 64 + 3, true);
+      }
+      for (int region = -500; region < 500; ++region) {
+        assertThat(
+            "Chunk must survive growth",
+            index.contains(region * 32, region * 64 + 3));
+        assertThat(
+            "Other chunk in region must not be set",
+            index.contains(region * 32 + 1, region * 64 + 3),
+            is(false));
+      }
+    }
+  }
+
+  @DisplayName("Cleanly closed index must be reused.")
+  @Test
+  void testPersist() throws IOException {
+    try (ChunkIndex index = ChunkIndex.open(indexFile)) {
+      index.set(10, -10, true);
+    }
+
+    try (ChunkIndex index = ChunkIndex.open(indexFile)) {
+      assertThat("Clean index must not require rebuild", index.isRebuildRequired(), is(false));
+      assertThat("Chunk must persist", index.contains(10, -10));
+    }
+  }
+
+  @DisplayName("Index that was not closed cleanly must be rebuilt.")
+  @Test
+  void testUnclean() throws IOException {
+    ChunkIndex unclosed = ChunkIndex.open(indexFile);
+    unclosed.set(10, -10, true);
+
+    try (ChunkIndex index = ChunkIndex.open(indexFile)) {
+      assertThat("Unclean index must require rebuild", index.isRebuildRequired());
+      assertThat("Stale data must be discarded", index.contains(10, -10), is(false));
+    }
+    unclosed.close();
+  }
+
+}
@@ -0,0 +1,120 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+@DisplayName("Feature: Pack coordinates into primitive keys.")
+class PackedCoordsTest {
+
+  @DisplayName("Block coordinates must survive packing.")
+  @ParameterizedTest
+  @MethodSource("getBlocks")
+  void testPackBlock(int x, int y, int z) {
+    long packed = PackedCoords.packBlock(x, y, z);
+
+    assertThat("X must match", PackedCoords.unpackBlockX(packed), is(x));
+    assertThat("Y must match", PackedCoords.unpackBlockY(packed), is(y));
+    assertThat("Z must match", PackedCoords.unpackBlockZ(packed), is(z));
+    assertThat("Coordinates must be packable", PackedCoords.isPackable(x, y, z));
+  }
+
+  static Stream<Arguments> getBlocks() {
+    return Stream.of(
+        Arguments.of(0, 0, 0),
+        Arguments.of(-1, -1, -1),
+        Arguments.of(30_000_000, 2047, -30_000_000),
+        Arguments.of(-30_000_000, -2048, 30_000_000));
+  }
+
+  @DisplayName("Out of range block coordinates must not be packable.")
+  @Test
+  void testUnpackable() {
+    assertThat("Y must be limited", PackedCoords.isPackable(0, 4096, 0), is(false));
+    assertThat("X must be limited", PackedCoords.isPackable(Integer.MAX_VALUE, 0, 0), is(false));
+  }
+
+  @DisplayName("Chunk coordinates must survive packing.")
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE })
+  void testPackChunk(int coordinate) {
+    long packed = PackedCoords.packChunk(coordinate, -coordinate);
+
+    assertThat("X must match", PackedCoords.unpackChunkX(packed), is(coordinate));
+    assertThat("Z must match", PackedCoords.unpackChunkZ(packed), is(-coordinate));
+  }
+
+  @DisplayName("Keys must be parsed.")
+  @Test
+  void testParseKey() {
+    int[] coords = new int[3];
+    assertThat("Valid key must parse", PackedCoords.parseKey("1_-64_3", coords));
+    assertThat("X must match", coords[0], is(1));
+    assertThat("Y must match", coords[1], is(-64));
+    assertThat("Z must match", coords[2], is(3));
+
+    assertThat("Short key must not parse", PackedCoords.parseKey("1_2", coords), is(false));
+    assertThat("Long key must not parse", PackedCoords.parseKey("1_2_3_4", coords), is(false));
+    assertThat("Invalid key must not parse", PackedCoords.parseKey("a_b_c", coords), is(false));
+    assertThat("Empty part must not parse", PackedCoords.parseKey("1__3", coords), is(false));
+  }
+
+  @DisplayName("Storage keys must survive parsing.")
+  @ParameterizedTest
+  @MethodSource("getBlocks")
+  void testStorageKeys(int x, int y, int z) {
+    int[] coords = new int[3];
+    String blockKey = PackedCoords.blockKey(x, y, z);
+    assertThat("Block key must parse", PackedCoords.parseBlockKey(blockKey, coords));
+    assertThat("X must match", coords[0], is(x));
+    assertThat("Y must match", coords[1], is(y));
+    assertThat("Z must match", coords[2], is(z));
+
+    int[] chunkCoords = new int[2];
+    String chunkKey = PackedCoords.chunkKey(x, z);
+    assertThat("Chunk key must parse", PackedCoords.parseChunkKey(chunkKey, chunkCoords));
+    assertThat("Chunk X must match", chunkCoords[0], is(x));
+    assertThat("Chunk Z must match", chunkCoords[1], is(z));
+  }
+
+  @DisplayName("Legacy keys must be parsed and invalid keys rejected.")
+  @Test
+  void testParseStorageKey() {
+    int[] coords = new int[3];
+    assertThat("Legacy block key must parse", PackedCoords.parseBlockKey("1_-64_3", coords));
+    assertThat("X must match", coords[0], is(1));
+    assertThat("Y must match", coords[1], is(-64));
+    assertThat("Z must match", coords[2], is(3));
+    int[] chunkCoords = new int[2];
+    assertThat("Legacy chunk key must parse", PackedCoords.parseChunkKey("-1_2", chunkCoords));
+    assertThat("Chunk X must match", chunkCoords[0], is(-1));
+    assertThat("Chunk Z must match", chunkCoords[1], is(2));
+
+    assertThat("Zero must parse", PackedCoords.parseBlockKey("0", coords));
+    assertThat(
+        "Minimum value must parse",
+        PackedCoords.parseChunkKey(String.valueOf(Long.MIN_VALUE), chunkCoords));
+    assertThat("Chunk X must match", chunkCoords[0], is(Integer.MIN_VALUE));
+    assertThat("Chunk Z must match", chunkCoords[1], is(0));
+
+    assertThat("Empty key must not parse", PackedCoords.parseBlockKey("", coords), is(false));
+    assertThat("Sign must not parse", PackedCoords.parseBlockKey("-", coords), is(false));
+    assertThat("Text must not parse", PackedCoords.parseBlockKey("badpath", coords), is(false));
+    assertThat(
+        "Negative zero must not parse",
+        PackedCoords.parseChunkKey("-0", chunkCoords),
+        is(false));
+    assertThat(
+        "Overflow must not parse",
+        PackedCoords.parseChunkKey("9223372036854775808", chunkCoords),
+        is(false));
+  }
+
+}
@@ -0,0 +1,87 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@DisplayName("Feature: Track regions with data on disk.")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RegionFileIndexTest {
+
+  private final Path dataDir = Path.of(".", "src", "test", "resources", getClass().getSimpleName());
+
+  @AfterEach
+  void afterEach() throws IOException {
+    if (!Files.exists(dataDir)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(dataDir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file -> {
+        try {
+          Files.delete(file);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      });
+    }
+  }
+
+  @DisplayName("Existing region files must be found.")
+  @Test
+  void testExisting() throws IOException {
+    Path worldDir = dataDir.resolve("world");
+    Files.createDirectories(worldDir);
+    Files.createFile(worldDir.resolve("0_0.dat"));
+    Files.createFile(worldDir.resolve("-1_2.yml"));
+    Files.createFile(worldDir.resolve("3_3.dat.tmp"));
+    Files.createFile(worldDir.resolve("invalid.dat"));
+
+    RegionFileIndex index = new RegionFileIndex(dataDir, mock(Logger.class));
+    assertThat("Region must exist", index.exists(new Region("world", 0, 0)));
+    assertThat("Legacy region must exist", index.exists(new Region("world", -1, 2)));
+    assertThat(
+        "Temporary file must be ignored",
+        index.exists(new Region("world", 3, 3)),
+        is(false));
+    assertThat(
+        "Missing region must not exist",
+        index.exists(new Region("world", 1, 1)),
+        is(false));
+    assertThat(
+        "Missing world must not have regions",
+        index.exists(new Region("other", 0, 0)),
+        is(false));
+  }
+
+  @DisplayName("Index must be answered from memory after listing.")
+  @Test
+  void testMaintained() throws IOException {
+    RegionFileIndex index = new RegionFileIndex(dataDir, mock(Logger.class));
+    Region region = new Region("world", 5, -5);
+    assertThat("Region must not exist", index.exists(region), is(false));
+
+    // Files created by others after listing are not seen.
+    Path file = dataDir.resolve(Path.of("world", "5_-5.dat"));
+    Files.createDirectories(file.getParent());
+    Files.createFile(file);
+    assertThat("Index must not touch the file system", index.exists(region), is(false));
+
+    index.add(region);
+    assertThat("Added region must exist", index.exists(region));
+
+    index.remove(region);
+    assertThat("Removed region must not exist", index.exists(region), is(false));
+  }
+
+}
@@ -0,0 +1,187 @@
+package com.github.jikoo.enchantableblocks.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Feature: Perform region I/O off the calling thread.")
+class RegionIoExecutorTest {
+
+  private static final Region REGION = new Region("world", 0, 0);
+
+  @DisplayName("Operations for a region must run in submission order.")
+  @Test
+  void testOrdering() throws InterruptedException {
+    RegionIoExecutor executor = new RegionIoExecutor(2, 1);
+    List<Integer> results = new ArrayList<>();
+
+    CompletableFuture<?>[] futures = IntStream.range(0, 100)
+        .mapToObj(i -> executor.submit(REGION, () -> results.add(i)))
+        .toArray(CompletableFuture[]::new);
+    CompletableFuture.allOf(futures).join();
+
+    assertThat(
+        "Operations must complete in order",
+        results,
+        contains(IntStream.range(0, 100).boxed().toArray()));
+    assertThat("Executor must terminate", executor.shutdown(1, TimeUnit.SECONDS));
+  }
+
+  @DisplayName("Operations must run asynchronously until shut down.")
+  @Test
+  void testShutdown() throws InterruptedException {
+    RegionIoExecutor executor = new RegionIoExecutor(1, 1);
+    Thread caller = Thread.currentThread();
+
+    assertThat("Executor must be asynchronous", executor.isAsync());
+    Thread thread = executor.submit(REGION, Thread::currentThread).join();
+    assertThat("Operation must run on another thread", thread, is(not(caller)));
+
+    assertThat("Executor must terminate", executor.shutdown(1, TimeUnit.SECONDS));
+
+    assertThat("Executor must be synchronous", executor.isAsync(), is(false));
+    CompletableFuture<Thread> future = executor.submit(REGION, Thread::currentThread);
+    assertThat("Operation must complete immediately", future.isDone());
+    assertThat("Operation must run on calling thread", future.join(), is(caller));
+  }
+
+  @DisplayName("Operations must be rejected until queued operations finish shutting down.")
+  @Test
+  void testShutdownTimeout() throws InterruptedException {
+    RegionIoExecutor executor = new RegionIoExecutor(1, 1);
+    CountDownLatch latch = new CountDownLatch(1);
+    executor.submit(REGION, () -> {
+      latch.await();
+      return null;
+    });
+
+    assertThat("Executor must time out", executor.shutdown(1, TimeUnit.MILLISECONDS), is(false));
+    CompletableFuture<Thread> rejected = executor.submit(REGION, Thread::currentThread);
+    assertThat("Operation must be rejected", rejected.isCompletedExceptionally());
+
+    latch.countDown();
+    assertThat("Executor must terminate", executor.shutdown(1, TimeUnit.SECONDS));
+    assertThat("Executor must be synchronous", executor.isAsync(), is(false));
+    CompletableFuture<Thread> future = executor.submit(REGION, Thread::currentThread);
+    assertThat("Operation must run on calling thread", future.join(), is(Thread.currentThread()));
+  }
+
+  @DisplayName("Unordered operations must run off the calling thread until shut down.")
+  @Test
+  void testUnordered() throws InterruptedException {
+    RegionIoExecutor executor = new RegionIoExecutor(1, 1);
+    Thread caller = Thread.currentThread();
+
+    Thread thread = executor.submitUnordered(Thread::currentThread).join();
+    assertThat("Operation must run on another thread", thread, is(not(caller)));
+
+    assertThat("Executor must terminate", executor.shutdown(1, TimeUnit.SECONDS));
+    CompletableFuture<Thread> future = executor.submitUnordered(Thread::currentThread);
+    assertThat("Operation must complete immediately", future.isDone());
+    assertThat("Operation must run on calling thread", future.join(), is(caller));
+  }
+
+  @DisplayName("Writes held in the coalescing window must collapse into one write.")
+  @Test
+  void testCoalesce() throws IOException, InterruptedException {
+    RegionIoExecutor executor = new RegionIoExecutor(1, 1, TimeUnit.MINUTES.toMillis(1));
+    RegionStorage storage = mock(RegionStorage.class);
+    when(storage.getRegion()).thenReturn(REGION);
+    byte[] first = new byte[] {1};
+    byte[] second = new byte[] {2};
+
+    CompletableFuture<Void> firstFuture = executor.submitWrite(storage, first);
+    CompletableFuture<Void> secondFuture = executor.submitWrite(storage, second);
+
+    assertThat("Write must be held", firstFuture.isDone(), is(false));
+    assertThat("Executor must terminate", executor.shutdown(1, TimeUnit.SECONDS));
+    assertThat("Write must be flushed on shutdown", secondFuture.isDone());
+    verify(storage, never()).write(first);
+    verify(storage).write(second);
+
+    RegionIoExecutor.WriteStats stats = executor.getWriteStats();
+    assertThat("One write must be performed", stats.writes(), is(1L));
+    assertThat("One write must be coalesced", stats.coalesced(), is(1L));
+  }
+
+  @DisplayName("Held writes must run before later operations for the region.")
+  @Test
+  void testCoalesceOrdering() throws IOException, InterruptedException {
+    RegionIoExecutor executor = new RegionIoExecutor(1, 1, TimeUnit.MINUTES.toMillis(1));
+    RegionStorage storage = mock(RegionStorage.class);
+    when(storage.getRegion()).thenReturn(REGION);
+    List<String> operations = new ArrayList<>();
+    doAnswer(invocation -> operations.add("write")).when(storage).write(any());
+
+    executor.submitWrite(storage, new byte[0]);
+    executor.submit(REGION, () -> operations.add("read")).join();
+
+    assertThat("Write must precede read", operations, contains("write", "read"));
+    assertThat("Executor must terminate", executor.shutdown(1, TimeUnit.SECONDS));
+  }
+
+  @DisplayName("Writes after a flushed write must not be merged ahead of later operations.")
+  @Test
+  void testCoalesceAfterRelease() throws IOException, InterruptedException {
+    RegionIoExecutor executor = new RegionIoExecutor(1, 4, TimeUnit.MINUTES.toMillis(1));
+    RegionStorage storage = mock(RegionStorage.class);
+    when(storage.getRegion()).thenReturn(REGION);
+    AtomicReference<byte[]> disk = new AtomicReference<>();
+    doAnswer(invocation -> {
+      disk.set(invocation.getArgument(0));
+      return null;
+    }).when(storage).write(any());
+    byte[] first = new byte[] {1};
+    byte[] second = new byte[] {2};
+
+    // Hold the lane so the released write is queued but not yet started.
+    CountDownLatch blocker = new CountDownLatch(1);
+    executor.submit(REGION, () -> {
+      blocker.await();
+      return null;
+    });
+    executor.submitWrite(storage, first);
+    CompletableFuture<Object> delete = executor.submit(REGION, () -> {
+      disk.set(null);
+      return null;
+    });
+    CompletableFuture<Void> secondFuture = executor.submitWrite(storage, second);
+    blocker.countDown();
+    delete.join();
+
+    assertThat("Executor must terminate", executor.shutdown(1, TimeUnit.SECONDS));
+    assertThat("Later write must complete", secondFuture.isDone());
+    assertThat("Later write must be the data on disk", disk.get(), is(second));
+    verify(storage).write(first);
+    verify(storage).write(second);
+  }
+
+  @DisplayName("Failed operations must complete exceptionally.")
+  @Test
+  void testFailure() {
+    CompletableFuture<Object> future = RegionIoExecutor.synchronous().submit(REGION, () -> {
+      throw new IllegalStateException("oh no");
+    });
+
+    assertThat("Operation must fail", future.isCompletedExceptionally());
+  }
+
+}
@@ -1,28 +1,47 @@
 package com.github.jikoo.enchantableblocks.util;
 
+import static com.github.jikoo.enchantableblocks.mock.matcher.ItemMatcher.isSimilar;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.github.jikoo.enchantableblocks.mock.ServerMocks;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
+import org.bukkit.Material;
 import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
-@DisplayName("Feature: Store data in YAML files by region.")
+@DisplayName("Feature: Store data in files by region.")
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class RegionStorageTest {
 
   private final Path dataDir = Path.of(".", "src", "test", "resources", getClass().getSimpleName());
   private final String world = "world";
 
+  @BeforeAll
+  void beforeAll() {
+    ServerMocks.mockServer();
+  }
+
   @AfterAll
   void afterAll() throws IOException {
+    ServerMocks.unsetBukkitServer();
     try (Stream<Path> files = Files.walk(dataDir)) {
       files.sorted(Comparator.reverseOrder()).forEach(file -> {
         try {
@@ -55,6 +74,30 @@ class RegionStorageTest {
     Files.delete(storage.getDataFile().toPath());
   }
 
+  @DisplayName("Saving should replace existing data without leaving temporary files.")
+  @Test
+  void testSaveReplace() throws IOException, InvalidConfigurationException {
+    RegionStorage storage = new RegionStorage(dataDir, new Region(world, 0, 1));
+    storage.set("test.path", "old text");
+    storage.save();
+    storage.set("test.path", "new text");
+    storage.save();
+
+    Path dataFile = storage.getDataFile().toPath();
+    try (Stream<Path> files = Files.list(dataFile.getParent())) {
+      assertThat(
+          "Temporary file must not remain",
+          files.anyMatch(file -> file.getFileName().toString().endsWith(".tmp")),
+          is(false));
+    }
+
+    RegionStorage loaded = new RegionStorage(dataDir, storage.getRegion());
+    loaded.load();
+    assertThat("Data must be replaced", loaded.getString("test.path"), is("new text"));
+
+    storage.delete();
+  }
+
   @DisplayName("Loading should read data from disk.")
   @Test
   void testLoad() throws IOException, InvalidConfigurationException {
@@ -70,4 +113,201 @@ class RegionStorageTest {
         is(areYouAwareOfMyMonstrosity));
   }
 
+  @DisplayName("Block data should survive a binary round trip.")
+  @Test
+  void testBinaryRoundTrip() throws IOException, InvalidConfigurationException {
+    Region region = new Region(world, 2, 2);
+    RegionStorage storage = new RegionStorage(dataDir, region);
+    ItemStack itemStack = new ItemStack(Material.FURNACE);
+    itemStack.addUnsafeEnchantment(Enchantment.EFFICIENCY, 5);
+    String blockPath = path(1024, -64, 1025);
+    storage.set(blockPath + ".itemstack", itemStack);
+    storage.set(blockPath + ".silk.enabled", true);
+    storage.set(blockPath + ".silk.ticks", (short) 200);
+    storage.set(blockPath + ".list", List.of("a", 1, 2.5D));
+    storage.save();
+
+    assertThat(
+        "Data must be stored in binary format",
+        RegionFormat.isBinary(Files.readAllBytes(storage.getDataFile().toPath())));
+
+    RegionStorage stored = new RegionStorage(dataDir, region);
+    stored.load();
+    assertThat("Storage must not be legacy", stored.isLegacy(), is(false));
+    assertThat(
+        "Item must be restored",
+        stored.getItemStack(blockPath + ".itemstack"),
+        isSimilar(itemStack));
+    assertThat("Boolean must be restored", stored.getBoolean(blockPath + ".silk.enabled"));
+    assertThat("Short must be restored", stored.getInt(blockPath + ".silk.ticks"), is(200));
+    assertThat(
+        "List must be restored",
+        stored.getList(blockPath + ".list"),
+        is(List.of("a", 1, 2.5D)));
+  }
+
+  @DisplayName("Items should load with their type and enchantments available before deserializing.")
+  @Test
+  void testStoredItem() throws IOException, InvalidConfigurationException {
+    Region region = new Region(world, 6, 6);
+    RegionStorage storage = new RegionStorage(dataDir, region);
+    ItemStack itemStack = new ItemStack(Material.FURNACE);
+    itemStack.addUnsafeEnchantment(Enchantment.EFFICIENCY, 5);
+    String path = path(3072, -64, 3073) + ".itemstack";
+    storage.set(path, itemStack);
+    storage.save();
+
+    RegionStorage stored = new RegionStorage(dataDir, region);
+    stored.load();
+    assertThat("Item must be kept serialized", stored.get(path), is(instanceOf(StoredItem.class)));
+    StoredItem storedItem = StoredItem.get(stored, path);
+    assertThat("Item must be present", storedItem, is(notNullValue()));
+    assertThat("Type must be available", storedItem.getType(), is(Material.FURNACE));
+    assertThat(
+        "Enchantments must be available",
+        storedItem.getEnchantments(),
+        is(Map.of(StoredItem.getKey(Enchantment.EFFICIENCY), 5)));
+    assertThat("Item must deserialize", storedItem.toItemStack(), isSimilar(itemStack));
+
+    // Unchanged items are written back without being deserialized.
+    stored.save();
+    RegionStorage restored = new RegionStorage(dataDir, region);
+    restored.load();
+    assertThat("Item must be restored", restored.getItemStack(path), isSimilar(itemStack));
+  }
+
+  @DisplayName("Encoding changes should only re-encode invalidated chunks.")
+  @Test
+  void testEncodeChanged() throws IOException, InvalidConfigurationException {
+    Region region = new Region(world, 0, 0);
+    RegionStorage storage = new RegionStorage(dataDir, region);
+    String unchanged = path(1, 2, 3) + ".value";
+    String changed = path(17, 2, 17) + ".value";
+    storage.set(unchanged, 1);
+    storage.set(changed, 2);
+    byte[] encoded = storage.encode();
+
+    RegionStorage stored = new RegionStorage(dataDir, region);
+    stored.load(encoded);
+    assertThat("Unchanged data must reuse loaded chunks", stored.encodeChanged(), is(encoded));
+
+    stored.set(changed, 3);
+    assertThat("Chunks not invalidated must be reused", stored.encodeChanged(), is(encoded));
+
+    stored.invalidateChunk(1, 1);
+    byte[] changed = stored.encodeChanged();
+    assertThat("Invalidated chunks must be re-encoded", changed, is(stored.encode()));
+
+    RegionStorage reloaded = new RegionStorage(dataDir, region);
+    reloaded.load(changed);
+    assertThat("Unchanged value must be retained", reloaded.getInt(unchanged), is(1));
+    assertThat("Changed value must be written", reloaded.getInt(changed), is(3));
+  }
+
+  @DisplayName("Compressed data should be readable alongside uncompressed data.")
+  @Test
+  void testCompressed() throws IOException, InvalidConfigurationException {
+    Region region = new Region(world, 5, 5);
+    RegionStorage storage = new RegionStorage(dataDir, region);
+    String path = path(2560, 64, 2560) + ".value";
+    storage.set(path, "compressed value");
+    storage.setCompressed(true);
+    storage.save();
+
+    byte[] raw = Files.readAllBytes(storage.getDataFile().toPath());
+    assertThat("Data must be detected as binary", RegionFormat.isBinary(raw));
+    assertThat(
+        "Data must be compressed",
+        ByteBuffer.wrap(raw).getInt(),
+        is(RegionFormat.COMPRESSED_MAGIC));
+
+    RegionStorage stored = new RegionStorage(dataDir, region);
+    stored.load();
+    assertThat("Compressed value must be read", stored.getString(path), is("compressed value"));
+    assertThat(
+        "Unchanged data must reuse loaded chunks",
+        stored.encodeChanged(),
+        is(storage.encode()));
+
+    stored.save();
+    RegionStorage uncompressed = new RegionStorage(dataDir, region);
+    uncompressed.load();
+    assertThat(
+        "Uncompressed value must be read",
+        uncompressed.getString(path),
+        is("compressed value"));
+
+    storage.delete();
+  }
+
+  @DisplayName("Legacy YAML data should be read and upgraded on save.")
+  @Test
+  void testLegacyUpgrade() throws IOException, InvalidConfigurationException {
+    Region region = new Region(world, 3, 3);
+    RegionStorage storage = new RegionStorage(dataDir, region);
+    String legacyPath = "96_96.1536_64_1536.value";
+    String path = path(1536, 64, 1536) + ".value";
+    YamlConfiguration legacy = new YamlConfiguration();
+    legacy.set(legacyPath, "legacy value");
+    legacy.set("96_96.bad_path", "stray value");
+    legacy.save(storage.getLegacyDataFile());
+
+    assertThat("Legacy data must be detected", storage.exists());
+
+    storage.load();
+    assertThat("Storage must be legacy", storage.isLegacy());
+    assertThat("Legacy value must be read", storage.getString(path), is("legacy value"));
+    assertThat("Legacy key must be upgraded", storage.contains(legacyPath), is(false));
+    assertThat(
+        "Stray value must be retained",
+        storage.getString(PackedCoords.chunkKey(96, 96) + ".bad_path"),
+        is("stray value"));
+
+    storage.save();
+    assertThat("Storage must no longer be legacy", storage.isLegacy(), is(false));
+    assertThat("Binary data must be written", storage.getDataFile().exists());
+    assertThat("Legacy data must be removed", storage.getLegacyDataFile().exists(), is(false));
+
+    RegionStorage stored = new RegionStorage(dataDir, region);
+    stored.load();
+    assertThat("Upgraded value must be read", stored.getString(path), is("legacy value"));
+  }
+
+  @DisplayName("Stray data under legacy keys should be moved when reading binary data.")
+  @Test
+  void testLegacyKeysInBinary() throws IOException, InvalidConfigurationException {
+    Region region = new Region(world, 0, 0);
+    RegionStorage storage = new RegionStorage(dataDir, region);
+    String path = path(1, 2, 3) + ".value";
+    storage.set(path, 1);
+    storage.set("0_0.stray", "stray value");
+    byte[] encoded = storage.encode();
+
+    RegionStorage stored = new RegionStorage(dataDir, region);
+    stored.load(encoded);
+    assertThat("Block value must be read", stored.getInt(path), is(1));
+    assertThat("Legacy chunk key must be upgraded", stored.contains("0_0"), is(false));
+    String strayPath = PackedCoords.chunkKey(0, 0) + ".stray";
+    assertThat("Stray value must be moved", stored.getString(strayPath), is("stray value"));
+
+    RegionStorage reloaded = new RegionStorage(dataDir, region);
+    reloaded.load(stored.encodeChanged());
+    assertThat("Moved value must be written", reloaded.getString(strayPath), is("stray value"));
+  }
+
+  @DisplayName("Corrupt binary data should not load.")
+  @Test
+  void testLoadCorrupt() throws IOException {
+    RegionStorage storage = new RegionStorage(dataDir, new Region(world, 4, 4));
+    Path path = storage.getDataFile().toPath();
+    Files.createDirectories(path.getParent());
+    Files.write(path, ByteBuffer.allocate(6).putInt(RegionFormat.MAGIC).array());
+
+    assertThrows(InvalidConfigurationException.class, storage::load);
+  }
+
+  private static String path(int x, int y, int z) {
+    return PackedCoords.chunkKey(x >> 4, z >> 4) + '.' + PackedCoords.blockKey(x, y, z);
+  }
+
 }